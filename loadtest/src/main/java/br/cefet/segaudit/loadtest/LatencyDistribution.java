@@ -0,0 +1,55 @@
+package br.cefet.segaudit.loadtest;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A latency model parsed from {@code fixed:MS}, {@code uniform:MIN:MAX}, {@code exponential:MEAN}
+ * or {@code lognormal:MEDIAN:SIGMA}; every value is in milliseconds except the log-normal sigma.
+ */
+public record LatencyDistribution(Kind kind, double first, double second) {
+
+    public enum Kind { FIXED, UNIFORM, EXPONENTIAL, LOGNORMAL }
+
+    public static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            Kind kind = Kind.valueOf(parts[0].toUpperCase(Locale.ROOT));
+            int expected = kind == Kind.FIXED || kind == Kind.EXPONENTIAL ? 2 : 3;
+            if (parts.length != expected) {
+                throw new IllegalArgumentException("Expected " + (expected - 1) + " parameter(s) for " + parts[0]);
+            }
+            double first = Double.parseDouble(parts[1]);
+            double second = expected == 3 ? Double.parseDouble(parts[2]) : 0;
+            if (first < 0 || second < 0) {
+                throw new IllegalArgumentException("Parameters must not be negative");
+            }
+            return new LatencyDistribution(kind, first, second);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid latency distribution '" + spec
+                    + "' (use fixed:MS, uniform:MIN:MAX, exponential:MEAN or lognormal:MEDIAN:SIGMA): " + e.getMessage(), e);
+        }
+    }
+
+    /** Draws one latency, in milliseconds. */
+    public long sampleMillis() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double millis = switch (kind) {
+            case FIXED -> first;
+            case UNIFORM -> first + random.nextDouble() * Math.max(0, second - first);
+            case EXPONENTIAL -> -first * Math.log(1 - random.nextDouble());
+            case LOGNORMAL -> first * Math.exp(second * random.nextGaussian());
+        };
+        return Math.round(millis);
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case FIXED -> "fixed:" + first;
+            case UNIFORM -> "uniform:" + first + ":" + second;
+            case EXPONENTIAL -> "exponential:" + first;
+            case LOGNORMAL -> "lognormal:" + first + ":" + second;
+        };
+    }
+}
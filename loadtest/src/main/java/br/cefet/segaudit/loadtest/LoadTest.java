@@ -0,0 +1,126 @@
+package br.cefet.segaudit.loadtest;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import br.cefet.segaudit.SegAudit;
+import br.cefet.segaudit.service.GatewayConnectionManager;
+import br.cefet.segaudit.service.InProcessGatewayConnectionManager;
+
+/**
+ * Load test entry point: starts the stub Ollama and the stub agent, boots the gateway in this JVM wired to them,
+ * drives the WebSocket sessions and prints client-side and server-side latencies per stage.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+        Script script = Script.load(options.script());
+
+        try (OllamaStub ollama = new OllamaStub(script, options.ollamaFirstToken(), options.ollamaTokenMillis(),
+                     options.ollamaTokensPerCommand(), options.ollamaParallel(), options.ollamaLoadMillis());
+             StubAgent agent = new StubAgent(options.agentLatency())) {
+            String ollamaUrl = ollama.start();
+            InProcessGatewayConnectionManager gateway = new InProcessGatewayConnectionManager(agent);
+
+            ConfigurableApplicationContext app = new SpringApplicationBuilder(SegAudit.class)
+                    .properties(applicationProperties(ollamaUrl, options))
+                    .initializers(registerGateway(gateway))
+                    .run();
+            try {
+                int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+                StageRecorder recorder = new StageRecorder();
+                System.out.printf("Running %d session(s) x %d utterance(s) against ws://127.0.0.1:%d/ws%n",
+                        options.sessions(), options.utterances(), port);
+
+                WebSocketLoadDriver.Result result = new WebSocketLoadDriver(URI.create("ws://127.0.0.1:" + port + "/ws"), script,
+                        options, recorder).run();
+
+                report(System.out, options, result, recorder, ollama, agent);
+                printServerStages(System.out, port);
+            } finally {
+                app.close();
+            }
+        }
+    }
+
+    /** Harness defaults first, then whatever application properties were given on the command line. */
+    private static Map<String, Object> applicationProperties(String ollamaUrl, LoadTestOptions options) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("ollama.api.url", ollamaUrl);
+        properties.put("contextnet.gateway.multiplex", "true");
+        // Sem regras, toda fala passa pelo modelo falso; sem snapshots, nada é gravado em data/.
+        properties.put("translation.rules.enabled", "false");
+        properties.put("ollama.snapshots.enabled", "false");
+        properties.putAll(options.appProperties());
+        return properties;
+    }
+
+    /** Makes the stub gateway the {@link GatewayConnectionManager} every session is registered with. */
+    private static ApplicationContextInitializer<GenericApplicationContext> registerGateway(InProcessGatewayConnectionManager gateway) {
+        return context -> context.registerBean(InProcessGatewayConnectionManager.class, () -> gateway,
+                definition -> definition.setPrimary(true));
+    }
+
+    private static void report(PrintStream out, LoadTestOptions options, WebSocketLoadDriver.Result result, StageRecorder recorder,
+                               OllamaStub ollama, StubAgent agent) {
+        out.println();
+        out.printf("Wall time            %.1f s%n", result.wallNanos() / 1e9);
+        out.printf("Utterances           %d completed, %d timed out, %d rejected (%.2f/s)%n", result.completedUtterances(),
+                result.timedOutUtterances(), result.rejectedUtterances(), result.utterancesPerSecond());
+        out.printf("Sessions             %d started, %d ready, %d failed%n", result.sessions(),
+                recorder.count(WebSocketLoadDriver.STAGE_READY), result.failedSessions().values().stream().mapToLong(Long::longValue).sum());
+        result.failedSessions().forEach((reason, count) -> out.printf("  %5d x %s%n", count, reason));
+        out.printf("Stub Ollama          %d request(s), %d prompt token(s), %d generated token(s), %d unmatched prompt(s)%n",
+                ollama.getRequests(), ollama.getPromptTokens(), ollama.getGeneratedTokens(), ollama.getUnmatchedPrompts());
+        out.printf("Stub agent           %d plans answered, %d command(s) acknowledged, %d ignored%n",
+                agent.getPlansAnswered(), agent.getAcknowledged(), agent.getIgnored());
+        out.printf("Model latency        first token %s, %.1f ms/token, %d token(s)/command, %d parallel%n",
+                options.ollamaFirstToken(), options.ollamaTokenMillis(), options.ollamaTokensPerCommand(), options.ollamaParallel());
+        out.println();
+        out.println("Client-side latency per stage");
+        recorder.print(out);
+    }
+
+    /** Scrapes the gateway's own stage histograms; skipped if the Prometheus endpoint is not exposed. */
+    private static void printServerStages(PrintStream out, int port) {
+        try {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/actuator/prometheus")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                out.println("Server-side stages unavailable (/actuator/prometheus returned " + response.statusCode() + ").");
+                return;
+            }
+            out.println();
+            out.println("Server-side latency per stage (segaudit.stage, successful samples)");
+            PrometheusStages.parse(response.body()).print(out);
+        } catch (Exception e) {
+            out.println("Server-side stages unavailable: " + e.getMessage());
+        }
+    }
+}
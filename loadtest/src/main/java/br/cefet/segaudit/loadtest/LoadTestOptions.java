@@ -0,0 +1,78 @@
+package br.cefet.segaudit.loadtest;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Command-line options, given as {@code --name=value}. Names containing a dot are not harness options but
+ * application properties (e.g. {@code --ollama.streaming.enabled=true}) and override the harness defaults.
+ */
+public record LoadTestOptions(int sessions, int utterances, long rampMillis, LatencyDistribution think, long utteranceTimeoutMillis,
+                              boolean translationCache, Path script, LatencyDistribution ollamaFirstToken, double ollamaTokenMillis,
+                              int ollamaTokensPerCommand, int ollamaParallel, long ollamaLoadMillis, LatencyDistribution agentLatency,
+                              Map<String, String> appProperties) {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("sessions", "20");
+        DEFAULTS.put("utterances", "10");
+        DEFAULTS.put("ramp-ms", "2000");
+        DEFAULTS.put("think", "uniform:200:800");
+        DEFAULTS.put("utterance-timeout-ms", "60000");
+        DEFAULTS.put("translation-cache", "false");
+        DEFAULTS.put("script", "");
+        DEFAULTS.put("ollama-first-token", "lognormal:400:0.5");
+        DEFAULTS.put("ollama-token-ms", "20");
+        DEFAULTS.put("ollama-tokens-per-command", "6");
+        DEFAULTS.put("ollama-parallel", "4");
+        DEFAULTS.put("ollama-load-ms", "3000");
+        DEFAULTS.put("agent-latency", "uniform:2:10");
+    }
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+        Map<String, String> appProperties = new LinkedHashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got '" + arg + "'.\n" + usage());
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            if (name.contains(".")) {
+                appProperties.put(name, value);
+            } else if (values.containsKey(name)) {
+                values.put(name, value);
+            } else {
+                throw new IllegalArgumentException("Unknown option --" + name + ".\n" + usage());
+            }
+        }
+        String script = values.get("script");
+        return new LoadTestOptions(
+                Integer.parseInt(values.get("sessions")),
+                Integer.parseInt(values.get("utterances")),
+                Long.parseLong(values.get("ramp-ms")),
+                LatencyDistribution.parse(values.get("think")),
+                Long.parseLong(values.get("utterance-timeout-ms")),
+                Boolean.parseBoolean(values.get("translation-cache")),
+                script.isBlank() ? null : Path.of(script),
+                LatencyDistribution.parse(values.get("ollama-first-token")),
+                Double.parseDouble(values.get("ollama-token-ms")),
+                Integer.parseInt(values.get("ollama-tokens-per-command")),
+                Integer.parseInt(values.get("ollama-parallel")),
+                Long.parseLong(values.get("ollama-load-ms")),
+                LatencyDistribution.parse(values.get("agent-latency")),
+                Map.copyOf(appProperties));
+    }
+
+    public static String usage() {
+        return "Options (defaults in brackets):\n" + DEFAULTS.entrySet().stream()
+                .map(option -> "  --" + option.getKey() + "=[" + option.getValue() + "]")
+                .collect(Collectors.joining("\n"))
+                + "\n  --<application.property>=value  overrides a gateway property"
+                + "\nLatencies: fixed:MS, uniform:MIN:MAX, exponential:MEAN, lognormal:MEDIAN:SIGMA";
+    }
+}
@@ -0,0 +1,192 @@
+package br.cefet.segaudit.loadtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process stand-in for Ollama's {@code /api/generate} and {@code /api/tags}. Translations answer with the
+ * commands the {@link Script} lists for the utterance, after a time-to-first-token drawn from a distribution
+ * plus a fixed cost per generated token; streamed requests get one NDJSON chunk per command line.
+ * At most {@code parallel} generations run at once, like {@code OLLAMA_NUM_PARALLEL}; the rest wait.
+ */
+public class OllamaStub implements AutoCloseable {
+
+    // Aproximação grosseira do tokenizador: ~4 caracteres por token.
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int VOCABULARY = 262_144;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Script script;
+    private final LatencyDistribution firstToken;
+    private final double tokenMillis;
+    private final int tokensPerCommand;
+    private final long loadMillis;
+    private final Semaphore slots;
+    private final AtomicBoolean loaded = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ollama-stub");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong promptTokens = new AtomicLong();
+    private final AtomicLong generatedTokens = new AtomicLong();
+    private final AtomicLong unmatchedPrompts = new AtomicLong();
+    private HttpServer server;
+
+    public OllamaStub(Script script, LatencyDistribution firstToken, double tokenMillis, int tokensPerCommand, int parallel, long loadMillis) {
+        this.script = script;
+        this.firstToken = firstToken;
+        this.tokenMillis = tokenMillis;
+        this.tokensPerCommand = Math.max(1, tokensPerCommand);
+        this.loadMillis = loadMillis;
+        this.slots = new Semaphore(Math.max(1, parallel), true);
+    }
+
+    /** Starts listening on an ephemeral loopback port and returns the generate URL to give the gateway. */
+    public String start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 512);
+        server.createContext("/api/generate", this::generate);
+        server.createContext("/api/tags", exchange -> respond(exchange, 200, "{\"models\":[]}"));
+        server.setExecutor(executor);
+        server.start();
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/generate";
+    }
+
+    private void generate(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        JsonNode request;
+        try {
+            request = objectMapper.readTree(exchange.getRequestBody());
+        } catch (IOException e) {
+            respond(exchange, 400, "{\"error\":\"invalid JSON\"}");
+            return;
+        }
+        String model = request.path("model").asText("stub");
+        String prompt = request.path("prompt").asText("");
+        JsonNode context = request.get("context");
+        boolean stream = request.path("stream").asBoolean(true);
+
+        // Primeira requisição paga o carregamento do modelo, como um Ollama recém-iniciado.
+        long loadNanos = loaded.compareAndSet(false, true) ? TimeUnit.MILLISECONDS.toNanos(loadMillis) : 0;
+        List<String> output;
+        if (prompt.isEmpty()) {
+            output = List.of(); // Pré-carga (keep_alive): não avalia nada.
+        } else if (context == null || context.isNull()) {
+            output = List.of("OK"); // Inicialização: contexto base mais os planos do agente.
+        } else {
+            output = script.matchPrompt(prompt).map(Script.Line::commands).orElseGet(() -> {
+                unmatchedPrompts.incrementAndGet();
+                return List.of("takeOff");
+            });
+        }
+        int evaluated = prompt.isEmpty() ? 0 : Math.max(1, prompt.length() / CHARS_PER_TOKEN);
+        int generated = output.size() * tokensPerCommand;
+        promptTokens.addAndGet(evaluated);
+        generatedTokens.addAndGet(generated);
+
+        try {
+            slots.acquire();
+            try {
+                sleep(TimeUnit.NANOSECONDS.toMillis(loadNanos) + (prompt.isEmpty() ? 0 : firstToken.sampleMillis()));
+                if (stream) {
+                    exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+                    exchange.sendResponseHeaders(200, 0);
+                    try (OutputStream body = exchange.getResponseBody()) {
+                        for (String line : output) {
+                            sleep(Math.round(tokensPerCommand * tokenMillis));
+                            ObjectNode chunk = objectMapper.createObjectNode().put("model", model).put("response", line + "\n").put("done", false);
+                            body.write(objectMapper.writeValueAsBytes(chunk));
+                            body.write('\n');
+                            body.flush();
+                        }
+                        body.write(objectMapper.writeValueAsBytes(finalChunk(model, "", context, evaluated, generated, loadNanos)));
+                        body.write('\n');
+                    }
+                } else {
+                    sleep(Math.round(generated * tokenMillis));
+                    ObjectNode response = finalChunk(model, String.join("\n", output), context, evaluated, generated, loadNanos);
+                    respond(exchange, 200, objectMapper.writeValueAsString(response));
+                }
+            } finally {
+                slots.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+        }
+    }
+
+    /** The {@code done} chunk: the received context extended by the evaluated and generated tokens. */
+    private ObjectNode finalChunk(String model, String response, JsonNode context, int evaluated, int generated, long loadNanos) {
+        ObjectNode chunk = objectMapper.createObjectNode().put("model", model).put("response", response).put("done", true);
+        if (evaluated > 0) {
+            ArrayNode tokens = chunk.putArray("context");
+            if (context != null && context.isArray()) {
+                context.forEach(token -> tokens.add(token.asLong()));
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < evaluated + generated; i++) {
+                tokens.add(random.nextInt(VOCABULARY));
+            }
+        }
+        return chunk.put("prompt_eval_count", evaluated).put("eval_count", generated).put("load_duration", loadNanos);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getPromptTokens() {
+        return promptTokens.get();
+    }
+
+    public long getGeneratedTokens() {
+        return generatedTokens.get();
+    }
+
+    /** Translations whose prompt did not end with any scripted utterance; they are answered with {@code takeOff}. */
+    public long getUnmatchedPrompts() {
+        return unmatchedPrompts.get();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,74 @@
+package br.cefet.segaudit.loadtest;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Server-side view of the same run: the {@code segaudit.stage} histograms scraped from {@code /actuator/prometheus}.
+ * Only successful samples are counted, and percentiles are bucket upper bounds, so they are coarser than the client's.
+ */
+public final class PrometheusStages {
+
+    private static final String BUCKET = "segaudit_stage_seconds_bucket{";
+    private static final Pattern LABEL = Pattern.compile("(\\w+)=\"([^\"]*)\"");
+
+    /** Cumulative sample count per bucket upper bound (seconds), per stage. */
+    private final Map<String, TreeMap<Double, Double>> buckets = new TreeMap<>();
+
+    private PrometheusStages() {
+    }
+
+    public static PrometheusStages parse(String exposition) {
+        PrometheusStages stages = new PrometheusStages();
+        for (String line : exposition.split("\n")) {
+            if (!line.startsWith(BUCKET)) {
+                continue;
+            }
+            int close = line.indexOf('}');
+            String stage = null;
+            String outcome = null;
+            String le = null;
+            Matcher label = LABEL.matcher(line.substring(BUCKET.length(), close));
+            while (label.find()) {
+                switch (label.group(1)) {
+                    case "stage" -> stage = label.group(2);
+                    case "outcome" -> outcome = label.group(2);
+                    case "le" -> le = label.group(2);
+                    default -> { }
+                }
+            }
+            if (stage == null || le == null || !"success".equals(outcome)) {
+                continue;
+            }
+            double bound = "+Inf".equals(le) ? Double.POSITIVE_INFINITY : Double.parseDouble(le);
+            double count = Double.parseDouble(line.substring(close + 1).trim().split("\\s+")[0]);
+            stages.buckets.computeIfAbsent(stage, k -> new TreeMap<>()).merge(bound, count, Double::sum);
+        }
+        return stages;
+    }
+
+    /** Smallest bucket bound covering the quantile, in milliseconds; infinite when it falls past the last finite bucket. */
+    static double percentileMillis(TreeMap<Double, Double> cumulative, double quantile) {
+        double total = cumulative.lastEntry().getValue();
+        for (Map.Entry<Double, Double> bucket : cumulative.entrySet()) {
+            if (bucket.getValue() >= quantile * total) {
+                return bucket.getKey() * 1000;
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%-16s %8s %10s %10s %10s%n", "stage", "count", "p50 ms<=", "p95 ms<=", "p99 ms<=");
+        buckets.forEach((stage, cumulative) -> {
+            long count = Math.round(cumulative.lastEntry().getValue());
+            if (count > 0) {
+                out.printf("%-16s %8d %10.1f %10.1f %10.1f%n", stage, count, percentileMillis(cumulative, 0.50),
+                        percentileMillis(cumulative, 0.95), percentileMillis(cumulative, 0.99));
+            }
+        });
+    }
+}
@@ -0,0 +1,94 @@
+package br.cefet.segaudit.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The utterances the driver sends and the commands the stub model answers with. Lines have the form
+ * {@code utterance => command; command}; blank lines and lines starting with {@code #} are ignored.
+ */
+public final class Script {
+
+    public record Line(String utterance, List<String> commands) {
+    }
+
+    private static final String DEFAULT_RESOURCE = "/loadtest/script.txt";
+
+    private final List<Line> lines;
+
+    private Script(List<Line> lines) {
+        if (lines.isEmpty()) {
+            throw new IllegalArgumentException("The load test script has no utterances.");
+        }
+        this.lines = List.copyOf(lines);
+    }
+
+    /** Reads the script from a file, or the bundled one when {@code path} is {@code null}. */
+    public static Script load(Path path) throws IOException {
+        if (path != null) {
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                return parse(reader);
+            }
+        }
+        InputStream bundled = Script.class.getResourceAsStream(DEFAULT_RESOURCE);
+        if (bundled == null) {
+            throw new IOException("Bundled script " + DEFAULT_RESOURCE + " not found on the classpath.");
+        }
+        try (Reader reader = new InputStreamReader(bundled, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    static Script parse(Reader source) throws IOException {
+        List<Line> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(source);
+        String raw;
+        while ((raw = reader.readLine()) != null) {
+            String text = raw.trim();
+            if (text.isEmpty() || text.startsWith("#")) {
+                continue;
+            }
+            int arrow = text.indexOf("=>");
+            if (arrow < 0) {
+                throw new IOException("Script line without '=>': " + text);
+            }
+            List<String> commands = Arrays.stream(text.substring(arrow + 2).split(";"))
+                                          .map(String::trim)
+                                          .filter(command -> !command.isEmpty())
+                                          .toList();
+            lines.add(new Line(text.substring(0, arrow).trim(), commands));
+        }
+        return new Script(lines);
+    }
+
+    public int size() {
+        return lines.size();
+    }
+
+    /** The line a session sends at the given step; sessions start at different offsets so the mix stays even. */
+    public Line get(int index) {
+        return lines.get(Math.floorMod(index, lines.size()));
+    }
+
+    /** The line whose utterance ends the prompt (the gateway may prepend a recap and plan hints). */
+    public Optional<Line> matchPrompt(String prompt) {
+        String trimmed = prompt.trim();
+        Line best = null;
+        for (Line line : lines) {
+            if (trimmed.endsWith(line.utterance()) && (best == null || line.utterance().length() > best.utterance().length())) {
+                best = line;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+}
@@ -0,0 +1,44 @@
+package br.cefet.segaudit.loadtest;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Client-side latencies per stage, kept raw so percentiles are exact; stages print in the order first seen. */
+public class StageRecorder {
+
+    private final Map<String, List<Long>> samples = new LinkedHashMap<>();
+
+    public synchronized void record(String stage, long nanos) {
+        samples.computeIfAbsent(stage, k -> new ArrayList<>()).add(nanos);
+    }
+
+    public synchronized int count(String stage) {
+        List<Long> values = samples.get(stage);
+        return values == null ? 0 : values.size();
+    }
+
+    /** Nearest-rank percentile of an ascending array. */
+    static long percentile(long[] sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    public void print(PrintStream out) {
+        Map<String, long[]> sorted = new LinkedHashMap<>();
+        synchronized (this) {
+            samples.forEach((stage, values) -> sorted.put(stage, values.stream().mapToLong(Long::longValue).sorted().toArray()));
+        }
+        out.printf("%-16s %8s %10s %10s %10s %10s%n", "stage", "count", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        sorted.forEach((stage, values) -> out.printf("%-16s %8d %10.1f %10.1f %10.1f %10.1f%n", stage, values.length,
+                millis(percentile(values, 0.50)), millis(percentile(values, 0.95)), millis(percentile(values, 0.99)),
+                millis(values[values.length - 1])));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,90 @@
+package br.cefet.segaudit.loadtest;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import br.cefet.segaudit.model.classes.KqmlFrame;
+import br.cefet.segaudit.model.classes.KqmlFrame.Field;
+
+/**
+ * Plays the agent behind the gateway: answers {@code askOne plans(N)} with the plans of {@code sample_agent.asl}
+ * and acknowledges every {@code achieve} with {@code done(command)}, both as replies to the message they answer.
+ * Replies are delivered after a latency drawn from a distribution, on a single scheduler thread.
+ */
+public class StubAgent implements AutoCloseable {
+
+    public static final String PLANS = "plans(\"/**@Description Apenas tira o embarcado do chão tornando-o disponível para próximos comandos*/ takeOff"
+            + " /**@Description Se o drone não estiver voando, executa um takeOff interno e depois sobe o drone em X unidades*/ up(X)"
+            + " /**@Description desce o drone em X unidades*/ down(X) /**@Description pousa o drone*/ land"
+            + " /**@Description Comanda o drone para a direita em X unidades*/ right(X) /**@Description Controla o drone para frente em X unidades*/ forward(X)"
+            + " /**@Description Comanda o drone para a esquerda em X unidades*/ left(X) /**@Description controla o drone em X unidades*/ backward(X)"
+            + " /**@Description desliga o drone*/ turnOff\")";
+    public static final String ACK_PREFIX = "done(";
+
+    private final LatencyDistribution latency;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stub-agent");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong messageIds = new AtomicLong();
+    private final AtomicLong plansAnswered = new AtomicLong();
+    private final AtomicLong acknowledged = new AtomicLong();
+    private final AtomicLong ignored = new AtomicLong();
+
+    public StubAgent(LatencyDistribution latency) {
+        this.latency = latency;
+    }
+
+    /** Handles one KQML message sent by a session; the reply, if any, is handed to {@code replyTo}. */
+    public void receive(String message, Consumer<String> replyTo) {
+        KqmlFrame frame = KqmlFrame.parse(message);
+        if (frame == null) {
+            ignored.incrementAndGet();
+            return;
+        }
+        String performative = frame.getString(Field.PERFORMATIVE);
+        String content = frame.getString(Field.CONTENT);
+        String answer;
+        if ("askOne".equals(performative) && content.startsWith("plans(")) {
+            plansAnswered.incrementAndGet();
+            answer = PLANS;
+        } else if ("achieve".equals(performative)) {
+            acknowledged.incrementAndGet();
+            answer = ACK_PREFIX + content + ")";
+        } else {
+            ignored.incrementAndGet();
+            return;
+        }
+        // Remetente e destinatário trocam de lugar na resposta.
+        String reply = "<agent" + messageIds.incrementAndGet() + "->" + frame.getString(Field.ID) + "," + frame.getString(Field.RECEIVER)
+                + ",tell," + frame.getString(Field.SENDER) + "," + answer + ">";
+        long delay = latency.sampleMillis();
+        if (delay <= 0) {
+            scheduler.execute(() -> replyTo.accept(reply));
+        } else {
+            scheduler.schedule(() -> replyTo.accept(reply), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public long getPlansAnswered() {
+        return plansAnswered.get();
+    }
+
+    public long getAcknowledged() {
+        return acknowledged.get();
+    }
+
+    /** Messages that were neither a plans query nor an {@code achieve}. */
+    public long getIgnored() {
+        return ignored.get();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,294 @@
+package br.cefet.segaudit.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Opens {@code sessions} WebSocket sessions against {@code /ws}, ramped over {@code rampMillis}. Each session sends
+ * its configuration, waits for the session to be ready and then sends {@code utterances} scripted lines one at a time,
+ * moving on once the agent has acknowledged every command of the current line (or the line timed out).
+ */
+public class WebSocketLoadDriver {
+
+    public static final String STAGE_CONNECT = "ws-connect";
+    public static final String STAGE_READY = "session-ready";
+    public static final String STAGE_FIRST_COMMAND = "first-command";
+    public static final String STAGE_UTTERANCE = "utterance";
+
+    /** What happened during a run; {@code wallNanos} goes from the first connection to the last session closing. */
+    public record Result(int sessions, long completedUtterances, long timedOutUtterances, long rejectedUtterances,
+                         Map<String, Long> failedSessions, long wallNanos) {
+
+        public double utterancesPerSecond() {
+            return wallNanos == 0 ? 0 : completedUtterances / (wallNanos / 1e9);
+        }
+    }
+
+    // Todas as sessões falam com o mesmo agente falso; o UUID do cliente muda por sessão.
+    private static final UUID AGENT = UUID.fromString("b135dd8a-23e5-4b3e-9405-288c40b7fac3");
+
+    private final URI uri;
+    private final Script script;
+    private final LoadTestOptions options;
+    private final StageRecorder recorder;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "load-driver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final Map<String, Long> failures = new ConcurrentHashMap<>();
+    private CountDownLatch finished;
+
+    public WebSocketLoadDriver(URI uri, Script script, LoadTestOptions options, StageRecorder recorder) {
+        this.uri = uri;
+        this.script = script;
+        this.options = options;
+        this.recorder = recorder;
+    }
+
+    /** Runs every session to completion and returns the totals; latencies go to the recorder. */
+    public Result run() throws InterruptedException {
+        finished = new CountDownLatch(options.sessions());
+        long start = System.nanoTime();
+        for (int i = 0; i < options.sessions(); i++) {
+            SessionRun session = new SessionRun(i);
+            long delay = options.sessions() <= 1 ? 0 : options.rampMillis() * i / (options.sessions() - 1);
+            scheduler.schedule(session::open, delay, TimeUnit.MILLISECONDS);
+        }
+        finished.await();
+        long wall = System.nanoTime() - start;
+        scheduler.shutdownNow();
+        return new Result(options.sessions(), completed.get(), timedOut.get(), rejected.get(), Map.copyOf(failures), wall);
+    }
+
+    /** One client session; WebSocket callbacks and scheduled steps synchronize on it. */
+    private final class SessionRun implements WebSocket.Listener {
+
+        private final int index;
+        private final UUID clientUUID = UUID.randomUUID();
+        private final StringBuilder partial = new StringBuilder();
+        private final AtomicBoolean countedDown = new AtomicBoolean();
+        private WebSocket socket;
+        private CompletableFuture<?> outbound = CompletableFuture.completedFuture(null);
+        private ScheduledFuture<?> timeout;
+        private long configSentAt;
+        private boolean ready;
+        private boolean done;
+        private int step;
+        private Script.Line current;
+        private long sentAt;
+        private int acknowledged;
+
+        SessionRun(int index) {
+            this.index = index;
+        }
+
+        void open() {
+            long started = System.nanoTime();
+            client.newWebSocketBuilder()
+                  .connectTimeout(Duration.ofMillis(options.utteranceTimeoutMillis()))
+                  .buildAsync(uri, this)
+                  .whenComplete((webSocket, ex) -> {
+                      if (ex != null) {
+                          fail("connect: " + rootMessage(ex));
+                          return;
+                      }
+                      recorder.record(STAGE_CONNECT, System.nanoTime() - started);
+                      sendConfig();
+                  });
+        }
+
+        private synchronized void sendConfig() {
+            Map<String, Object> config = Map.of("gatewayIP", "127.0.0.1", "gatewayPort", 5500, "agentUUID", clientUUID.toString(),
+                    "destinationUUID", AGENT.toString(), "translationCache", options.translationCache());
+            try {
+                String json = objectMapper.writeValueAsString(config);
+                configSentAt = System.nanoTime();
+                armTimeout();
+                send(json);
+            } catch (Exception e) {
+                fail("config: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            synchronized (this) {
+                socket = webSocket;
+            }
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                String message = partial.toString();
+                partial.setLength(0);
+                handle(message);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        private synchronized void handle(String message) {
+            if (done) {
+                return;
+            }
+            if (message.startsWith("Connection stabilized")) {
+                ready = true;
+                recorder.record(STAGE_READY, System.nanoTime() - configSentAt);
+                cancelTimeout();
+                scheduleNext();
+            } else if (current != null && message.contains("," + StubAgent.ACK_PREFIX)) {
+                long elapsed = System.nanoTime() - sentAt;
+                if (++acknowledged == 1) {
+                    recorder.record(STAGE_FIRST_COMMAND, elapsed);
+                }
+                if (acknowledged >= current.commands().size()) {
+                    recorder.record(STAGE_UTTERANCE, elapsed);
+                    completed.incrementAndGet();
+                    current = null;
+                    cancelTimeout();
+                    scheduleNext();
+                }
+            } else if (message.startsWith("Error")) {
+                if (!ready) {
+                    fail("setup: " + message);
+                } else if (current != null) {
+                    rejected.incrementAndGet();
+                    current = null;
+                    cancelTimeout();
+                    scheduleNext();
+                }
+            } else if (message.startsWith("Warning: Server busy") || message.startsWith("Warning: Too many")) {
+                rejected.incrementAndGet();
+                current = null;
+                cancelTimeout();
+                scheduleNext();
+            }
+        }
+
+        /** Waits the think time and sends the next line, or closes the session when the script is done. */
+        private void scheduleNext() {
+            if (step >= options.utterances()) {
+                finish();
+                return;
+            }
+            scheduler.schedule(this::sendNext, options.think().sampleMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void sendNext() {
+            if (done) {
+                return;
+            }
+            current = script.get(index + step++);
+            acknowledged = 0;
+            sentAt = System.nanoTime();
+            armTimeout();
+            send(current.utterance());
+        }
+
+        private void armTimeout() {
+            timeout = scheduler.schedule(this::onTimeout, options.utteranceTimeoutMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        private void cancelTimeout() {
+            if (timeout != null) {
+                timeout.cancel(false);
+                timeout = null;
+            }
+        }
+
+        private synchronized void onTimeout() {
+            if (done) {
+                return;
+            }
+            if (!ready) {
+                fail("setup timed out");
+                return;
+            }
+            // Confirmações atrasadas desta fala podem cair na próxima; com timeouts raros o efeito é desprezível.
+            timedOut.incrementAndGet();
+            current = null;
+            scheduleNext();
+        }
+
+        private void send(String text) {
+            WebSocket target = socket;
+            outbound = outbound.thenCompose(v -> target.sendText(text, true));
+            outbound.exceptionally(ex -> {
+                fail("send: " + rootMessage(ex));
+                return null;
+            });
+        }
+
+        private synchronized void finish() {
+            done = true;
+            cancelTimeout();
+            WebSocket target = socket;
+            outbound.thenCompose(v -> target.sendClose(WebSocket.NORMAL_CLOSURE, "load test done"))
+                    .whenComplete((v, ex) -> countDown());
+        }
+
+        private synchronized void fail(String reason) {
+            if (done) {
+                return;
+            }
+            done = true;
+            cancelTimeout();
+            // Agrupa por motivo sem os detalhes variáveis (ids, portas).
+            failures.merge(reason.replaceAll("[0-9a-f-]{8,}|\\d+", "#"), 1L, Long::sum);
+            if (socket != null) {
+                socket.abort();
+            }
+            countDown();
+        }
+
+        private void countDown() {
+            if (countedDown.compareAndSet(false, true)) {
+                finished.countDown();
+            }
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            fail("closed by server (" + statusCode + " " + reason + ")");
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            fail("error: " + rootMessage(error));
+        }
+    }
+
+    private static String rootMessage(Throwable ex) {
+        Throwable cause = ex;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getClass().getSimpleName() + (cause.getMessage() != null ? " " + cause.getMessage() : "");
+    }
+}
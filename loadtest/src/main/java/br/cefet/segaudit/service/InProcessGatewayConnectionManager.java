@@ -0,0 +1,54 @@
+package br.cefet.segaudit.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import br.cefet.segaudit.loadtest.StubAgent;
+import br.cefet.segaudit.model.interfaces.IGatewayLink;
+
+/**
+ * Replaces the MR-UDP gateway connections with direct calls to a {@link StubAgent}, so the load test needs no
+ * ContextNet gateway. Lives in the service package to reach the inbound entry point of {@link ContextNetClient}.
+ */
+public class InProcessGatewayConnectionManager extends GatewayConnectionManager {
+
+    private final StubAgent agent;
+    private final AtomicInteger openLinks = new AtomicInteger();
+
+    public InProcessGatewayConnectionManager(StubAgent agent) {
+        super(null, 1, Integer.MAX_VALUE);
+        this.agent = agent;
+    }
+
+    @Override
+    public IGatewayLink register(ContextNetClient client, String gatewayIP, int gatewayPort) {
+        openLinks.incrementAndGet();
+        // Como numa conexão compartilhada já estabelecida: o cliente é avisado antes de receber o link.
+        client.connected(null);
+        return new IGatewayLink() {
+            private boolean closed;
+
+            @Override
+            public void sendMessage(String message) {
+                agent.receive(message, client::onGatewayMessage);
+            }
+
+            @Override
+            public synchronized void close() {
+                if (!closed) {
+                    closed = true;
+                    openLinks.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    /** Sessions currently attached to the stub gateway. */
+    public int getOpenLinks() {
+        return openLinks.get();
+    }
+
+    @Override
+    public void closeAll() {
+        // Nada a fechar: não há conexões reais.
+    }
+}
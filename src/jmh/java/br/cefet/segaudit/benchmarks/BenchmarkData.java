@@ -0,0 +1,22 @@
+package br.cefet.segaudit.benchmarks;
+
+import java.util.Random;
+
+/** Deterministic inputs so runs on different machines and commits measure the same work. */
+final class BenchmarkData {
+
+    private static final long SEED = 20240611L;
+
+    private BenchmarkData() {
+    }
+
+    /** A context of Gemma-sized token ids (vocabulary of ~262k). */
+    static long[] context(int size) {
+        Random random = new Random(SEED);
+        long[] context = new long[size];
+        for (int i = 0; i < size; i++) {
+            context[i] = random.nextInt(262_144);
+        }
+        return context;
+    }
+}
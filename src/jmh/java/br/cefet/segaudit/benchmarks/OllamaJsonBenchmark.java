@@ -0,0 +1,94 @@
+package br.cefet.segaudit.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.cefet.segaudit.AIContextManager.streaming.OllamaResponseSubscriber;
+import br.cefet.segaudit.model.classes.IAGenerateRequest;
+import br.cefet.segaudit.model.classes.IAGenerateResponse;
+import br.cefet.segaudit.model.classes.OllamaOptions;
+
+/** Jackson cost of the Ollama request and response bodies for realistic context sizes. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class OllamaJsonBenchmark {
+
+    private static final int HTTP_BUFFER_SIZE = 16 * 1024;
+    private static final Flow.Subscription NO_OP_SUBSCRIPTION = new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    @Param({ "2048", "8192" })
+    public int contextSize;
+
+    private ObjectMapper objectMapper;
+    private IAGenerateRequest request;
+    private String responseJson;
+    private byte[] responseBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        long[] context = BenchmarkData.context(contextSize);
+        request = new IAGenerateRequest("gemma3:12b", "Olá agente, decole e suba 3 metros", context, new OllamaOptions(4096));
+        responseJson = objectMapper.writeValueAsString(new IAGenerateResponse("takeOff\nup(3)", context, contextSize));
+        responseBytes = responseJson.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Baseline: what the gateway did before bodies were written as bytes. */
+    @Benchmark
+    public String serializeRequestToString() throws Exception {
+        return objectMapper.writeValueAsString(request);
+    }
+
+    @Benchmark
+    public byte[] serializeRequest() throws Exception {
+        return objectMapper.writeValueAsBytes(request);
+    }
+
+    /** Baseline: body collected into a String and bound through databind. */
+    @Benchmark
+    public IAGenerateResponse parseResponseFromString() throws Exception {
+        return objectMapper.readValue(responseJson, IAGenerateResponse.class);
+    }
+
+    /** The body as the HTTP client delivers it, in 16 KiB buffers, through the incremental subscriber. */
+    @Benchmark
+    public IAGenerateResponse parseResponse() throws Exception {
+        OllamaResponseSubscriber subscriber = new OllamaResponseSubscriber(objectMapper.getFactory());
+        subscriber.onSubscribe(NO_OP_SUBSCRIPTION);
+        for (int offset = 0; offset < responseBytes.length; offset += HTTP_BUFFER_SIZE) {
+            int length = Math.min(HTTP_BUFFER_SIZE, responseBytes.length - offset);
+            subscriber.onNext(List.of(ByteBuffer.wrap(responseBytes, offset, length).slice()));
+        }
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().get();
+    }
+}
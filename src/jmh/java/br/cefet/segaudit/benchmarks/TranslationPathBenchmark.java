@@ -0,0 +1,112 @@
+package br.cefet.segaudit.benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import br.cefet.segaudit.AIContextManager.balancing.OllamaEndpointPool;
+import br.cefet.segaudit.AIContextManager.cache.PromptContextCache;
+import br.cefet.segaudit.AIContextManager.cache.TranslationCache;
+import br.cefet.segaudit.AIContextManager.gemma3.Gemma3Manager;
+import br.cefet.segaudit.AIContextManager.prompt.PromptBuilder;
+import br.cefet.segaudit.AIContextManager.scheduling.OllamaRequestScheduler;
+import br.cefet.segaudit.AIContextManager.snapshot.ContextSnapshotStore;
+import br.cefet.segaudit.metrics.GatewayMetrics;
+import br.cefet.segaudit.model.classes.IAGenerateResponse;
+import br.cefet.segaudit.model.classes.PlanCatalog;
+import br.cefet.segaudit.service.AIService;
+
+/**
+ * End-to-end {@link AIService#getKQMLMessages} against an in-process Ollama stub that answers instantly,
+ * so the score is the gateway's own overhead: serialization, scheduling, HTTP on loopback and parsing.
+ * Translation cache and rule-based shortcuts are off so every call reaches the stub.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class TranslationPathBenchmark {
+
+    private static final String SESSION = "bench-session";
+    private static final String PLANS = "plans(\"takeOff,land,turnOff,up(N),down(N),left(N),right(N)\")";
+
+    @Param({ "2048", "8192" })
+    public int contextSize;
+
+    private HttpServer ollamaStub;
+    private ScheduledExecutorService scheduler;
+    private AIService aiService;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        byte[] body = objectMapper.writeValueAsBytes(
+                new IAGenerateResponse("takeOff\nup(3)\nland", BenchmarkData.context(contextSize), contextSize));
+        ollamaStub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        ollamaStub.setExecutor(Executors.newFixedThreadPool(4));
+        ollamaStub.createContext("/api/generate", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        ollamaStub.start();
+        String url = "http://127.0.0.1:" + ollamaStub.getAddress().getPort() + "/api/generate";
+
+        HttpClient client = HttpClient.newHttpClient();
+        GatewayMetrics metrics = GatewayMetrics.inMemory();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        Gemma3Manager manager = new Gemma3Manager(client, objectMapper, new PromptContextCache(32), new TranslationCache(0, 0),
+                List.of(), new PromptBuilder(0, 8), new OllamaRequestScheduler(4, 64),
+                new OllamaEndpointPool(url, client, scheduler, 0, 2000, 3, 30_000, false, 0.95, 20), metrics, scheduler, ContextSnapshotStore.disabled());
+        setField(manager, "modelName", "gemma3:12b");
+        setField(manager, "contextResource", new ClassPathResource("gemma3/gemma3Context.txt"));
+
+        manager.initializeUserSession(SESSION, PlanCatalog.parse(PLANS));
+        manager.setTranslationCacheEnabled(SESSION, false);
+        aiService = new AIService(manager, SESSION, metrics);
+    }
+
+    /** Stands in for Spring's {@code @Value} injection. */
+    private static void setField(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ollamaStub.stop(0);
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public List<String> getKQMLMessages() {
+        return aiService.getKQMLMessages(SESSION, "Decole, suba 3 metros e depois pouse").join();
+    }
+}
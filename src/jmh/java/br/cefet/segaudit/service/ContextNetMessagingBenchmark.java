@@ -0,0 +1,117 @@
+package br.cefet.segaudit.service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.cefet.segaudit.metrics.GatewayMetrics;
+import br.cefet.segaudit.model.classes.ContextNetConfig;
+import br.cefet.segaudit.model.classes.KqmlFrame;
+import br.cefet.segaudit.model.interfaces.IGatewayLink;
+
+/**
+ * Inbound parsing and outbound formatting in {@link ContextNetClient}, with the gateway replaced by a link
+ * that only counts messages. Lives in the service package to reach the inbound entry point.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ContextNetMessagingBenchmark {
+
+    private static final UUID SESSION = UUID.fromString("788b2b22-baa6-4c61-b1bb-01cff1f5f878");
+    private static final UUID AGENT = UUID.fromString("2f1d1c9e-7a43-4d3e-9d7b-3b2a8f6e5c10");
+    private static final String TELEMETRY = "<mid9001," + AGENT + ",tell," + SESSION + ",battery(87)>";
+    private static final String UNRELATED_REPLY = "<mid9002->mid0," + AGENT + ",tell," + SESSION + ",position(12, 40, 7)>";
+    private static final String PLANS_REPLY = "<mid9003->mid1," + AGENT + ",tell," + SESSION
+            + ",plans(\"/**@Description Apenas tira o embarcado do chão*/ takeOff /**@Description pousa o drone*/ land"
+            + " /**@Description sobe o drone em X unidades*/ up(X) /**@Description desliga o drone*/ turnOff\")>";
+    private static final String COMMAND = "achieve," + AGENT + ",up(3)";
+
+    private ScheduledExecutorService scheduler;
+    private HashedTimingWheel timeouts;
+    private ContextNetClient idleClient;
+    private ContextNetClient waitingClient;
+    private long delivered;
+
+    @Setup
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        timeouts = new HashedTimingWheel(scheduler, 100, 512);
+        idleClient = newClient();
+        waitingClient = newClient();
+        waitingClient.fetchAgentPlans(Duration.ofHours(1)); // Deixa uma requisição pendente que as mensagens nunca respondem.
+    }
+
+    @TearDown
+    public void tearDown() {
+        idleClient.close();
+        waitingClient.close();
+        scheduler.shutdownNow();
+    }
+
+    private ContextNetClient newClient() {
+        ContextNetConfig config = new ContextNetConfig();
+        config.gatewayIP = "127.0.0.1";
+        config.gatewayPort = 5500;
+        config.myUUID = SESSION;
+        config.destinationUUID = AGENT;
+        GatewayConnectionManager gateway = new GatewayConnectionManager(null, 1, 1) {
+            @Override
+            public IGatewayLink register(ContextNetClient client, String gatewayIP, int gatewayPort) {
+                return new IGatewayLink() {
+                    @Override
+                    public void sendMessage(String message) {
+                        delivered += message.length();
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        };
+        ContextNetClient client = new ContextNetClient(config, message -> delivered++, gateway, timeouts, GatewayMetrics.inMemory());
+        client.connected(null);
+        return client;
+    }
+
+    @Benchmark
+    public long inboundTelemetry() {
+        idleClient.onGatewayMessage(TELEMETRY);
+        return delivered;
+    }
+
+    @Benchmark
+    public long inboundWithPendingRequest() {
+        waitingClient.onGatewayMessage(UNRELATED_REPLY);
+        return delivered;
+    }
+
+    @Benchmark
+    public String parsePlansReply() {
+        return KqmlFrame.parse(PLANS_REPLY).getString(KqmlFrame.Field.CONTENT);
+    }
+
+    @Benchmark
+    public long outboundCommand() {
+        idleClient.sendToContextNet(COMMAND);
+        return delivered;
+    }
+}
@@ -0,0 +1,368 @@
+package br.cefet.segaudit.AIContextManager.balancing;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Spreads Ollama generations over the endpoints listed (comma-separated) in {@code ollama.api.url}.
+ * A session sticks to the endpoint that holds its KV cache while that endpoint is healthy; new sessions and
+ * sessions whose endpoint was ejected go to the endpoint with the fewest outstanding requests.
+ * Endpoints are ejected after consecutive failures or failed health probes, and probes bring them back.
+ * Interactive translations may be hedged: if the first attempt is slower than the configured latency
+ * percentile, or fails before that, the same request is sent to a second endpoint and the first answer wins.
+ */
+@Component
+public class OllamaEndpointPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaEndpointPool.class);
+    private static final int LATENCY_WINDOW = 256;
+    private static final long NOT_EJECTED = Long.MIN_VALUE;
+
+    private final List<Endpoint> endpoints;
+    private final Map<String, Endpoint> affinity = new ConcurrentHashMap<>();
+    private final HttpClient client;
+    private final ScheduledExecutorService scheduler;
+
+    private final long healthIntervalMs;
+    private final long probeTimeoutMs;
+    private final int failuresToEject;
+    private final long ejectionMs;
+    private final boolean hedgingEnabled;
+    private final double hedgePercentile;
+    private final int hedgeMinSamples;
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount;
+    private int latencyNext;
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private volatile ScheduledFuture<?> healthTask;
+
+    public OllamaEndpointPool(@Value("${ollama.api.url}") String urls,
+                              HttpClient client,
+                              ScheduledExecutorService scheduler,
+                              @Value("${ollama.balancer.health-interval-ms:10000}") long healthIntervalMs,
+                              @Value("${ollama.balancer.probe-timeout-ms:2000}") long probeTimeoutMs,
+                              @Value("${ollama.balancer.failures-to-eject:3}") int failuresToEject,
+                              @Value("${ollama.balancer.ejection-ms:30000}") long ejectionMs,
+                              @Value("${ollama.balancer.hedge.enabled:false}") boolean hedgingEnabled,
+                              @Value("${ollama.balancer.hedge.percentile:0.95}") double hedgePercentile,
+                              @Value("${ollama.balancer.hedge.min-samples:20}") int hedgeMinSamples) {
+        List<Endpoint> parsed = new ArrayList<>();
+        for (String url : urls.split(",")) {
+            if (!url.isBlank()) {
+                parsed.add(new Endpoint(URI.create(url.trim())));
+            }
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("ollama.api.url must list at least one endpoint");
+        }
+        this.endpoints = Collections.unmodifiableList(parsed);
+        this.client = client;
+        this.scheduler = scheduler;
+        this.healthIntervalMs = healthIntervalMs;
+        this.probeTimeoutMs = probeTimeoutMs;
+        this.failuresToEject = failuresToEject;
+        this.ejectionMs = ejectionMs;
+        this.hedgingEnabled = hedgingEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinSamples = hedgeMinSamples;
+    }
+
+    /** Health probes only make sense when there is somewhere else to send traffic. */
+    @PostConstruct
+    public void startHealthChecks() {
+        if (endpoints.size() > 1 && healthIntervalMs > 0) {
+            healthTask = scheduler.scheduleWithFixedDelay(this::probeAll, healthIntervalMs, healthIntervalMs, TimeUnit.MILLISECONDS);
+            logger.info("Balancing Ollama requests over {} endpoints: {}", endpoints.size(), endpoints);
+        }
+    }
+
+    @PreDestroy
+    public void stopHealthChecks() {
+        ScheduledFuture<?> task = healthTask;
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Runs {@code call} against the endpoint chosen for the session, recording its outcome.
+     * With {@code hedge} set, a slow or failed call is repeated once on another healthy endpoint.
+     */
+    public <T> CompletableFuture<T> execute(String sessionId, boolean hedge, Function<URI, CompletableFuture<T>> call) {
+        Endpoint primary = select(sessionId, null);
+        CompletableFuture<T> first = attempt(primary, call, true);
+        long hedgeDelay = hedge ? hedgeDelayNanos() : -1;
+        if (hedgeDelay < 0 || endpoints.size() < 2) {
+            return first;
+        }
+
+        HedgedCall<T> attempts = new HedgedCall<>();
+        CompletableFuture<T> result = attempts.result;
+        first.whenComplete((value, ex) -> {
+            if (ex != null) {
+                // A principal falhou antes do timer: a reserva sai na hora.
+                startBackup(attempts, sessionId, primary, call, "primary failed");
+            }
+            attempts.settle(value, ex);
+        });
+        ScheduledFuture<?> timer = scheduler.schedule(
+                () -> startBackup(attempts, sessionId, primary, call, "no answer after " + TimeUnit.NANOSECONDS.toMillis(hedgeDelay) + " ms"),
+                hedgeDelay, TimeUnit.NANOSECONDS);
+        result.whenComplete((value, ex) -> {
+            timer.cancel(false);
+            first.cancel(true); // Sem efeito se a primeira tentativa já terminou.
+        });
+        return result;
+    }
+
+    /** Sends the backup attempt of a hedged call, unless it was already sent or the call is settled. */
+    private <T> void startBackup(HedgedCall<T> attempts, String sessionId, Endpoint primary,
+                                 Function<URI, CompletableFuture<T>> call, String reason) {
+        if (!attempts.claimBackup()) {
+            return;
+        }
+        Endpoint backup = select(null, primary);
+        hedged.incrementAndGet();
+        logger.info("Hedging request of session {} to {}: {} on {}.", sessionId, backup, reason, primary);
+        CompletableFuture<T> second = attempt(backup, call, false);
+        second.whenComplete((value, ex) -> {
+            if (attempts.settle(value, ex)) {
+                hedgeWins.incrementAndGet();
+            }
+        });
+        attempts.result.whenComplete((value, ex) -> second.cancel(true));
+    }
+
+    /** The attempts of one hedged call: the first success completes the result, the last failure fails it. */
+    private static final class HedgedCall<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        private int live = 1;
+        private boolean backupClaimed;
+
+        /** Reserves the single backup attempt; false if it was already taken or the call is settled. */
+        synchronized boolean claimBackup() {
+            if (backupClaimed || result.isDone()) {
+                return false;
+            }
+            backupClaimed = true;
+            live++;
+            return true;
+        }
+
+        /** Records the outcome of one attempt; true if this success is what completed the result. */
+        boolean settle(T value, Throwable ex) {
+            if (ex == null) {
+                return result.complete(value);
+            }
+            synchronized (this) {
+                if (--live > 0) {
+                    return false;
+                }
+            }
+            result.completeExceptionally(ex);
+            return false;
+        }
+    }
+
+    private <T> CompletableFuture<T> attempt(Endpoint endpoint, Function<URI, CompletableFuture<T>> call, boolean recordLatency) {
+        endpoint.outstanding.incrementAndGet();
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.apply(endpoint.uri);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((value, ex) -> {
+            endpoint.outstanding.decrementAndGet();
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (cause == null) {
+                endpoint.recordSuccess();
+                if (recordLatency) {
+                    recordLatency(System.nanoTime() - start);
+                }
+            } else if (!(cause instanceof CancellationException)) {
+                recordFailure(endpoint, cause);
+            }
+        });
+        return future;
+    }
+
+    /** Picks the session's endpoint if it is still available, otherwise the least loaded available one. */
+    Endpoint select(String sessionId, Endpoint exclude) {
+        long now = System.nanoTime();
+        if (sessionId != null) {
+            Endpoint sticky = affinity.get(sessionId);
+            if (sticky != null && sticky.isAvailable(now)) {
+                return sticky;
+            }
+        }
+        Endpoint best = null;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint == exclude || !endpoint.isAvailable(now)) {
+                continue;
+            }
+            if (best == null || endpoint.outstanding.get() < best.outstanding.get()) {
+                best = endpoint;
+            }
+        }
+        if (best == null) {
+            // Todos ejetados: tenta o menos carregado em vez de recusar.
+            best = endpoints.stream()
+                            .filter(endpoint -> endpoint != exclude)
+                            .min((a, b) -> Integer.compare(a.outstanding.get(), b.outstanding.get()))
+                            .orElse(exclude);
+        }
+        if (sessionId != null) {
+            Endpoint previous = affinity.put(sessionId, best);
+            if (previous != null && previous != best) {
+                logger.warn("Session {} moved from {} to {}; its context will be re-evaluated there.", sessionId, previous, best);
+            }
+        }
+        return best;
+    }
+
+    /** Forgets the session's endpoint affinity. */
+    public void release(String sessionId) {
+        affinity.remove(sessionId);
+    }
+
+    private void recordFailure(Endpoint endpoint, Throwable cause) {
+        int failures = endpoint.consecutiveFailures.incrementAndGet();
+        if (failures >= failuresToEject && endpoints.size() > 1) {
+            eject(endpoint, failures + " consecutive failures, last: " + cause.getMessage());
+        }
+    }
+
+    private void eject(Endpoint endpoint, String reason) {
+        long now = System.nanoTime();
+        boolean wasAvailable = endpoint.isAvailable(now);
+        endpoint.ejectedUntil.set(now + TimeUnit.MILLISECONDS.toNanos(ejectionMs));
+        if (wasAvailable) {
+            logger.warn("Ejecting Ollama endpoint {} for {} ms: {}", endpoint, ejectionMs, reason);
+        }
+    }
+
+    /** Probes {@code /api/tags} on every endpoint; a slow or failed probe ejects it, a good one restores it. */
+    void probeAll() {
+        for (Endpoint endpoint : endpoints) {
+            HttpRequest request = HttpRequest.newBuilder(endpoint.uri.resolve("/api/tags"))
+                                             .timeout(Duration.ofMillis(probeTimeoutMs))
+                                             .GET()
+                                             .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, ex) -> {
+                if (ex == null && response.statusCode() >= 200 && response.statusCode() < 300) {
+                    if (endpoint.ejectedUntil.getAndSet(NOT_EJECTED) != NOT_EJECTED) {
+                        logger.info("Ollama endpoint {} passed its health probe and is back in rotation.", endpoint);
+                    }
+                    endpoint.consecutiveFailures.set(0);
+                } else {
+                    eject(endpoint, ex != null ? "health probe failed: " + ex : "health probe returned " + response.statusCode());
+                }
+            });
+        }
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        latencies[latencyNext] = nanos;
+        latencyNext = (latencyNext + 1) % LATENCY_WINDOW;
+        latencyCount = Math.min(latencyCount + 1, LATENCY_WINDOW);
+    }
+
+    /** Latency percentile of recent successful calls, or -1 while there are too few samples to hedge. */
+    private synchronized long hedgeDelayNanos() {
+        if (!hedgingEnabled || latencyCount < hedgeMinSamples) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(hedgePercentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)];
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /** Endpoints not currently ejected. */
+    public int getAvailableCount() {
+        long now = System.nanoTime();
+        int available = 0;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isAvailable(now)) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    public long getHedgedCount() {
+        return hedged.get();
+    }
+
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    /** One Ollama base URL with its load and health state. */
+    public static final class Endpoint {
+        private final URI uri;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicLong ejectedUntil = new AtomicLong(NOT_EJECTED);
+
+        Endpoint(URI uri) {
+            this.uri = uri;
+        }
+
+        public URI getUri() {
+            return uri;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        public boolean isAvailable(long nowNanos) {
+            long until = ejectedUntil.get();
+            return until == NOT_EJECTED || until - nowNanos <= 0;
+        }
+
+        void recordSuccess() {
+            consecutiveFailures.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return uri.getAuthority();
+        }
+    }
+}
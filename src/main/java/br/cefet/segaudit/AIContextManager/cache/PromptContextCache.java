@@ -0,0 +1,197 @@
+package br.cefet.segaudit.AIContextManager.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import br.cefet.segaudit.model.classes.IAGenerateResponse;
+import br.cefet.segaudit.model.classes.OllamaOptions;
+
+/**
+ * Shared cache of model contexts produced by the session initialization prompt.
+ * Sessions talking to agents with identical plans reuse the same {@code long[] context}
+ * instead of asking Ollama to evaluate the whole prompt again.
+ */
+@Component
+public class PromptContextCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptContextCache.class);
+
+    private final int maxEntries;
+    private final Map<String, IAGenerateResponse> entries;
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public PromptContextCache(@Value("${ollama.context-cache.max-entries:32}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        // LinkedHashMap em modo de acesso: a entrada menos usada recentemente sai primeiro.
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IAGenerateResponse> eldest) {
+                return size() > PromptContextCache.this.maxEntries;
+            }
+        };
+    }
+
+    /** Builds the cache key for an initialization prompt from everything that influences the resulting context. */
+    public static String keyOf(String modelName, String promptTemplate, String plansContent, OllamaOptions options) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[] { modelName, promptTemplate, plansContent, String.valueOf(options) }) {
+                byte[] bytes = String.valueOf(part).getBytes(StandardCharsets.UTF_8);
+                digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+                digest.update((byte) ':');
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available in this JVM.", e);
+        }
+    }
+
+    /**
+     * Returns the cached initialization response for the key, or runs the loader once and shares its result
+     * with every caller that asks for the same key while it is in flight. Failed loads are not cached.
+     * Each caller receives its own dependent future, so cancelling one does not affect the others;
+     * once every caller has cancelled, the load itself is cancelled.
+     */
+    public CompletableFuture<IAGenerateResponse> getOrLoad(String key, Supplier<CompletableFuture<IAGenerateResponse>> loader) {
+        IAGenerateResponse cached = lookup(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        Flight created = new Flight();
+        Flight existing;
+        while ((existing = inFlight.putIfAbsent(key, created)) != null) {
+            CompletableFuture<IAGenerateResponse> joined = join(key, existing);
+            if (joined != null) {
+                coalesced.incrementAndGet();
+                logger.debug("Joining in-flight context initialization for key {}", key);
+                return joined;
+            }
+            // A carga foi abandonada pelo último interessado antes de sair do mapa: tenta de novo.
+            inFlight.remove(key, existing);
+        }
+
+        // Outra thread pode ter concluído a carga entre a consulta e o registro.
+        cached = lookup(key);
+        if (cached != null) {
+            inFlight.remove(key, created);
+            created.shared.complete(cached);
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        misses.incrementAndGet();
+        CompletableFuture<IAGenerateResponse> load;
+        try {
+            load = loader.get();
+        } catch (RuntimeException e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+        created.load = load;
+        load.whenComplete((response, ex) -> {
+            if (ex == null && response != null && maxEntries > 0) {
+                synchronized (entries) {
+                    entries.put(key, response);
+                }
+            }
+            inFlight.remove(key, created);
+            if (ex != null) {
+                created.shared.completeExceptionally(ex);
+            } else {
+                created.shared.complete(response);
+            }
+        });
+        return dependent(key, created);
+    }
+
+    /** Registers one more waiter on an in-flight load; {@code null} when the load was already abandoned, so the caller starts a new one. */
+    private CompletableFuture<IAGenerateResponse> join(String key, Flight flight) {
+        synchronized (flight) {
+            if (flight.abandoned) {
+                return null;
+            }
+            flight.waiters++;
+        }
+        return dependent(key, flight);
+    }
+
+    /** Hands out a dependent future for an already counted waiter; the last waiter to cancel cancels the load. */
+    private CompletableFuture<IAGenerateResponse> dependent(String key, Flight flight) {
+        CompletableFuture<IAGenerateResponse> dependent = flight.shared.copy();
+        dependent.whenComplete((response, ex) -> {
+            if (!dependent.isCancelled()) {
+                return;
+            }
+            synchronized (flight) {
+                if (--flight.waiters > 0 || flight.shared.isDone()) {
+                    return;
+                }
+                flight.abandoned = true;
+                inFlight.remove(key, flight);
+            }
+            CompletableFuture<IAGenerateResponse> load = flight.load;
+            if (load != null) {
+                load.cancel(true);
+            }
+            flight.shared.cancel(false);
+            logger.info("Context initialization for key {} cancelled: no session is waiting for it anymore.", key);
+        });
+        return dependent;
+    }
+
+    private IAGenerateResponse lookup(String key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** Number of initializations that were served by joining another session's in-flight request. */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * A load shared by every session asking for the same key, with the number of sessions still waiting on it.
+     * {@code waiters} and {@code abandoned} are guarded by the flight's monitor, so no session can join a load
+     * the last waiter is about to cancel. The session that creates the flight is counted from the start.
+     */
+    private static final class Flight {
+        final CompletableFuture<IAGenerateResponse> shared = new CompletableFuture<>();
+        int waiters = 1;
+        boolean abandoned;
+        volatile CompletableFuture<IAGenerateResponse> load;
+    }
+}
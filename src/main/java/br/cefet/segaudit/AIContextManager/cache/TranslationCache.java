@@ -0,0 +1,132 @@
+package br.cefet.segaudit.AIContextManager.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import br.cefet.segaudit.model.classes.TranslationResult;
+import br.cefet.segaudit.model.classes.TranslationSource;
+
+/**
+ * Exact-match cache of translations keyed by normalized utterance, agent plans and model name.
+ * Entries expire after a TTL and the least recently used entry is evicted once the cache is full.
+ */
+@Component
+public class TranslationCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TranslationCache(@Value("${ollama.translation-cache.max-entries:1024}") int maxEntries,
+                            @Value("${ollama.translation-cache.ttl-seconds:3600}") long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        // Ordem de inserção: get() reinsere a entrada usada, contains() só consulta.
+        this.entries = new LinkedHashMap<>(64, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > TranslationCache.this.maxEntries;
+            }
+        };
+    }
+
+    /** Fingerprint of the plans text, so sessions talking to agents with the same plans share entries. */
+    public static String fingerprint(String plansContent) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(plansContent.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available in this JVM.", e);
+        }
+    }
+
+    /** Lower-cases the utterance, removes accents and collapses whitespace and trailing punctuation. */
+    public static String normalize(String utterance) {
+        String decomposed = Normalizer.normalize(utterance, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return decomposed.toLowerCase(Locale.ROOT)
+                         .replaceAll("\\s+", " ")
+                         .replaceAll("[\\s.!?;,]+$", "")
+                         .trim();
+    }
+
+    /** Returns the cached translation, or {@code null} if absent or expired. */
+    public TranslationResult get(String utterance, String plansFingerprint, String modelName) {
+        if (maxEntries <= 0) {
+            return null;
+        }
+        String key = keyOf(utterance, plansFingerprint, modelName);
+        synchronized (entries) {
+            Entry entry = entries.remove(key);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                entries.put(key, entry);
+                hits.incrementAndGet();
+                return new TranslationResult(entry.kqmlMessages, 0, TranslationSource.CACHE);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /** Whether a live translation is cached, without counting a hit or miss or refreshing the entry's LRU position. */
+    public boolean contains(String utterance, String plansFingerprint, String modelName) {
+        if (maxEntries <= 0) {
+            return false;
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(keyOf(utterance, plansFingerprint, modelName));
+            return entry != null && entry.expiresAt > System.currentTimeMillis();
+        }
+    }
+
+    /** Stores a model translation. Empty translations are not cached so the model gets another chance. */
+    public void put(String utterance, String plansFingerprint, String modelName, List<String> kqmlMessages) {
+        if (maxEntries <= 0 || kqmlMessages.isEmpty()) {
+            return;
+        }
+        Entry entry = new Entry(List.copyOf(kqmlMessages), System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(keyOf(utterance, plansFingerprint, modelName), entry);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** Fraction of lookups served from the cache since startup. */
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static String keyOf(String utterance, String plansFingerprint, String modelName) {
+        return modelName + '\u0000' + plansFingerprint + '\u0000' + normalize(utterance);
+    }
+
+    private record Entry(List<String> kqmlMessages, long expiresAt) {}
+}
@@ -1,34 +1,74 @@
 package br.cefet.segaudit.AIContextManager.gemma3;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
 import java.net.http.HttpRequest;
 
 import br.cefet.segaudit.AIContextManager.IO.FileUtil;
+import br.cefet.segaudit.AIContextManager.balancing.OllamaEndpointPool;
+import br.cefet.segaudit.AIContextManager.cache.PromptContextCache;
+import br.cefet.segaudit.AIContextManager.cache.TranslationCache;
+import br.cefet.segaudit.AIContextManager.prompt.PromptBuilder;
+import br.cefet.segaudit.AIContextManager.scheduling.OllamaRequestScheduler;
+import br.cefet.segaudit.AIContextManager.scheduling.OllamaRequestScheduler.Priority;
+import br.cefet.segaudit.AIContextManager.snapshot.ContextSnapshotStore;
+import br.cefet.segaudit.AIContextManager.streaming.OllamaResponseSubscriber;
+import br.cefet.segaudit.AIContextManager.streaming.OllamaStreamSubscriber;
+import br.cefet.segaudit.metrics.GatewayMetrics;
+import br.cefet.segaudit.metrics.GatewayMetrics.SpeculationOutcome;
+import br.cefet.segaudit.model.classes.BatchItemResult;
+import br.cefet.segaudit.model.classes.ContextPolicy;
+import br.cefet.segaudit.model.classes.ContextSnapshot;
 import br.cefet.segaudit.model.classes.IAGenerateRequest;
 import br.cefet.segaudit.model.classes.IAGenerateResponse;
 import br.cefet.segaudit.model.classes.OllamaOptions;
+import br.cefet.segaudit.model.classes.PlanCatalog;
+import br.cefet.segaudit.model.classes.PlanCatalog.PlanEntry;
 import br.cefet.segaudit.model.classes.TranslationResult;
+import br.cefet.segaudit.model.classes.TranslationSource;
 import br.cefet.segaudit.model.interfaces.IModelManagaer;
+import br.cefet.segaudit.model.interfaces.IPreTranslator;
 
 @Component
 public class Gemma3Manager implements IModelManagaer {
@@ -37,9 +77,15 @@ public class Gemma3Manager implements IModelManagaer {
 
     private final HttpClient client;
     private final ObjectMapper objectMapper;
-
-    @Value("${ollama.api.url}")
-    private String ollamaUrl;
+    private final PromptContextCache contextCache;
+    private final TranslationCache translationCache;
+    private final List<IPreTranslator> preTranslators;
+    private final PromptBuilder promptBuilder;
+    private final OllamaRequestScheduler scheduler;
+    private final OllamaEndpointPool endpointPool;
+    private final GatewayMetrics metrics;
+    private final ScheduledExecutorService maintenanceScheduler;
+    private final ContextSnapshotStore snapshotStore;
 
     @Value("${ollama.model.name}")
     private String modelName;
@@ -47,17 +93,81 @@ public class Gemma3Manager implements IModelManagaer {
     @Value("${ollama.model.context-path}")
     private Resource contextResource;
 
+    @Value("${ollama.keep-alive.duration:10m}")
+    private String keepAlive;
+
+    @Value("${ollama.keep-alive.warm-up:true}")
+    private boolean warmUpOnStartup;
+
+    @Value("${ollama.keep-alive.refresh-ms:240000}")
+    private long keepAliveRefreshMillis;
+
+    @Value("${ollama.keep-alive.cold-load-threshold-ms:1000}")
+    private long coldLoadThresholdMillis;
+
+    @Value("${ollama.context.max-tokens:0}")
+    private int maxContextTokens;
+
+    @Value("${ollama.context.carry-over:2}")
+    private int carryOverTurns;
+
+    @Value("${ollama.speculation.enabled:true}")
+    private boolean speculationEnabled;
+
+    @Value("${ollama.speculation.debounce-ms:150}")
+    private long speculationDebounceMillis;
+
+    @Value("${ollama.speculation.min-chars:4}")
+    private int speculationMinChars;
+
+    private ContextPolicy contextPolicy = ContextPolicy.ROLLBACK;
+
+    private final AtomicLong lastModelRequestAt = new AtomicLong(System.nanoTime());
+    private volatile ScheduledFuture<?> keeper;
+    private final AtomicInteger preloadsInFlight = new AtomicInteger();
+
     private final OllamaOptions ollamaOptions = new OllamaOptions(
         4096
     );
 
     private final Map<String, long[]> activeSessions = new ConcurrentHashMap<>();
     private final Map<String, CompletableFuture<?>> pendingRequests = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionPlansFingerprints = new ConcurrentHashMap<>();
+    private final Map<String, PlanCatalog> sessionCatalogs = new ConcurrentHashMap<>();
+    private final Set<String> translationCacheOptOuts = ConcurrentHashMap.newKeySet();
+    private final Map<String, List<PlanEntry>> sessionOmittedPlans = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionPromptKeys = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionSnapshotKeys = new ConcurrentHashMap<>();
+    private final Map<String, long[]> sessionBaseContexts = new ConcurrentHashMap<>();
+    private final Map<String, Deque<String>> sessionRecentTurns = new ConcurrentHashMap<>();
+    private final Map<String, Speculation> speculations = new ConcurrentHashMap<>();
 
     @Autowired
-    public Gemma3Manager(HttpClient client, ObjectMapper objectMapper) {
+    public Gemma3Manager(HttpClient client, ObjectMapper objectMapper, PromptContextCache contextCache, TranslationCache translationCache,
+                         List<IPreTranslator> preTranslators, PromptBuilder promptBuilder, OllamaRequestScheduler scheduler,
+                         OllamaEndpointPool endpointPool, GatewayMetrics metrics, ScheduledExecutorService maintenanceScheduler,
+                         ContextSnapshotStore snapshotStore) {
         this.client = client;
         this.objectMapper = objectMapper;
+        this.contextCache = contextCache;
+        this.translationCache = translationCache;
+        this.preTranslators = preTranslators;
+        this.promptBuilder = promptBuilder;
+        this.scheduler = scheduler;
+        this.endpointPool = endpointPool;
+        this.metrics = metrics;
+        this.maintenanceScheduler = maintenanceScheduler;
+        this.snapshotStore = snapshotStore;
+        metrics.gauge("segaudit.model.sessions", "Sessions with an initialized model context", activeSessions, Map::size);
+        metrics.gauge("segaudit.model.pending", "Initializations and translations in progress", pendingRequests, Map::size);
+        metrics.gauge("segaudit.model.context.max", "Longest session context, in tokens", activeSessions,
+                sessions -> sessions.values().stream().mapToInt(context -> context.length).max().orElse(0));
+    }
+
+    /** {@code grow}, {@code rollback} or {@code stateless}; see {@link ContextPolicy}. */
+    @Value("${ollama.context.policy:rollback}")
+    void setContextPolicy(String policy) {
+        this.contextPolicy = ContextPolicy.valueOf(policy.trim().toUpperCase(Locale.ROOT));
     }
 
     /** Translates a user message into a list of KQML commands using the session context. */
@@ -69,26 +179,89 @@ public class Gemma3Manager implements IModelManagaer {
                 throw new IllegalStateException("Erro: Sessão do usuário não foi inicializada corretamente.");
             }
 
-            IAGenerateRequest request = new IAGenerateRequest(modelName, userMessage, currentContext, ollamaOptions);
-            String jsonBody = objectMapper.writeValueAsString(request);
-            logger.debug("Ollama translate request for session {}: {}", sessionId, jsonBody);
-
-            CompletableFuture<TranslationResult> future = makeRequest(jsonBody).thenApply(response -> {
-                activeSessions.put(sessionId, response.context());
-                String rawResponse = response.response().trim();
-                
-                logger.info("Ollama raw response for session {}: {}", sessionId, rawResponse);
-               
-                // var kqmlMessages = Arrays.asList(rawResponse.split("\\r?\\n"));
-                var kqmlMessages = rawResponse.lines()
-                                              .map(String::trim)
-                                              .filter(line -> !line.isEmpty())
-                                              .collect(Collectors.toList());
-                return new TranslationResult(kqmlMessages, response.promptEvalCount());
+            TranslationResult cached = lookupCachedTranslation(sessionId, userMessage);
+            if (cached == null) {
+                cached = tryPreTranslators(sessionId, userMessage);
+            }
+            if (cached != null) {
+                discardSpeculation(sessionId);
+                return CompletableFuture.completedFuture(cached);
+            }
+
+            Speculation speculation = claimSpeculation(sessionId, userMessage, currentContext);
+            if (speculation != null) {
+                return commitSpeculation(sessionId, userMessage, speculation, null);
+            }
+
+            Turn turn = nextTurn(sessionId, currentContext);
+            IAGenerateRequest request = new IAGenerateRequest(modelName, turn.recap() + withPlanHints(sessionId, userMessage), turn.context(), ollamaOptions)
+                    .withKeepAlive(keepAlive);
+            byte[] jsonBody = objectMapper.writeValueAsBytes(request);
+            logRequestBody("translate", sessionId, jsonBody);
+
+            CompletableFuture<IAGenerateResponse> response = makeRequest(sessionId, Priority.INTERACTIVE, jsonBody);
+            CompletableFuture<TranslationResult> future = response
+                .thenApply(generated -> toTranslationResult(sessionId, userMessage, generated));
+
+            pendingRequests.put(sessionId, future);
+            future.whenComplete((result, ex) -> {
+                pendingRequests.remove(sessionId, future);
+                if (future.isCancelled()) {
+                    response.cancel(true); // Propaga o cancelamento até a fila do scheduler ou a troca HTTP.
+                }
             });
+            return future;
+        } catch (Exception e) {
+            logger.error("Failed to translate message for session {}", sessionId, e);
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to translate message for session " + sessionId, e));
+        }
+    }
+
+    /** Translates a user message with a streamed generation, emitting each KQML command as soon as its line is complete. */
+    @Override
+    public CompletableFuture<TranslationResult> translateMessageStreaming(String sessionId, String userMessage, Consumer<String> onCommand) {
+        try {
+            final long[] currentContext = activeSessions.get(sessionId);
+            if (currentContext == null) {
+                throw new IllegalStateException("Erro: Sessão do usuário não foi inicializada corretamente.");
+            }
+
+            TranslationResult cached = lookupCachedTranslation(sessionId, userMessage);
+            if (cached == null) {
+                cached = tryPreTranslators(sessionId, userMessage);
+            }
+            if (cached != null) {
+                discardSpeculation(sessionId);
+                cached.getKqmlMessages().forEach(onCommand);
+                return CompletableFuture.completedFuture(cached);
+            }
+
+            Speculation speculation = claimSpeculation(sessionId, userMessage, currentContext);
+            if (speculation != null) {
+                return commitSpeculation(sessionId, userMessage, speculation, onCommand);
+            }
+
+            Turn turn = nextTurn(sessionId, currentContext);
+            IAGenerateRequest request = new IAGenerateRequest(modelName, turn.recap() + withPlanHints(sessionId, userMessage), turn.context(), ollamaOptions, true)
+                    .withKeepAlive(keepAlive);
+            byte[] jsonBody = objectMapper.writeValueAsBytes(request);
+            logRequestBody("streaming translate", sessionId, jsonBody);
+
+            OllamaStreamSubscriber subscriber = new OllamaStreamSubscriber(objectMapper,
+                    line -> validateCommand(sessionId, line).ifPresent(onCommand));
+            CompletableFuture<IAGenerateResponse> response = observe(Priority.INTERACTIVE, scheduler.submit(sessionId, Priority.INTERACTIVE,
+                    () -> endpointPool.execute(sessionId, false, uri -> makeStreamingRequest(uri, jsonBody, subscriber))));
+            CompletableFuture<TranslationResult> future = response
+                .thenApply(generated -> toTranslationResult(sessionId, userMessage, generated));
 
             pendingRequests.put(sessionId, future);
-            future.whenComplete((result, ex) -> pendingRequests.remove(sessionId));
+            future.whenComplete((result, ex) -> {
+                pendingRequests.remove(sessionId, future);
+                if (future.isCancelled()) {
+                    response.cancel(true); // Tira o pedido da fila do scheduler se ainda não começou.
+                    subscriber.cancel(); // Interrompe a geração em andamento no Ollama.
+                }
+            });
             return future;
         } catch (Exception e) {
             logger.error("Failed to translate message for session {}", sessionId, e);
@@ -96,12 +269,462 @@ public class Gemma3Manager implements IModelManagaer {
         }
     }
 
+    /**
+     * Serves cached and rule-based items right away and sends the rest to the model, at most {@code parallelism} at a time.
+     * Every model item starts from the context the session had when the batch began; results are applied in order,
+     * so the session continues from the last item the model translated.
+     */
+    @Override
+    public CompletableFuture<List<BatchItemResult>> translateBatch(String sessionId, List<String> userMessages, int parallelism) {
+        final long[] currentContext = activeSessions.get(sessionId);
+        if (currentContext == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Erro: Sessão do usuário não foi inicializada corretamente."));
+        }
+
+        BatchItemResult[] results = new BatchItemResult[userMessages.size()];
+        List<Integer> forModel = new ArrayList<>();
+        for (int i = 0; i < userMessages.size(); i++) {
+            String userMessage = userMessages.get(i);
+            TranslationResult served = lookupCachedTranslation(sessionId, userMessage);
+            if (served == null) {
+                served = tryPreTranslators(sessionId, userMessage);
+            }
+            if (served != null) {
+                results[i] = BatchItemResult.ok(i, userMessage, served);
+            } else {
+                forModel.add(i);
+            }
+        }
+        if (forModel.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of(results));
+        }
+
+        Turn turn = nextTurn(sessionId, currentContext);
+        List<Supplier<CompletableFuture<IAGenerateResponse>>> calls = new ArrayList<>(forModel.size());
+        for (int index : forModel) {
+            String userMessage = userMessages.get(index);
+            calls.add(() -> {
+                try {
+                    IAGenerateRequest request = new IAGenerateRequest(modelName, turn.recap() + withPlanHints(sessionId, userMessage), turn.context(), ollamaOptions)
+                            .withKeepAlive(keepAlive);
+                    byte[] jsonBody = objectMapper.writeValueAsBytes(request);
+                    logRequestBody("batch translate", sessionId, jsonBody);
+                    return makeRequest(sessionId, Priority.INTERACTIVE, jsonBody);
+                } catch (IOException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            });
+        }
+        List<CompletableFuture<IAGenerateResponse>> responses = runBounded(calls, parallelism);
+
+        CompletableFuture<List<BatchItemResult>> future = CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0]))
+            .handle((done, ex) -> {
+                for (int k = 0; k < forModel.size(); k++) {
+                    int index = forModel.get(k);
+                    String userMessage = userMessages.get(index);
+                    try {
+                        results[index] = BatchItemResult.ok(index, userMessage, toTranslationResult(sessionId, userMessage, responses.get(k).join()));
+                    } catch (RuntimeException e) {
+                        results[index] = BatchItemResult.failed(index, userMessage, e);
+                    }
+                }
+                return List.of(results);
+            });
+
+        pendingRequests.put(sessionId, future);
+        future.whenComplete((result, ex) -> {
+            pendingRequests.remove(sessionId, future);
+            if (future.isCancelled()) {
+                responses.forEach(response -> response.cancel(true));
+            }
+        });
+        return future;
+    }
+
+    /** Starts at most {@code parallelism} calls at once, each one that finishes starting the next; futures are in call order. */
+    private static <T> List<CompletableFuture<T>> runBounded(List<Supplier<CompletableFuture<T>>> calls, int parallelism) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(calls.size());
+        for (int i = 0; i < calls.size(); i++) {
+            futures.add(new CompletableFuture<>());
+        }
+        AtomicInteger next = new AtomicInteger();
+        Runnable startNext = new Runnable() {
+            @Override
+            public void run() {
+                int i = next.getAndIncrement();
+                if (i >= calls.size()) {
+                    return;
+                }
+                CompletableFuture<T> target = futures.get(i);
+                if (target.isDone()) {
+                    run(); // Cancelado antes de começar.
+                    return;
+                }
+                CompletableFuture<T> call;
+                try {
+                    call = calls.get(i).get();
+                } catch (RuntimeException e) {
+                    call = CompletableFuture.failedFuture(e);
+                }
+                CompletableFuture<T> started = call;
+                target.whenComplete((result, ex) -> {
+                    if (target.isCancelled()) {
+                        started.cancel(true);
+                    }
+                });
+                started.whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        target.completeExceptionally(ex);
+                    } else {
+                        target.complete(result);
+                    }
+                    run();
+                });
+            }
+        };
+        for (int i = 0; i < Math.max(1, parallelism); i++) {
+            startNext.run();
+        }
+        return futures;
+    }
+
+    //? ----------- Speculation -----------
+
+    /**
+     * A translation of draft text, started before the user sent it. The request goes out after the debounce delay,
+     * unless newer text replaces it first; {@code response} completes with the model's answer.
+     */
+    private static final class Speculation {
+        final String text;
+        final long[] startContext;
+        final Turn turn;
+        final CompletableFuture<IAGenerateResponse> response = new CompletableFuture<>();
+        private final Supplier<CompletableFuture<IAGenerateResponse>> call;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile ScheduledFuture<?> delayedStart;
+
+        Speculation(String text, long[] startContext, Turn turn, Supplier<CompletableFuture<IAGenerateResponse>> call) {
+            this.text = text;
+            this.startContext = startContext;
+            this.turn = turn;
+            this.call = call;
+        }
+
+        /** Sends the request; only the first call does anything. */
+        void start() {
+            if (response.isDone() || !started.compareAndSet(false, true)) {
+                return;
+            }
+            CompletableFuture<IAGenerateResponse> running = call.get();
+            running.whenComplete((result, ex) -> {
+                if (ex != null) {
+                    response.completeExceptionally(ex);
+                } else {
+                    response.complete(result);
+                }
+            });
+            response.whenComplete((result, ex) -> {
+                if (response.isCancelled()) {
+                    running.cancel(true); // Para a geração no Ollama (ou tira o pedido da fila).
+                }
+            });
+        }
+
+        void cancel() {
+            ScheduledFuture<?> pending = delayedStart;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            response.cancel(true);
+        }
+    }
+
+    /**
+     * Starts translating draft text at the lowest scheduler priority, cancelling the speculation for older text.
+     * Drafts that the cache or the rules would serve, or that arrive while a translation is running, are not sent.
+     */
+    @Override
+    public void speculate(String sessionId, String draftText) {
+        String text = draftText == null ? "" : draftText.trim();
+        long[] currentContext = activeSessions.get(sessionId);
+        Speculation previous = speculations.get(sessionId);
+        if (previous != null && previous.text.equals(text) && previous.startContext == currentContext) {
+            return; // Mesmo rascunho de novo: a tradução em andamento continua valendo.
+        }
+        if (!speculationEnabled || currentContext == null || text.length() < speculationMinChars
+                || pendingRequests.containsKey(sessionId) || isServedWithoutModel(sessionId, text)) {
+            discardSpeculation(sessionId);
+            return;
+        }
+
+        Turn turn = planTurn(sessionId, currentContext);
+        byte[] jsonBody;
+        try {
+            IAGenerateRequest request = new IAGenerateRequest(modelName, turn.recap() + withPlanHints(sessionId, text), turn.context(), ollamaOptions)
+                    .withKeepAlive(keepAlive);
+            jsonBody = objectMapper.writeValueAsBytes(request);
+        } catch (IOException e) {
+            logger.warn("Could not build speculative request for session {}", sessionId, e);
+            discardSpeculation(sessionId);
+            return;
+        }
+        Speculation speculation = new Speculation(text, currentContext, turn, () -> {
+            logRequestBody("speculative translate", sessionId, jsonBody);
+            return makeRequest(sessionId, Priority.SPECULATIVE, jsonBody);
+        });
+
+        previous = speculations.put(sessionId, speculation);
+        if (previous != null) {
+            previous.cancel();
+            metrics.countSpeculation(SpeculationOutcome.CANCELLED);
+        }
+        metrics.countSpeculation(SpeculationOutcome.STARTED);
+        try {
+            speculation.delayedStart = maintenanceScheduler.schedule(speculation::start, speculationDebounceMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            speculation.start();
+        }
+    }
+
+    /** Whether the cache or a pre-translator already has an answer, checked without counting it as served. */
+    private boolean isServedWithoutModel(String sessionId, String text) {
+        String plansFingerprint = sessionPlansFingerprints.get(sessionId);
+        if (plansFingerprint != null && !translationCacheOptOuts.contains(sessionId)
+                && translationCache.contains(text, plansFingerprint, modelName)) {
+            return true;
+        }
+        PlanCatalog catalog = sessionCatalogs.get(sessionId);
+        return preTranslators.stream().anyMatch(preTranslator -> preTranslator.tryTranslate(text, catalog).isPresent());
+    }
+
+    /**
+     * Takes the session's speculation if it translated exactly this message from the current context; a speculation
+     * for other text, or one started before the context last changed, is cancelled and {@code null} is returned.
+     */
+    private Speculation claimSpeculation(String sessionId, String userMessage, long[] currentContext) {
+        Speculation speculation = speculations.remove(sessionId);
+        if (speculation == null) {
+            return null;
+        }
+        if (!speculation.text.equals(userMessage.trim()) || speculation.startContext != currentContext
+                || speculation.response.isCompletedExceptionally()) {
+            speculation.cancel();
+            metrics.countSpeculation(SpeculationOutcome.CANCELLED);
+            return null;
+        }
+        speculation.start(); // Ainda no debounce: a mensagem final chegou, não há por que esperar.
+        if (speculation.turn.rolledBack()) {
+            countRollback(sessionId, currentContext, speculation.turn);
+        }
+        metrics.countSpeculation(SpeculationOutcome.COMMITTED);
+        logger.info("Session {}: reusing the speculative translation of '{}'.", sessionId, speculation.text);
+        return speculation;
+    }
+
+    /** Turns a claimed speculation into the message's translation, tracked like any other pending request. */
+    private CompletableFuture<TranslationResult> commitSpeculation(String sessionId, String userMessage, Speculation speculation,
+                                                                   Consumer<String> onCommand) {
+        CompletableFuture<TranslationResult> future = speculation.response
+            .thenApply(response -> toTranslationResult(sessionId, userMessage, response, TranslationSource.SPECULATION));
+        if (onCommand != null) {
+            future = future.thenApply(result -> {
+                result.getKqmlMessages().forEach(onCommand);
+                return result;
+            });
+        }
+
+        CompletableFuture<TranslationResult> tracked = future;
+        pendingRequests.put(sessionId, tracked);
+        tracked.whenComplete((result, ex) -> {
+            pendingRequests.remove(sessionId, tracked);
+            if (tracked.isCancelled()) {
+                speculation.cancel();
+            }
+        });
+        return tracked;
+    }
+
+    /** Cancels the session's speculation, if any. */
+    private void discardSpeculation(String sessionId) {
+        Speculation speculation = speculations.remove(sessionId);
+        if (speculation != null) {
+            speculation.cancel();
+            metrics.countSpeculation(SpeculationOutcome.CANCELLED);
+        }
+    }
+
+    /** Enables or disables the translation cache for a single session. */
+    @Override
+    public void setTranslationCacheEnabled(String sessionId, boolean enabled) {
+        if (enabled) {
+            translationCacheOptOuts.remove(sessionId);
+        } else {
+            translationCacheOptOuts.add(sessionId);
+        }
+    }
+
+    /** Returns a cached translation for the utterance, or {@code null} when the model must be called. */
+    private TranslationResult lookupCachedTranslation(String sessionId, String userMessage) {
+        String plansFingerprint = sessionPlansFingerprints.get(sessionId);
+        if (plansFingerprint == null || translationCacheOptOuts.contains(sessionId)) {
+            return null;
+        }
+        TranslationResult cached = translationCache.get(userMessage, plansFingerprint, modelName);
+        if (cached != null) {
+            logger.info("Translation cache hit for session {} (hit ratio {}): {}", sessionId,
+                    String.format("%.2f", translationCache.getHitRatio()), cached.getKqmlMessages());
+            metrics.countTranslation(TranslationSource.CACHE);
+        }
+        return cached;
+    }
+
+    /** Runs the deterministic pre-translators; returns {@code null} when none of them is confident. */
+    private TranslationResult tryPreTranslators(String sessionId, String userMessage) {
+        PlanCatalog catalog = sessionCatalogs.get(sessionId);
+        for (IPreTranslator preTranslator : preTranslators) {
+            Optional<List<String>> commands = preTranslator.tryTranslate(userMessage, catalog);
+            if (commands.isPresent()) {
+                metrics.countTranslation(TranslationSource.RULES);
+                logger.info("Session {} translated by {} without the model ({} so far, {} by model): {}", sessionId,
+                        preTranslator.getClass().getSimpleName(), metrics.getTranslationCount(TranslationSource.RULES),
+                        metrics.getTranslationCount(TranslationSource.MODEL), commands.get());
+                return new TranslationResult(commands.get(), 0, TranslationSource.RULES);
+            }
+        }
+        return null;
+    }
+
+    /** The context a translation starts from and, after a rollback, a recap of the turns that context no longer holds. */
+    private record Turn(long[] context, String recap, boolean rolledBack) {
+    }
+
+    /** Applies the context policy: keeps growing, goes back to the base context once the threshold is reached, or always starts from it. */
+    private Turn nextTurn(String sessionId, long[] currentContext) {
+        Turn turn = planTurn(sessionId, currentContext);
+        if (turn.rolledBack()) {
+            countRollback(sessionId, currentContext, turn);
+        }
+        return turn;
+    }
+
+    /** Same as {@link #nextTurn} without recording the rollback, for translations that may never be used. */
+    private Turn planTurn(String sessionId, long[] currentContext) {
+        long[] base = sessionBaseContexts.getOrDefault(sessionId, currentContext);
+        return switch (contextPolicy) {
+            case GROW -> new Turn(currentContext, "", false);
+            case STATELESS -> new Turn(base, "", false);
+            case ROLLBACK -> {
+                if (currentContext.length < contextThreshold() || currentContext.length <= base.length) {
+                    yield new Turn(currentContext, "", false);
+                }
+                yield new Turn(base, recentTurnsRecap(sessionId), true);
+            }
+        };
+    }
+
+    private void countRollback(String sessionId, long[] currentContext, Turn turn) {
+        metrics.countContextRollback();
+        logger.info("Session {}: context reached {} tokens (threshold {}); rolling back to the {}-token base context.",
+                sessionId, currentContext.length, contextThreshold(), turn.context().length);
+    }
+
+    /** {@code ollama.context.max-tokens}, or three quarters of {@code num_ctx} when unset, leaving room for the prompt and the reply. */
+    private int contextThreshold() {
+        return maxContextTokens > 0 ? maxContextTokens : ollamaOptions.numCtx() * 3 / 4;
+    }
+
+    /** A few lines restating the last turns, so references like "do it again" still work right after a rollback. */
+    private String recentTurnsRecap(String sessionId) {
+        Deque<String> turns = sessionRecentTurns.get(sessionId);
+        if (turns == null) {
+            return "";
+        }
+        synchronized (turns) {
+            return turns.isEmpty() ? "" : "Earlier requests in this session:\n" + String.join("\n", turns) + "\n";
+        }
+    }
+
+    private void rememberTurn(String sessionId, String userMessage, List<String> commands) {
+        if (carryOverTurns <= 0 || contextPolicy != ContextPolicy.ROLLBACK) {
+            return;
+        }
+        Deque<String> turns = sessionRecentTurns.computeIfAbsent(sessionId, id -> new ArrayDeque<>());
+        synchronized (turns) {
+            turns.addLast("\"" + userMessage + "\" -> " + String.join(", ", commands));
+            while (turns.size() > carryOverTurns) {
+                turns.removeFirst();
+            }
+        }
+    }
+
+    /** Prepends the plans that were left out of the initial prompt but look relevant to this utterance. */
+    private String withPlanHints(String sessionId, String userMessage) {
+        String hint = promptBuilder.relevantPlansHint(sessionOmittedPlans.get(sessionId), userMessage);
+        if (!hint.isEmpty()) {
+            logger.debug("Session {}: adding omitted plans to the prompt: {}", sessionId, hint.trim());
+        }
+        return hint + userMessage;
+    }
+
+    /** Checks a generated command against the agent's plan catalog, dropping commands for plans the agent does not have. */
+    private Optional<String> validateCommand(String sessionId, String command) {
+        PlanCatalog catalog = sessionCatalogs.get(sessionId);
+        if (catalog == null || catalog.isEmpty()) {
+            return Optional.of(command);
+        }
+        Optional<String> validated = catalog.validate(command);
+        if (validated.isEmpty()) {
+            logger.warn("Session {}: rejected command '{}' that does not match any agent plan.", sessionId, command);
+        }
+        return validated;
+    }
+
+    /** Stores the new session context and splits the raw model output into one KQML command per line. */
+    private TranslationResult toTranslationResult(String sessionId, String userMessage, IAGenerateResponse response) {
+        return toTranslationResult(sessionId, userMessage, response, TranslationSource.MODEL);
+    }
+
+    private TranslationResult toTranslationResult(String sessionId, String userMessage, IAGenerateResponse response, TranslationSource source) {
+        activeSessions.put(sessionId, response.context());
+        if (contextPolicy != ContextPolicy.STATELESS) {
+            saveSnapshot(sessionId, response.context());
+        }
+        String rawResponse = response.response().trim();
+
+        logger.info("Ollama raw response for session {}: {}", sessionId, rawResponse);
+
+        // var kqmlMessages = Arrays.asList(rawResponse.split("\\r?\\n"));
+        var kqmlMessages = rawResponse.lines()
+                                      .map(String::trim)
+                                      .filter(line -> !line.isEmpty())
+                                      .map(line -> validateCommand(sessionId, line))
+                                      .flatMap(Optional::stream)
+                                      .collect(Collectors.toList());
+        metrics.countTranslation(source);
+        rememberTurn(sessionId, userMessage, kqmlMessages);
+        String plansFingerprint = sessionPlansFingerprints.get(sessionId);
+        if (plansFingerprint != null && !translationCacheOptOuts.contains(sessionId)) {
+            translationCache.put(userMessage, plansFingerprint, modelName, kqmlMessages);
+        }
+        return new TranslationResult(kqmlMessages, response.promptEvalCount(), source);
+    }
+
     /** Ends the AI model session for the given session ID. */
     @Override
     public void endSession(String sessionId) {
+        sessionPlansFingerprints.remove(sessionId);
+        sessionCatalogs.remove(sessionId);
+        sessionOmittedPlans.remove(sessionId);
+        endpointPool.release(sessionId);
+        translationCacheOptOuts.remove(sessionId);
+        sessionPromptKeys.remove(sessionId);
+        sessionBaseContexts.remove(sessionId);
+        sessionRecentTurns.remove(sessionId);
+        sessionSnapshotKeys.remove(sessionId); // O snapshot fica no disco para a próxima conexão do mesmo par.
         if (activeSessions.remove(sessionId) != null) {
             logger.info("AI model session ended for: {}", sessionId);
         }
+        discardSpeculation(sessionId);
         // Cancela qualquer requisição pendente para esta sessão
         CompletableFuture<?> pending = pendingRequests.remove(sessionId);
         if (pending != null && !pending.isDone()) {
@@ -113,64 +736,328 @@ public class Gemma3Manager implements IModelManagaer {
     /** Initializes a user session with the base context and agent-specific plans. */
     @Override
     public int initializeUserSession(String sessionId, String agentPlans) {
-        
+        return initializeUserSession(sessionId, PlanCatalog.parse(agentPlans));
+    }
+
+    /** Initializes a user session from an already parsed plan catalog, blocking until the model has evaluated the prompt. */
+    @Override
+    public int initializeUserSession(String sessionId, PlanCatalog catalog) {
+        CompletableFuture<Integer> future = initializeUserSessionAsync(sessionId, catalog);
         try {
-             String promptTemplate = FileUtil.readResourceAsString(contextResource);
-             String plansContent = agentPlans.substring(agentPlans.indexOf('"') + 1, agentPlans.lastIndexOf('"'));
-             logger.debug("Formatted plans received from agent being sent to AI: \n{}", plansContent);
-             String initialPrompt = promptTemplate.replace("##PLANOS_DO_AGENTE##", plansContent);
- 
-             IAGenerateRequest request = new IAGenerateRequest(modelName, initialPrompt, ollamaOptions);
-             String jsonBody = objectMapper.writeValueAsString(request);
-             logger.debug("Ollama init request for session {}: {}", sessionId, jsonBody);
-     
-             CompletableFuture<IAGenerateResponse> future = makeRequest(jsonBody);
-             pendingRequests.put(sessionId, future);
-             IAGenerateResponse response = future.get(); // Block only on initialization
-     
-             activeSessions.put(sessionId, response.context());
-             logger.info("Session {} initialized and model context loaded.", sessionId);
-             return response.promptEvalCount();
-        } catch (InterruptedException | IOException e) {
-            logger.error("Failed to initialize user session {} due to an IO or interruption error.", sessionId, e);
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while initializing user session {}.", sessionId, e);
             throw new RuntimeException("Falha ao inicializar a sessão do usuário: " + sessionId, e);
         } catch (ExecutionException e) {
-            Throwable cause = e.getCause();
-            if (cause instanceof IOException) {
-                logger.error("Failed to initialize user session {} due to a network error: {}", sessionId, cause.getMessage());
-
-                throw new RuntimeException("Cannot connect to AI model. Please check network connectivity and firewall settings.", cause);
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
             }
             throw new RuntimeException("An unexpected error occurred during AI session initialization.", e);
-        } finally {
-            pendingRequests.remove(sessionId);
         }
     }
 
-    /** Makes a POST request to the Ollama API with the given JSON body. */
-    private CompletableFuture<IAGenerateResponse> makeRequest(String jsonBody) {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(ollamaUrl))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                .timeout(Duration.ofMinutes(10))
-                .build();
+    /**
+     * Initializes a user session without holding a thread while the model evaluates the initial prompt.
+     * Cancelling the returned future (or ending the session) aborts the HTTP exchange once no other
+     * session is waiting for the same shared context.
+     */
+    @Override
+    public CompletableFuture<Integer> initializeUserSessionAsync(String sessionId, PlanCatalog catalog) {
+        String promptTemplate;
+        try {
+            promptTemplate = FileUtil.readResourceAsString(contextResource);
+        } catch (IOException e) {
+            logger.error("Failed to initialize user session {} due to an IO error.", sessionId, e);
+            return CompletableFuture.failedFuture(new RuntimeException("Falha ao inicializar a sessão do usuário: " + sessionId, e));
+        }
+        String plansContent = catalog.getPlansContent();
+        logger.debug("Formatted plans received from agent being sent to AI: \n{}", plansContent);
+        PromptBuilder.BuiltPrompt built = promptBuilder.build(promptTemplate, catalog);
+        String initialPrompt = built.prompt();
+        if (built.level() != PromptBuilder.CompactionLevel.FULL) {
+            logger.info("Session {}: initial prompt compacted to {} (~{} -> ~{} estimated tokens, budget {}, {} plans left out).",
+                    sessionId, built.level(), built.estimatedTokensBefore(), built.estimatedTokensAfter(),
+                    promptBuilder.getTokenBudget(), built.omittedPlans().size());
+        }
+
+        // Sessões com o mesmo modelo, template e planos compartilham o mesmo contexto inicial.
+        String cacheKey = PromptContextCache.keyOf(modelName, promptTemplate, built.plansBlock(), ollamaOptions);
+        CompletableFuture<IAGenerateResponse> load = contextCache.getOrLoad(cacheKey, () -> {
+            try {
+                IAGenerateRequest request = new IAGenerateRequest(modelName, initialPrompt, ollamaOptions).withKeepAlive(keepAlive);
+                byte[] jsonBody = objectMapper.writeValueAsBytes(request);
+                logRequestBody("init", sessionId, jsonBody);
+                return makeRequest(sessionId, Priority.INITIALIZATION, jsonBody);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+
+        CompletableFuture<Integer> future = load.handle((response, ex) -> {
+            if (ex != null) {
+                throw initializationFailure(sessionId, ex);
+            }
+            registerSession(sessionId, catalog, built, cacheKey, response.context(), response.context());
+            if (built.level() != PromptBuilder.CompactionLevel.FULL) {
+                logger.info("Session {}: compacted prompt_eval_count {} (uncompacted estimate ~{}).",
+                        sessionId, response.promptEvalCount(), built.estimatedTokensBefore());
+            }
+            logger.info("Session {} initialized and model context loaded (context cache: {} hits, {} misses, {} coalesced).",
+                    sessionId, contextCache.getHits(), contextCache.getMisses(), contextCache.getCoalesced());
+            return response.promptEvalCount();
+        });
+
+        pendingRequests.put(sessionId, future);
+        future.whenComplete((count, ex) -> {
+            pendingRequests.remove(sessionId, future);
+            if (future.isCancelled()) {
+                load.cancel(true); // Propaga o cancelamento até a troca HTTP.
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Resumes a session from the snapshot persisted for the client/agent pair, unless the agent's plans, the prompt
+     * template, model options or prompt compaction changed since it was taken; either way, later contexts of this
+     * session are persisted under the pair. There is one snapshot per pair: when several sessions of the same pair run
+     * at once, each save replaces the previous one and the next resume continues from whichever session saved last.
+     */
+    @Override
+    public boolean resumeUserSession(String sessionId, String clientKey, PlanCatalog agentPlans) {
+        if (!snapshotStore.isEnabled()) {
+            return false;
+        }
+        String snapshotKey = ContextSnapshotStore.keyOf(clientKey, modelName);
+        sessionSnapshotKeys.put(sessionId, snapshotKey);
+        Optional<ContextSnapshot> snapshot = snapshotStore.load(snapshotKey);
+        if (snapshot.isEmpty()) {
+            return false;
+        }
+        if (!snapshot.get().plansContent().equals(agentPlans.getPlansContent())) {
+            logger.info("Session {}: the agent's plans changed since the context for {} was persisted; discarding it.", sessionId, snapshotKey);
+            snapshotStore.remove(snapshotKey);
+            return false;
+        }
+        String promptTemplate;
+        try {
+            promptTemplate = FileUtil.readResourceAsString(contextResource);
+        } catch (IOException e) {
+            logger.error("Failed to read the prompt template to resume session {}.", sessionId, e);
+            return false;
+        }
+        PromptBuilder.BuiltPrompt built = promptBuilder.build(promptTemplate, agentPlans);
+        String promptKey = PromptContextCache.keyOf(modelName, promptTemplate, built.plansBlock(), ollamaOptions);
+        if (!promptKey.equals(snapshot.get().promptKey())) {
+            logger.info("Session {}: persisted context for {} was built from a different initial prompt; discarding it.", sessionId, snapshotKey);
+            snapshotStore.remove(snapshotKey);
+            return false;
+        }
+        registerSession(sessionId, agentPlans, built, promptKey, snapshot.get().baseContext(), snapshot.get().context());
+        logger.info("Session {} resumed from the persisted context for {} ({} context tokens, saved {} ms ago).", sessionId, snapshotKey,
+                snapshot.get().context().length, System.currentTimeMillis() - snapshot.get().savedAtMillis());
+        return true;
+    }
+
+    /** Stores everything a translation needs about an initialized (or resumed) session. */
+    private void registerSession(String sessionId, PlanCatalog catalog, PromptBuilder.BuiltPrompt built, String promptKey,
+                                 long[] baseContext, long[] context) {
+        sessionBaseContexts.put(sessionId, baseContext);
+        activeSessions.put(sessionId, context);
+        sessionPlansFingerprints.put(sessionId, TranslationCache.fingerprint(catalog.getPlansContent()));
+        sessionCatalogs.put(sessionId, catalog);
+        sessionPromptKeys.put(sessionId, promptKey);
+        if (!built.omittedPlans().isEmpty()) {
+            sessionOmittedPlans.put(sessionId, built.omittedPlans());
+        }
+        saveSnapshot(sessionId, context);
+    }
+
+    /** Queues the session context to be persisted when the client asked for it to be resumable. */
+    private void saveSnapshot(String sessionId, long[] context) {
+        String snapshotKey = sessionSnapshotKeys.get(sessionId);
+        PlanCatalog catalog = sessionCatalogs.get(sessionId);
+        String promptKey = sessionPromptKeys.get(sessionId);
+        long[] baseContext = sessionBaseContexts.get(sessionId);
+        if (snapshotKey != null && catalog != null && promptKey != null && baseContext != null && context != null) {
+            snapshotStore.save(new ContextSnapshot(snapshotKey, promptKey, catalog.getPlansContent(), baseContext, context,
+                    System.currentTimeMillis()));
+        }
+    }
+
+    /** Maps an initialization error to the exception reported to the controller. */
+    private RuntimeException initializationFailure(String sessionId, Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof CancellationException cancelled) {
+            return cancelled;
+        }
+        if (cause instanceof IOException) {
+            logger.error("Failed to initialize user session {} due to a network error: {}", sessionId, cause.getMessage());
+            return new RuntimeException("Cannot connect to AI model. Please check network connectivity and firewall settings.", cause);
+        }
+        if (cause instanceof RejectedExecutionException rejected) {
+            return rejected;
+        }
+        logger.error("Failed to initialize user session {}.", sessionId, cause);
+        return new RuntimeException("An unexpected error occurred during AI session initialization.", cause);
+    }
+
+    /** The body is only decoded to text when debug logging is on; it can hold thousands of context tokens. */
+    private void logRequestBody(String kind, String sessionId, byte[] jsonBody) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Ollama {} request for session {}: {}", kind, sessionId, new String(jsonBody, StandardCharsets.UTF_8));
+        }
+    }
+
+    /** Queues a POST request to the Ollama API behind the admission scheduler; only interactive calls may be hedged. */
+    private CompletableFuture<IAGenerateResponse> makeRequest(String sessionId, Priority priority, byte[] jsonBody) {
+        return observe(priority, scheduler.submit(sessionId, priority,
+                () -> endpointPool.execute(sessionId, priority == Priority.INTERACTIVE, uri -> makeRequest(uri, jsonBody))));
+    }
+
+    /** Times an Ollama call (admission wait included) and counts the prompt tokens it evaluated. */
+    private CompletableFuture<IAGenerateResponse> observe(Priority priority, CompletableFuture<IAGenerateResponse> response) {
+        lastModelRequestAt.set(System.nanoTime());
+        response.whenComplete((result, ex) -> {
+            if (result != null) {
+                metrics.countPromptTokens(priority == Priority.INITIALIZATION, result.promptEvalCount());
+                checkColdLoad(result, "request");
+            }
+        });
+        return metrics.time(GatewayMetrics.Stage.OLLAMA_REQUEST, response);
+    }
+
+    /** A load_duration above the threshold means Ollama had evicted the model and loaded it again for this call. */
+    private void checkColdLoad(IAGenerateResponse response, String during) {
+        long loadMillis = TimeUnit.NANOSECONDS.toMillis(response.loadDuration());
+        if (response.loadDuration() > 0 && loadMillis >= coldLoadThresholdMillis) {
+            metrics.recordColdLoad(response.loadDuration());
+            logger.warn("Ollama loaded model {} from scratch during {} ({} ms).", modelName, during, loadMillis);
+        }
+    }
+
+    //? ----------- Keep-alive -----------
+
+    /** Loads the model on every endpoint as soon as the application is up and starts the keeper. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (warmUpOnStartup) {
+            preloadModel("warm-up");
+        }
+        if (keepAliveRefreshMillis > 0) {
+            keeper = maintenanceScheduler.scheduleWithFixedDelay(this::keepModelResident,
+                    keepAliveRefreshMillis, keepAliveRefreshMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stopKeeper() {
+        ScheduledFuture<?> current = keeper;
+        if (current != null) {
+            current.cancel(false);
+        }
+    }
+
+    /**
+     * Refreshes keep_alive while sessions exist but have been quiet for a refresh interval; every model request
+     * already refreshes it. With no sessions the keeper stays silent and Ollama unloads the model when keep_alive runs out.
+     * Runs on the shared maintenance thread, so it only starts asynchronous requests and never waits for them; a
+     * refresh still in flight (e.g. a slow cold load) makes it skip the tick instead of piling up another one.
+     */
+    private void keepModelResident() {
+        if (activeSessions.isEmpty() || preloadsInFlight.get() > 0) {
+            return;
+        }
+        long quietMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastModelRequestAt.get());
+        if (quietMillis >= keepAliveRefreshMillis) {
+            preloadModel("keep-alive");
+        }
+    }
+
+    /** Sends a prompt-less request to every endpoint, which loads the model if needed and restarts its keep_alive timer. */
+    private void preloadModel(String reason) {
+        byte[] jsonBody;
+        try {
+            jsonBody = objectMapper.writeValueAsBytes(IAGenerateRequest.preload(modelName, keepAlive));
+        } catch (IOException e) {
+            logger.error("Failed to build {} request for model {}", reason, modelName, e);
+            return;
+        }
+        lastModelRequestAt.set(System.nanoTime());
+        // Fora do escalonador de admissão: não avalia prompt e não deve esperar atrás das traduções.
+        for (OllamaEndpointPool.Endpoint endpoint : endpointPool.getEndpoints()) {
+            preloadsInFlight.incrementAndGet();
+            makeRequest(endpoint.getUri(), jsonBody).whenComplete((response, ex) -> {
+                preloadsInFlight.decrementAndGet();
+                if (ex != null) {
+                    logger.warn("Model {} {} on {} failed: {}", modelName, reason, endpoint, ex.getMessage());
+                } else {
+                    checkColdLoad(response, reason);
+                    logger.debug("Model {} {} on {} done (keep_alive {}).", modelName, reason, endpoint, keepAlive);
+                }
+            });
+        }
+    }
+
+    /** Makes a POST request to the given Ollama endpoint with the given JSON body. */
+    private CompletableFuture<IAGenerateResponse> makeRequest(URI uri, byte[] jsonBody) {
+        HttpRequest request = buildRequest(uri, jsonBody);
 
         logger.info("Sending request to Ollama...");
-        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(httpResponse -> {
+        CompletableFuture<HttpResponse<IAGenerateResponse>> exchange = client.sendAsync(request, this::responseBodyHandler);
+        CompletableFuture<IAGenerateResponse> result = exchange.thenApply(httpResponse -> {
             logger.info("Received response from Ollama.");
             if (httpResponse.statusCode() >= 200 && httpResponse.statusCode() < 300) {
-                try {
-                    return objectMapper.readValue(httpResponse.body(), IAGenerateResponse.class);
-                } catch (IOException e) {
-                    logger.error("Failed to parse Ollama response", e);
-                    throw new CompletionException(e);
-                }
-            } else {
-                logger.error("Ollama API returned error. Status: {}, Body: {}", httpResponse.statusCode(), httpResponse.body());
-                throw new CompletionException(new IOException("Request to Ollama API failed with status code " + httpResponse.statusCode()));
+                return httpResponse.body();
             }
+            throw new CompletionException(new IOException("Request to Ollama API failed with status code " + httpResponse.statusCode()));
         });
+        // Cancelar o resultado derivado não cancela a troca HTTP por conta própria.
+        result.whenComplete((response, ex) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /** Makes a streamed POST request to the Ollama API, feeding every NDJSON line to the given subscriber. */
+    private CompletableFuture<IAGenerateResponse> makeStreamingRequest(URI uri, byte[] jsonBody, OllamaStreamSubscriber subscriber) {
+        HttpRequest request = buildRequest(uri, jsonBody);
+
+        logger.info("Sending streaming request to Ollama...");
+        client.sendAsync(request, responseInfo -> HttpResponse.BodySubscribers.fromLineSubscriber(subscriber, s -> null, StandardCharsets.UTF_8, null))
+            .whenComplete((httpResponse, ex) -> {
+                if (ex != null) {
+                    subscriber.fail(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                } else if (httpResponse.statusCode() < 200 || httpResponse.statusCode() >= 300) {
+                    logger.error("Ollama API returned error on streaming request. Status: {}", httpResponse.statusCode());
+                    subscriber.fail(new IOException("Request to Ollama API failed with status code " + httpResponse.statusCode()));
+                }
+            });
+        return subscriber.getResult();
+    }
+
+    /** Successful bodies are parsed as they arrive; error bodies are only read to be logged. */
+    private HttpResponse.BodySubscriber<IAGenerateResponse> responseBodyHandler(HttpResponse.ResponseInfo responseInfo) {
+        if (responseInfo.statusCode() >= 200 && responseInfo.statusCode() < 300) {
+            return new OllamaResponseSubscriber(objectMapper.getFactory());
+        }
+        return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8), body -> {
+            logger.error("Ollama API returned error. Status: {}, Body: {}", responseInfo.statusCode(), body);
+            return null;
+        });
+    }
+
+    private HttpRequest buildRequest(URI uri, byte[] jsonBody) {
+        return HttpRequest.newBuilder()
+                .uri(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(jsonBody))
+                .timeout(Duration.ofMinutes(10))
+                .build();
     }
 
 }
\ No newline at end of file
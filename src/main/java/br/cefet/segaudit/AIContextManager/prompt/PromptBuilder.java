@@ -0,0 +1,190 @@
+package br.cefet.segaudit.AIContextManager.prompt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import br.cefet.segaudit.model.classes.PlanCatalog;
+import br.cefet.segaudit.model.classes.PlanCatalog.PlanEntry;
+
+/**
+ * Renders the initialization prompt so that the template plus the agent plans fit a token budget.
+ * Compaction is applied in steps, stopping at the first one that fits: collapse whitespace and repeated
+ * text, shorten descriptions, keep only signatures, and finally keep only as many signatures as fit.
+ * Plans left out of the prompt are offered again per utterance through {@link #relevantPlansHint}.
+ */
+@Component
+public class PromptBuilder {
+
+    public static final String PLANS_PLACEHOLDER = "##PLANOS_DO_AGENTE##";
+
+    /** Rough chars-per-token ratio for Gemma-style tokenizers on mixed English/Portuguese text. */
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final String PLANS_REFERENCE = "the REAL AGENT PLANS list";
+    /** Words too common to say anything about which plan an utterance refers to. */
+    private static final Set<String> STOP_WORDS = Set.of(
+        "the", "and", "then", "with", "for", "from", "into", "not", "drone",
+        "com", "sem", "para", "por", "que", "uma", "dos", "das", "nos", "nas", "ele", "ela", "nao", "agente");
+
+    public enum CompactionLevel { FULL, COLLAPSED, SHORT_DESCRIPTIONS, SIGNATURES, SELECTED }
+
+    /** The rendered prompt and what it took to fit it into the budget. */
+    public record BuiltPrompt(String prompt, String plansBlock, CompactionLevel level,
+                              int estimatedTokensBefore, int estimatedTokensAfter, List<PlanEntry> omittedPlans) {
+    }
+
+    private final int tokenBudget;
+    private final int shortDescriptionWords;
+
+    public PromptBuilder(@Value("${ollama.prompt.token-budget:0}") int tokenBudget,
+                         @Value("${ollama.prompt.short-description-words:8}") int shortDescriptionWords) {
+        this.tokenBudget = tokenBudget;
+        this.shortDescriptionWords = shortDescriptionWords;
+    }
+
+    /** Approximate token count of a text, used only to pick the compaction level. */
+    public static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    public int getTokenBudget() {
+        return tokenBudget;
+    }
+
+    /** Builds the initialization prompt; a budget of zero or less disables compaction. */
+    public BuiltPrompt build(String template, PlanCatalog catalog) {
+        String plansContent = catalog.getPlansContent();
+        String fullPrompt = template.replace(PLANS_PLACEHOLDER, plansContent);
+        int before = estimateTokens(fullPrompt);
+        if (tokenBudget <= 0 || before <= tokenBudget || catalog.isEmpty()) {
+            return new BuiltPrompt(fullPrompt, plansContent, CompactionLevel.FULL, before, before, List.of());
+        }
+
+        // A partir daqui os planos aparecem uma única vez; as outras menções apontam para a lista.
+        String compactTemplate = withSinglePlansBlock(template);
+        int templateTokens = estimateTokens(compactTemplate.replace(PLANS_PLACEHOLDER, ""));
+
+        String collapsed = renderWithDescriptions(catalog.getEntries(), Integer.MAX_VALUE);
+        if (templateTokens + estimateTokens(collapsed) <= tokenBudget) {
+            return built(compactTemplate, collapsed, CompactionLevel.COLLAPSED, before, List.of());
+        }
+        String shortened = renderWithDescriptions(catalog.getEntries(), shortDescriptionWords);
+        if (templateTokens + estimateTokens(shortened) <= tokenBudget) {
+            return built(compactTemplate, shortened, CompactionLevel.SHORT_DESCRIPTIONS, before, List.of());
+        }
+        String signatures = renderSignatures(catalog.getEntries());
+        if (templateTokens + estimateTokens(signatures) <= tokenBudget) {
+            return built(compactTemplate, signatures, CompactionLevel.SIGNATURES, before, List.of());
+        }
+
+        List<PlanEntry> kept = new ArrayList<>();
+        List<PlanEntry> omitted = new ArrayList<>();
+        int used = templateTokens;
+        for (PlanEntry entry : catalog.getEntries()) {
+            int cost = estimateTokens(entry.signature() + ", ");
+            if (omitted.isEmpty() && used + cost <= tokenBudget) {
+                kept.add(entry);
+                used += cost;
+            } else {
+                omitted.add(entry);
+            }
+        }
+        return built(compactTemplate, renderSignatures(kept), CompactionLevel.SELECTED, before, omitted);
+    }
+
+    /**
+     * Lists the omitted plans that share a keyword with the utterance, as a line to prepend to it.
+     * Returns an empty string when nothing was omitted or nothing is relevant.
+     */
+    public String relevantPlansHint(List<PlanEntry> omittedPlans, String utterance) {
+        if (omittedPlans == null || omittedPlans.isEmpty() || utterance == null) {
+            return "";
+        }
+        Set<String> words = new HashSet<>(PlanCatalog.keywordsOf(utterance));
+        words.removeIf(word -> word.length() < 3 || STOP_WORDS.contains(word));
+        List<String> relevant = new ArrayList<>();
+        for (PlanEntry entry : omittedPlans) {
+            Set<String> keywords = new HashSet<>(PlanCatalog.keywordsOf(entry.description()));
+            keywords.addAll(PlanCatalog.keywordsOf(entry.name().replaceAll("([a-z])([A-Z])", "$1 $2")));
+            keywords.retainAll(words);
+            if (!keywords.isEmpty()) {
+                relevant.add(entry.signature());
+            }
+        }
+        return relevant.isEmpty() ? "" : "Additional agent plans: " + String.join(", ", relevant) + "\n";
+    }
+
+    private BuiltPrompt built(String compactTemplate, String plansBlock, CompactionLevel level, int before, List<PlanEntry> omitted) {
+        String prompt = compactTemplate.replace(PLANS_PLACEHOLDER, plansBlock);
+        return new BuiltPrompt(prompt, plansBlock, level, before, estimateTokens(prompt), List.copyOf(omitted));
+    }
+
+    /**
+     * Keeps the placeholder that is the list itself and turns the other ones into a short reference. The list is
+     * the placeholder alone on its line (e.g. under "REAL AGENT PLANS" in the shipped template), not one quoted
+     * inside a rule; without such a line, the last placeholder is kept.
+     */
+    private static String withSinglePlansBlock(String template) {
+        int kept = -1;
+        for (int at = template.indexOf(PLANS_PLACEHOLDER); at != -1; at = template.indexOf(PLANS_PLACEHOLDER, at + 1)) {
+            if (kept == -1 || !isOwnLine(template, kept) || isOwnLine(template, at)) {
+                kept = at;
+            }
+        }
+        if (kept == -1) {
+            return template;
+        }
+        int afterKept = kept + PLANS_PLACEHOLDER.length();
+        return template.substring(0, kept).replace(PLANS_PLACEHOLDER, PLANS_REFERENCE)
+                + PLANS_PLACEHOLDER
+                + template.substring(afterKept).replace(PLANS_PLACEHOLDER, PLANS_REFERENCE);
+    }
+
+    private static boolean isOwnLine(String template, int placeholderAt) {
+        int lineStart = template.lastIndexOf('\n', placeholderAt) + 1;
+        int lineEnd = template.indexOf('\n', placeholderAt);
+        String line = template.substring(lineStart, lineEnd == -1 ? template.length() : lineEnd);
+        return line.strip().equals(PLANS_PLACEHOLDER);
+    }
+
+    /** One plan per line, dropping descriptions that repeat an earlier one or say nothing beyond the plan name. */
+    private static String renderWithDescriptions(List<PlanEntry> entries, int maxWords) {
+        Set<String> seenDescriptions = new LinkedHashSet<>();
+        StringBuilder sb = new StringBuilder();
+        for (PlanEntry entry : entries) {
+            String description = entry.description().replaceAll("\\s+", " ").trim();
+            String normalized = String.join(" ", PlanCatalog.keywordsOf(description));
+            boolean redundant = normalized.isEmpty()
+                    || normalized.replace(" ", "").equals(entry.name().toLowerCase(Locale.ROOT))
+                    || !seenDescriptions.add(normalized);
+            if (!redundant) {
+                sb.append("/**@Description ").append(truncate(description, maxWords)).append("*/ ");
+            }
+            sb.append(entry.signature()).append('\n');
+        }
+        return sb.toString().trim();
+    }
+
+    private static String renderSignatures(List<PlanEntry> entries) {
+        List<String> signatures = new ArrayList<>(entries.size());
+        for (PlanEntry entry : entries) {
+            signatures.add(entry.signature());
+        }
+        return String.join(", ", signatures);
+    }
+
+    private static String truncate(String description, int maxWords) {
+        String[] words = description.split(" ");
+        if (words.length <= maxWords) {
+            return description;
+        }
+        return String.join(" ", Arrays.copyOf(words, maxWords)) + "...";
+    }
+}
@@ -0,0 +1,165 @@
+package br.cefet.segaudit.AIContextManager.rules;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import br.cefet.segaudit.AIContextManager.cache.TranslationCache;
+import br.cefet.segaudit.model.classes.PlanCatalog;
+import br.cefet.segaudit.model.classes.PlanCatalog.PlanEntry;
+import br.cefet.segaudit.model.interfaces.IPreTranslator;
+
+/**
+ * Deterministic fast path for simple utterances such as "sobe 3" or "land".
+ * Every clause must map to exactly one plan through a known verb or direction word, with the
+ * number of numeric arguments matching the plan arity; otherwise the utterance goes to the model.
+ */
+@Component
+public class RuleBasedTranslator implements IPreTranslator {
+
+    private static final Set<String> CONNECTORS = Set.of("e", "and", "then", "depois", "entao", "after", "apos");
+    private static final Set<String> NEGATIONS = Set.of("nao", "not", "dont", "never", "nunca", "nem");
+    private static final String SEPARATOR = ",";
+    /** Longer numbers may not fit in an int; the model decides what to make of them. */
+    private static final int MAX_DIGITS = 9;
+
+    /** Concept name (matched against plan names) to the words that express it. */
+    private static final Map<String, List<String>> CONCEPTS = Map.of(
+        "takeoff", List.of("takeoff", "decola", "decole", "decolar", "levanta", "levante"),
+        "land", List.of("land", "pousa", "pouse", "pousar", "aterrissa", "aterrisse", "aterrissar", "aterrisa", "aterrise"),
+        "up", List.of("up", "sobe", "suba", "subir", "ascend", "climb", "rise"),
+        "down", List.of("down", "desce", "desca", "descer", "descend", "baixa", "abaixe"),
+        "left", List.of("left", "esquerda"),
+        "right", List.of("right", "direita"),
+        "forward", List.of("forward", "frente", "avance", "avanca", "ahead", "adiante"),
+        "backward", List.of("backward", "backwards", "back", "tras", "recue", "recua"),
+        "turnoff", List.of("turnoff", "desliga", "desligue", "desligar", "shutdown"),
+        "turnon", List.of("turnon", "liga", "ligue", "ligar"));
+
+    private static final Map<String, Integer> NUMBER_WORDS = Map.ofEntries(
+        Map.entry("um", 1), Map.entry("uma", 1), Map.entry("one", 1),
+        Map.entry("dois", 2), Map.entry("duas", 2), Map.entry("two", 2),
+        Map.entry("tres", 3), Map.entry("three", 3),
+        Map.entry("quatro", 4), Map.entry("four", 4),
+        Map.entry("cinco", 5), Map.entry("five", 5),
+        Map.entry("seis", 6), Map.entry("six", 6),
+        Map.entry("sete", 7), Map.entry("seven", 7),
+        Map.entry("oito", 8), Map.entry("eight", 8),
+        Map.entry("nove", 9), Map.entry("nine", 9),
+        Map.entry("dez", 10), Map.entry("ten", 10));
+
+    private static final Map<String, String> WORD_TO_CONCEPT = new HashMap<>();
+    static {
+        CONCEPTS.forEach((concept, words) -> words.forEach(word -> WORD_TO_CONCEPT.put(word, concept)));
+    }
+
+    private final boolean enabled;
+
+    public RuleBasedTranslator(@Value("${translation.rules.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Optional<List<String>> tryTranslate(String utterance, PlanCatalog catalog) {
+        if (!enabled || utterance == null || catalog == null || catalog.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<String> commands = new ArrayList<>();
+        for (List<String> clause : splitClauses(tokenize(utterance))) {
+            String command = translateClause(clause, catalog);
+            if (command == null) {
+                return Optional.empty(); // Qualquer cláusula incerta devolve a frase inteira ao modelo.
+            }
+            commands.add(command);
+        }
+        return commands.isEmpty() ? Optional.empty() : Optional.of(commands);
+    }
+
+    private String translateClause(List<String> clause, PlanCatalog catalog) {
+        Set<String> concepts = new LinkedHashSet<>();
+        List<Integer> numbers = new ArrayList<>();
+        for (int i = 0; i < clause.size(); i++) {
+            String token = clause.get(i);
+            if (NEGATIONS.contains(token)) {
+                return null;
+            }
+            // "take off" / "turn off" / "turn on" chegam como duas palavras.
+            if (i + 1 < clause.size() && WORD_TO_CONCEPT.containsKey(token + clause.get(i + 1))) {
+                concepts.add(WORD_TO_CONCEPT.get(token + clause.get(i + 1)));
+                i++;
+                continue;
+            }
+            if (WORD_TO_CONCEPT.containsKey(token)) {
+                concepts.add(WORD_TO_CONCEPT.get(token));
+            } else if (token.chars().allMatch(Character::isDigit)) {
+                if (token.length() > MAX_DIGITS) {
+                    return null;
+                }
+                numbers.add(Integer.parseInt(token));
+            } else if (NUMBER_WORDS.containsKey(token)) {
+                numbers.add(NUMBER_WORDS.get(token));
+            }
+        }
+        if (concepts.size() != 1) {
+            return null;
+        }
+
+        PlanEntry plan = findPlan(concepts.iterator().next(), catalog);
+        if (plan == null || plan.arity() != numbers.size() || plan.arity() > 1) {
+            return null;
+        }
+        return plan.arity() == 0 ? plan.name() : plan.name() + "(" + numbers.get(0) + ")";
+    }
+
+    /** A plan whose name is the concept wins; otherwise exactly one plan must mention the concept in its description. */
+    private PlanEntry findPlan(String concept, PlanCatalog catalog) {
+        PlanEntry byName = catalog.findIgnoreCase(concept);
+        if (byName != null) {
+            return byName;
+        }
+
+        Set<PlanEntry> byDescription = new LinkedHashSet<>();
+        for (String word : CONCEPTS.get(concept)) {
+            byDescription.addAll(catalog.findByKeyword(word));
+        }
+        return byDescription.size() == 1 ? byDescription.iterator().next() : null;
+    }
+
+    private static List<String> tokenize(String text) {
+        String normalized = TranslationCache.normalize(text).replaceAll("[,;.!?:]", " " + SEPARATOR + " ");
+        List<String> tokens = new ArrayList<>();
+        for (String token : normalized.split("[^a-z0-9,]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static List<List<String>> splitClauses(List<String> tokens) {
+        List<List<String>> clauses = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        for (String token : tokens) {
+            if (token.equals(SEPARATOR) || CONNECTORS.contains(token)) {
+                if (!current.isEmpty()) {
+                    clauses.add(current);
+                    current = new ArrayList<>();
+                }
+            } else {
+                current.add(token);
+            }
+        }
+        if (!current.isEmpty()) {
+            clauses.add(current);
+        }
+        return clauses;
+    }
+}
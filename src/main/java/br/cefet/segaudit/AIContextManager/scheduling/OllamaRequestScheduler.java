@@ -0,0 +1,334 @@
+package br.cefet.segaudit.AIContextManager.scheduling;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import br.cefet.segaudit.AIContextManager.balancing.OllamaEndpointPool;
+
+/**
+ * Admission control in front of the Ollama HTTP client. {@code ollama.scheduler.max-in-flight} is per endpoint:
+ * at most that many generations run at once for each endpoint the {@link OllamaEndpointPool} currently considers
+ * available (at least one), so adding endpoints adds slots and an ejected endpoint takes its slots with it.
+ * Session affinity decides which endpoint a generation goes to, so one endpoint may briefly hold more than its share.
+ * The rest wait in a bounded queue that is served by priority (interactive translations before session
+ * initialization) and, within a priority, round-robin across sessions so a chatty session cannot starve others.
+ * When the queue is full new requests fail immediately with a {@link RejectedExecutionException}, except that
+ * interactive and initialization requests first displace the oldest waiting speculative one, so drafts never
+ * cost a real request its place.
+ */
+@Component
+public class OllamaRequestScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaRequestScheduler.class);
+
+    /** Declaration order is service order; speculative translations of draft text only use otherwise idle slots. */
+    public enum Priority { INTERACTIVE, INITIALIZATION, SPECULATIVE }
+
+    private final int maxInFlightPerEndpoint;
+    private final IntSupplier availableEndpoints;
+    private final int queueCapacity;
+
+    private final Object lock = new Object();
+    private final Map<Priority, SessionRing> queues = new EnumMap<>(Priority.class);
+    private int inFlight;
+    private int queued;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    @Autowired
+    public OllamaRequestScheduler(@Value("${ollama.scheduler.max-in-flight:2}") int maxInFlightPerEndpoint,
+                                  @Value("${ollama.scheduler.queue-capacity:64}") int queueCapacity,
+                                  OllamaEndpointPool endpointPool) {
+        this(maxInFlightPerEndpoint, queueCapacity, endpointPool::getAvailableCount);
+    }
+
+    /** A scheduler for a single endpoint, for components built outside Spring (tests, benchmarks). */
+    public OllamaRequestScheduler(int maxInFlight, int queueCapacity) {
+        this(maxInFlight, queueCapacity, () -> 1);
+    }
+
+    public OllamaRequestScheduler(int maxInFlightPerEndpoint, int queueCapacity, IntSupplier availableEndpoints) {
+        if (maxInFlightPerEndpoint < 1) {
+            throw new IllegalArgumentException("ollama.scheduler.max-in-flight must be at least 1");
+        }
+        this.maxInFlightPerEndpoint = maxInFlightPerEndpoint;
+        this.availableEndpoints = availableEndpoints;
+        this.queueCapacity = queueCapacity;
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new SessionRing());
+        }
+    }
+
+    /**
+     * Runs {@code call} when a slot is free. The returned future completes with the call's result; cancelling it
+     * removes a waiting request from the queue, or cancels the underlying call if it already started.
+     */
+    public <T> CompletableFuture<T> submit(String sessionId, Priority priority, Supplier<CompletableFuture<T>> call) {
+        Task<T> task = new Task<>(sessionId, priority, call);
+        Task<?> displaced = null;
+        List<Task<?>> toStart;
+        boolean accepted = true;
+        synchronized (lock) {
+            // Vagas podem abrir sem nenhum término (um endpoint voltou): a fila não espera um release().
+            toStart = drainLocked();
+            if (inFlight < maxInFlight() && queued == 0) {
+                inFlight++;
+                toStart.add(task);
+            } else {
+                if (queued >= queueCapacity && priority != Priority.SPECULATIVE) {
+                    displaced = queues.get(Priority.SPECULATIVE).pollOldest();
+                    if (displaced != null) {
+                        queued--;
+                    }
+                }
+                if (queued >= queueCapacity) {
+                    accepted = false;
+                    rejected.incrementAndGet();
+                    logger.warn("Ollama queue full ({} waiting, {} running); rejecting {} request for session {}.",
+                            queued, inFlight, priority, sessionId);
+                } else {
+                    queues.get(priority).add(task);
+                    queued++;
+                    task.result.whenComplete((r, ex) -> {
+                        if (task.result.isCancelled()) {
+                            dequeue(task);
+                        }
+                    });
+                }
+            }
+        }
+        if (displaced != null) {
+            rejected.incrementAndGet();
+            logger.debug("Ollama queue full; dropping the speculative request of session {} for a {} request.",
+                    displaced.sessionId, priority);
+            displaced.result.completeExceptionally(new RejectedExecutionException(
+                    "Speculative request displaced by " + priority + " work."));
+        }
+        toStart.forEach(this::start);
+        if (!accepted) {
+            task.result.completeExceptionally(new RejectedExecutionException(
+                    "AI model is overloaded (" + queueCapacity + " requests waiting). Please try again later."));
+        }
+        return task.result;
+    }
+
+    /** Slots for the endpoints available right now; with every endpoint ejected the pool still uses one. */
+    private int maxInFlight() {
+        return maxInFlightPerEndpoint * Math.max(1, availableEndpoints.getAsInt());
+    }
+
+    /** Removes a cancelled task that is still waiting. */
+    private void dequeue(Task<?> task) {
+        synchronized (lock) {
+            if (queues.get(task.priority).remove(task)) {
+                queued--;
+            }
+        }
+    }
+
+    private <T> void start(Task<T> task) {
+        long waited = System.nanoTime() - task.enqueuedAt;
+        admitted.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        if (waited > TimeUnit.SECONDS.toNanos(1)) {
+            logger.info("{} request for session {} waited {} ms for an Ollama slot.",
+                    task.priority, task.sessionId, TimeUnit.NANOSECONDS.toMillis(waited));
+        }
+
+        CompletableFuture<T> call;
+        try {
+            call = task.call.get();
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<T> running = call;
+        running.whenComplete((value, ex) -> {
+            if (ex != null) {
+                task.result.completeExceptionally(ex);
+            } else {
+                task.result.complete(value);
+            }
+            release();
+        });
+        // Cancelar o resultado cancela também a chamada em andamento.
+        task.result.whenComplete((value, ex) -> {
+            if (task.result.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+    }
+
+    /** Frees a slot and starts as many waiting tasks as there are free slots. */
+    private void release() {
+        List<Task<?>> toStart;
+        synchronized (lock) {
+            inFlight--;
+            toStart = drainLocked();
+        }
+        toStart.forEach(this::start);
+    }
+
+    /** Takes waiting tasks, by priority, for every free slot; the caller starts them outside the lock. */
+    private List<Task<?>> drainLocked() {
+        List<Task<?>> toStart = new ArrayList<>();
+        int maxInFlight = maxInFlight();
+        while (inFlight < maxInFlight && queued > 0) {
+            Task<?> next = null;
+            for (Priority priority : Priority.values()) {
+                next = queues.get(priority).poll();
+                if (next != null) {
+                    break;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            queued--;
+            if (next.result.isDone()) {
+                continue;
+            }
+            inFlight++;
+            toStart.add(next);
+        }
+        return toStart;
+    }
+
+    /** Number of requests waiting for a slot. */
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return queued;
+        }
+    }
+
+    /** Number of waiting requests of the given priority. */
+    public int getQueueDepth(Priority priority) {
+        synchronized (lock) {
+            return queues.get(priority).size();
+        }
+    }
+
+    public int getInFlight() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    /** Current limit on running requests, scaled by the endpoints available now. */
+    public int getMaxInFlight() {
+        return maxInFlight();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /** Mean time admitted requests spent waiting for a slot. */
+    public double getAverageWaitMillis() {
+        long count = admitted.get();
+        return count == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    private static final class Task<T> {
+        final String sessionId;
+        final Priority priority;
+        final Supplier<CompletableFuture<T>> call;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final long enqueuedAt = System.nanoTime();
+
+        Task(String sessionId, Priority priority, Supplier<CompletableFuture<T>> call) {
+            this.sessionId = sessionId;
+            this.priority = priority;
+            this.call = call;
+        }
+    }
+
+    /** Per-session FIFO queues served round-robin: each poll takes one task from the next session in turn. */
+    private static final class SessionRing {
+        private final Map<String, ArrayDeque<Task<?>>> bySession = new HashMap<>();
+        private final ArrayDeque<String> turn = new ArrayDeque<>();
+        private int size;
+
+        void add(Task<?> task) {
+            ArrayDeque<Task<?>> sessionQueue = bySession.get(task.sessionId);
+            if (sessionQueue == null) {
+                sessionQueue = new ArrayDeque<>();
+                bySession.put(task.sessionId, sessionQueue);
+                turn.addLast(task.sessionId);
+            }
+            sessionQueue.addLast(task);
+            size++;
+        }
+
+        Task<?> poll() {
+            String sessionId = turn.pollFirst();
+            if (sessionId == null) {
+                return null;
+            }
+            ArrayDeque<Task<?>> sessionQueue = bySession.get(sessionId);
+            Task<?> task = sessionQueue.pollFirst();
+            if (sessionQueue.isEmpty()) {
+                bySession.remove(sessionId);
+            } else {
+                turn.addLast(sessionId);
+            }
+            size--;
+            return task;
+        }
+
+        /** Removes the task that has waited longest; each session queue is FIFO, so it is one of the heads. */
+        Task<?> pollOldest() {
+            Task<?> oldest = null;
+            for (ArrayDeque<Task<?>> sessionQueue : bySession.values()) {
+                Task<?> head = sessionQueue.peekFirst();
+                if (oldest == null || head.enqueuedAt - oldest.enqueuedAt < 0) {
+                    oldest = head;
+                }
+            }
+            if (oldest != null) {
+                remove(oldest);
+            }
+            return oldest;
+        }
+
+        boolean remove(Task<?> task) {
+            ArrayDeque<Task<?>> sessionQueue = bySession.get(task.sessionId);
+            if (sessionQueue == null || !sessionQueue.remove(task)) {
+                return false;
+            }
+            if (sessionQueue.isEmpty()) {
+                bySession.remove(task.sessionId);
+                turn.remove(task.sessionId);
+            }
+            size--;
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
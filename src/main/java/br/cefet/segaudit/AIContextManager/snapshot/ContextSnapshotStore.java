@@ -0,0 +1,547 @@
+package br.cefet.segaudit.AIContextManager.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import br.cefet.segaudit.model.classes.ContextSnapshot;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Disk store of session contexts, so a reconnecting client or a restarted node can resume a session without
+ * fetching the agent's plans and evaluating the initial prompt again.
+ * <p>
+ * Snapshots are appended to segment files; an in-memory index maps each key to its latest record and is rebuilt
+ * at startup from the record headers alone, so contexts are only read (memory-mapped) when a session resumes.
+ * Writes are coalesced per key and flushed in the background. Sealed segments that are mostly superseded are
+ * compacted into the active one, and the oldest segments are dropped once the store exceeds its disk budget.
+ * Records are not fsynced: a torn record at the end of a segment is truncated on the next start.
+ * <p>
+ * Off unless {@code ollama.snapshots.enabled} is set; {@code ollama.snapshots.directory} should then point at a
+ * persistent location, since a relative path resolves against the working directory the gateway was started from.
+ */
+@Component
+public class ContextSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContextSnapshotStore.class);
+
+    private static final int MAGIC = 0x534E4150; // "SNAP"
+    /** magic, key, prompt key, plans, base context and context lengths, saved-at millis, CRC32 of the rest of the record, padding. */
+    private static final int HEADER_BYTES = 40;
+    private static final int SAVED_AT_OFFSET = 24;
+    private static final int CRC_OFFSET = 32;
+    private static final int MAX_STRING_BYTES = 1 << 24;
+    /** Sealed segments whose live records take less than this fraction of the file are rewritten. */
+    private static final double COMPACTION_LIVE_RATIO = 0.5;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".snap";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long maxDiskBytes;
+    private final long maxAgeMillis;
+    private final long flushDelayMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Executor ioExecutor;
+
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final Map<String, ContextSnapshot> dirty = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Segmentos e contadores de bytes só mudam com o write lock.
+    private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private volatile long diskBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong compactedSegments = new AtomicLong();
+
+    @Autowired
+    public ContextSnapshotStore(ScheduledExecutorService scheduler, ExecutorService contextNetExecutor,
+                                @Value("${ollama.snapshots.enabled:false}") boolean enabled,
+                                @Value("${ollama.snapshots.directory:data/snapshots}") String directory,
+                                @Value("${ollama.snapshots.segment-size-mb:64}") long segmentSizeMb,
+                                @Value("${ollama.snapshots.max-disk-mb:512}") long maxDiskMb,
+                                @Value("${ollama.snapshots.max-age-hours:24}") long maxAgeHours,
+                                @Value("${ollama.snapshots.flush-delay-ms:500}") long flushDelayMillis) {
+        this(enabled ? Path.of(directory) : null, segmentSizeMb << 20, maxDiskMb << 20,
+                TimeUnit.HOURS.toMillis(maxAgeHours), flushDelayMillis, scheduler, contextNetExecutor);
+    }
+
+    /** A {@code null} directory disables the store: nothing is saved and every lookup misses. */
+    public ContextSnapshotStore(Path directory, long segmentBytes, long maxDiskBytes, long maxAgeMillis, long flushDelayMillis,
+                                ScheduledExecutorService scheduler, Executor ioExecutor) {
+        if (directory != null && (segmentBytes <= 0 || maxDiskBytes < segmentBytes)) {
+            throw new IllegalArgumentException("segment size must be positive and no larger than the disk budget.");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.flushDelayMillis = flushDelayMillis;
+        this.scheduler = scheduler;
+        this.ioExecutor = ioExecutor;
+        if (directory != null) {
+            open();
+        }
+    }
+
+    /** A store that keeps nothing, for components built outside Spring (tests, benchmarks). */
+    public static ContextSnapshotStore disabled() {
+        return new ContextSnapshotStore(null, 0, 0, 0, 0, null, null);
+    }
+
+    /** Snapshot key for a client/agent pair; contexts are model-specific, so the model is part of it. */
+    public static String keyOf(String clientKey, String modelName) {
+        return clientKey + "|" + modelName;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /** Returns the latest snapshot saved under the key, including one still waiting to be flushed. */
+    public Optional<ContextSnapshot> load(String key) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        ContextSnapshot snapshot = dirty.get(key);
+        if (snapshot == null) {
+            snapshot = readLatest(key);
+        }
+        if (snapshot != null && System.currentTimeMillis() - snapshot.savedAtMillis() > maxAgeMillis) {
+            logger.debug("Snapshot {} is older than the maximum age; ignoring it.", key);
+            remove(key);
+            snapshot = null;
+        }
+        (snapshot != null ? hits : misses).incrementAndGet();
+        return Optional.ofNullable(snapshot);
+    }
+
+    /** Queues the snapshot to be written; a newer snapshot for the same key replaces it before it reaches the disk. */
+    public void save(ContextSnapshot snapshot) {
+        if (!isEnabled()) {
+            return;
+        }
+        dirty.put(snapshot.key(), snapshot);
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                // O agendador é compartilhado: a escrita em disco roda no executor de sessões.
+                scheduler.schedule(() -> ioExecutor.execute(this::flush), flushDelayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flushScheduled.set(false);
+                logger.warn("Could not schedule snapshot flush: {}", e.getMessage());
+            }
+        }
+    }
+
+    /** Forgets the snapshot; its record is reclaimed by the next compaction of its segment. */
+    public void remove(String key) {
+        dirty.remove(key);
+        lock.writeLock().lock();
+        try {
+            unindex(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Writes every queued snapshot, then compacts and enforces the disk budget. */
+    public void flush() {
+        if (!isEnabled()) {
+            return;
+        }
+        flushScheduled.set(false);
+        lock.writeLock().lock();
+        try {
+            for (ContextSnapshot snapshot : List.copyOf(dirty.values())) {
+                if (dirty.remove(snapshot.key(), snapshot)) {
+                    append(snapshot);
+                }
+            }
+            maintain();
+        } catch (IOException e) {
+            logger.error("Failed to write context snapshots to {}", directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!isEnabled()) {
+            return;
+        }
+        flush();
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments.values()) {
+                closeQuietly(segment);
+            }
+            segments.clear();
+            index.clear();
+            active = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Number of snapshots on disk. */
+    public int size() {
+        return index.size();
+    }
+
+    public long getDiskBytes() {
+        return diskBytes;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** Snapshots dropped to keep the store within its disk budget. */
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    public long getCompactedSegments() {
+        return compactedSegments.get();
+    }
+
+    //? ----------- Segments -----------
+
+    /** Rebuilds the index from the record headers of every segment; contexts are left on disk. */
+    private void open() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            List<Path> paths = new ArrayList<>();
+            files.forEach(paths::add);
+            paths.sort(null);
+            for (Path path : paths) {
+                String name = path.getFileName().toString();
+                long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                scan(new Segment(id, path, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)));
+            }
+            active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+            updateDiskBytes();
+            logger.info("Loaded index of {} context snapshot(s) from {} segment(s) in {}.", index.size(), segments.size(), directory);
+        } catch (IOException | NumberFormatException e) {
+            logger.error("Failed to open context snapshots in {}; starting with an empty store.", directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void scan(Segment segment) throws IOException {
+        segments.put(segment.id, segment);
+        long fileSize = segment.channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long offset = 0;
+        while (offset + HEADER_BYTES <= fileSize) {
+            header.clear();
+            readFully(segment.channel, header, offset);
+            header.flip();
+            int magic = header.getInt();
+            int keyLength = header.getInt();
+            int promptKeyLength = header.getInt();
+            int plansLength = header.getInt();
+            int tokens = header.getInt() + header.getInt();
+            long savedAt = header.getLong();
+            if (magic != MAGIC || !validLengths(keyLength, promptKeyLength, plansLength, tokens)) {
+                break;
+            }
+            long length = recordLength(keyLength, promptKeyLength, plansLength, tokens);
+            if (offset + length > fileSize) {
+                break;
+            }
+            ByteBuffer key = ByteBuffer.allocate(keyLength);
+            readFully(segment.channel, key, offset + HEADER_BYTES);
+            index(new String(key.array(), StandardCharsets.UTF_8), new Location(segment, offset, (int) length, savedAt));
+            offset += length;
+        }
+        if (offset < fileSize) {
+            logger.warn("Segment {} has an incomplete record at offset {}; truncating it.", segment.path, offset);
+            segment.channel.truncate(offset);
+        }
+        segment.size = offset;
+    }
+
+    private void append(ContextSnapshot snapshot) throws IOException {
+        byte[] key = snapshot.key().getBytes(StandardCharsets.UTF_8);
+        byte[] promptKey = snapshot.promptKey().getBytes(StandardCharsets.UTF_8);
+        byte[] plans = snapshot.plansContent().getBytes(StandardCharsets.UTF_8);
+        long[] baseContext = snapshot.baseContext();
+        long[] context = snapshot.context();
+        if (!validLengths(key.length, promptKey.length, plans.length, baseContext.length + context.length)) {
+            logger.warn("Snapshot {} is too large to be stored; skipping it.", snapshot.key());
+            return;
+        }
+        int length = (int) recordLength(key.length, promptKey.length, plans.length, baseContext.length + context.length);
+        ByteBuffer record = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(MAGIC).putInt(key.length).putInt(promptKey.length).putInt(plans.length)
+              .putInt(baseContext.length).putInt(context.length)
+              .putLong(snapshot.savedAtMillis())
+              .position(HEADER_BYTES);
+        record.put(key).put(promptKey).put(plans);
+        // Os longs começam alinhados a 8 bytes para o mapeamento poder lê-los como LongBuffer.
+        record.position(align(record.position()));
+        record.asLongBuffer().put(baseContext).put(context);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, length - HEADER_BYTES);
+        record.putInt(CRC_OFFSET, (int) crc.getValue());
+        record.clear();
+
+        Segment target = activeSegment(length);
+        long offset = target.size;
+        writeFully(target.channel, record, offset);
+        target.size += length;
+        index(snapshot.key(), new Location(target, offset, length, snapshot.savedAtMillis()));
+        updateDiskBytes();
+    }
+
+    private ContextSnapshot readLatest(String key) {
+        boolean corrupt = false;
+        lock.readLock().lock();
+        try {
+            Location location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+            ContextSnapshot snapshot = read(location);
+            corrupt = snapshot == null;
+            return snapshot;
+        } catch (IOException e) {
+            logger.error("Failed to read context snapshot {}", key, e);
+            return null;
+        } finally {
+            lock.readLock().unlock();
+            if (corrupt) {
+                remove(key);
+            }
+        }
+    }
+
+    /** Maps the record and decodes it; returns {@code null} when its checksum does not match. */
+    private ContextSnapshot read(Location location) throws IOException {
+        MappedByteBuffer mapped = location.segment.channel.map(FileChannel.MapMode.READ_ONLY, location.offset, location.length);
+        ByteBuffer record = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        int keyLength = record.getInt(4);
+        int promptKeyLength = record.getInt(8);
+        int plansLength = record.getInt(12);
+        int baseContextLength = record.getInt(16);
+        int contextLength = record.getInt(20);
+        long savedAt = record.getLong(SAVED_AT_OFFSET);
+        int expectedCrc = record.getInt(CRC_OFFSET);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.duplicate().position(HEADER_BYTES));
+        if ((int) crc.getValue() != expectedCrc) {
+            logger.warn("Context snapshot at {}:{} is corrupt; discarding it.", location.segment.path, location.offset);
+            return null;
+        }
+        record.position(HEADER_BYTES);
+        String key = readString(record, keyLength);
+        String promptKey = readString(record, promptKeyLength);
+        String plans = readString(record, plansLength);
+        record.position(align(record.position()));
+        long[] baseContext = new long[baseContextLength];
+        long[] context = new long[contextLength];
+        record.asLongBuffer().get(baseContext).get(context);
+        return new ContextSnapshot(key, promptKey, plans, baseContext, context, savedAt);
+    }
+
+    /** Drops expired snapshots, compacts mostly-dead sealed segments and evicts the oldest segments beyond the disk budget. */
+    private void maintain() throws IOException {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Location> entry : List.copyOf(index.entrySet())) {
+            if (now - entry.getValue().savedAtMillis > maxAgeMillis) {
+                unindex(entry.getKey());
+            }
+        }
+        for (Segment segment : List.copyOf(segments.values())) {
+            if (segment != active && segment.liveBytes < segment.size * COMPACTION_LIVE_RATIO) {
+                compact(segment);
+            }
+        }
+        while (diskBytes > maxDiskBytes && segments.size() > 1) {
+            Segment oldest = segments.firstEntry().getValue();
+            int dropped = 0;
+            for (Map.Entry<String, Location> entry : List.copyOf(index.entrySet())) {
+                if (entry.getValue().segment == oldest) {
+                    unindex(entry.getKey());
+                    dropped++;
+                }
+            }
+            evicted.addAndGet(dropped);
+            logger.info("Context snapshots over the {} byte budget; dropped segment {} with {} snapshot(s).", maxDiskBytes, oldest.path, dropped);
+            delete(oldest);
+        }
+    }
+
+    /** Copies the live records of a sealed segment, byte for byte, to the active segment and deletes it. */
+    private void compact(Segment segment) throws IOException {
+        int moved = 0;
+        for (Map.Entry<String, Location> entry : List.copyOf(index.entrySet())) {
+            Location location = entry.getValue();
+            if (location.segment != segment) {
+                continue;
+            }
+            ByteBuffer record = segment.channel.map(FileChannel.MapMode.READ_ONLY, location.offset, location.length);
+            Segment target = activeSegment(location.length);
+            long offset = target.size;
+            writeFully(target.channel, record, offset);
+            target.size += location.length;
+            index(entry.getKey(), new Location(target, offset, location.length, location.savedAtMillis));
+            moved++;
+        }
+        delete(segment);
+        compactedSegments.incrementAndGet();
+        logger.debug("Compacted snapshot segment {} ({} live record(s) moved).", segment.path, moved);
+    }
+
+    /** The segment to append {@code length} bytes to, rolling over to a new one when the current one is full. */
+    private Segment activeSegment(int length) throws IOException {
+        if (active == null || (active.size > 0 && active.size + length > segmentBytes)) {
+            Files.createDirectories(directory);
+            long id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+            Path path = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+            active = new Segment(id, path, FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            segments.put(id, active);
+        }
+        return active;
+    }
+
+    private void delete(Segment segment) throws IOException {
+        segments.remove(segment.id);
+        closeQuietly(segment);
+        Files.deleteIfExists(segment.path);
+        updateDiskBytes();
+    }
+
+    private void index(String key, Location location) {
+        Location previous = index.put(key, location);
+        if (previous != null) {
+            previous.segment.liveBytes -= previous.length;
+        }
+        location.segment.liveBytes += location.length;
+    }
+
+    private void unindex(String key) {
+        Location previous = index.remove(key);
+        if (previous != null) {
+            previous.segment.liveBytes -= previous.length;
+        }
+    }
+
+    private void updateDiskBytes() {
+        diskBytes = segments.values().stream().mapToLong(segment -> segment.size).sum();
+    }
+
+    //? ----------- Helpers -----------
+
+    private static boolean validLengths(int keyLength, int promptKeyLength, int plansLength, int tokens) {
+        return keyLength >= 0 && keyLength <= MAX_STRING_BYTES
+            && promptKeyLength >= 0 && promptKeyLength <= MAX_STRING_BYTES
+            && plansLength >= 0 && plansLength <= MAX_STRING_BYTES
+            && tokens >= 0 && recordLength(keyLength, promptKeyLength, plansLength, tokens) <= Integer.MAX_VALUE;
+    }
+
+    /** {@code tokens} counts both contexts, stored back to back. */
+    private static long recordLength(int keyLength, int promptKeyLength, int plansLength, int tokens) {
+        return align((long) HEADER_BYTES + keyLength + promptKeyLength + plansLength) + 8L * tokens;
+    }
+
+    private static int align(int position) {
+        return (position + 7) & ~7;
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of snapshot segment.");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close snapshot segment {}", segment.path, e);
+        }
+    }
+
+    private static final class Segment {
+        final long id;
+        final Path path;
+        final FileChannel channel;
+        long size;
+        long liveBytes;
+
+        Segment(long id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    /** Where the latest record for a key lives. */
+    private record Location(Segment segment, long offset, int length, long savedAtMillis) {
+    }
+}
@@ -0,0 +1,194 @@
+package br.cefet.segaudit.AIContextManager.streaming;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+
+import br.cefet.segaudit.model.classes.IAGenerateResponse;
+
+/**
+ * Parses a non-streamed Ollama /api/generate body as its bytes arrive, without first collecting it into a String.
+ * The {@code context} array is decoded straight into a pooled {@code long[]} that is copied once, at its final
+ * size, when the body ends; fields other than {@code response}, {@code context}, {@code prompt_eval_count} and
+ * {@code load_duration} are skipped.
+ */
+public class OllamaResponseSubscriber implements HttpResponse.BodySubscriber<IAGenerateResponse> {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaResponseSubscriber.class);
+
+    private static final int INITIAL_CONTEXT_CAPACITY = 4096;
+    /** Larger buffers are left to the GC instead of being kept around by the pool. */
+    private static final int MAX_POOLED_CONTEXT_CAPACITY = 1 << 17;
+    private static final BlockingQueue<long[]> CONTEXT_BUFFERS = new ArrayBlockingQueue<>(16);
+
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    private final CompletableFuture<IAGenerateResponse> result = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+
+    private int depth;
+    private String field;
+    private String response;
+    private int promptEvalCount;
+    private long loadDuration;
+    private boolean inContext;
+    private long[] context;
+    private int contextLength = -1;
+
+    public OllamaResponseSubscriber(JsonFactory jsonFactory) {
+        try {
+            this.parser = jsonFactory.createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    @Override
+    public CompletionStage<IAGenerateResponse> getBody() {
+        return result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            for (ByteBuffer buffer : buffers) {
+                if (buffer.hasRemaining()) {
+                    // O parser guarda a referência ao buffer: ele precisa ser consumido antes de devolvê-lo ao cliente.
+                    feeder.feedInput(buffer);
+                    drain();
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+            subscription.cancel();
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        releaseContextBuffer();
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            feeder.endOfInput();
+            drain();
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        if (depth != 0) {
+            fail(new IOException("Ollama response ended in the middle of the JSON document."));
+            return;
+        }
+        long[] exactContext = contextLength < 0 ? null : Arrays.copyOf(context, contextLength);
+        releaseContextBuffer();
+        result.complete(new IAGenerateResponse(response, exactContext, promptEvalCount, loadDuration));
+    }
+
+    /** Consumes every token already available; the non-blocking parser answers NOT_AVAILABLE when it needs more bytes. */
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_OBJECT -> depth++;
+                case START_ARRAY -> {
+                    depth++;
+                    if (depth == 2 && "context".equals(field)) {
+                        inContext = true;
+                        acquireContextBuffer();
+                    }
+                }
+                case END_OBJECT -> depth--;
+                case END_ARRAY -> {
+                    if (depth == 2) {
+                        inContext = false;
+                    }
+                    depth--;
+                }
+                case FIELD_NAME -> {
+                    if (depth == 1) {
+                        field = parser.currentName();
+                    }
+                }
+                case VALUE_STRING -> {
+                    if (depth == 1 && "response".equals(field)) {
+                        response = parser.getText();
+                    }
+                }
+                case VALUE_NUMBER_INT -> {
+                    if (inContext && depth == 2) {
+                        appendContext(parser.getLongValue());
+                    } else if (depth == 1 && "prompt_eval_count".equals(field)) {
+                        promptEvalCount = parser.getIntValue();
+                    } else if (depth == 1 && "load_duration".equals(field)) {
+                        loadDuration = parser.getLongValue();
+                    }
+                }
+                default -> {
+                    // Demais valores (floats, booleanos, null) não são usados pelo gateway.
+                }
+            }
+        }
+    }
+
+    private void appendContext(long token) {
+        if (contextLength == context.length) {
+            context = Arrays.copyOf(context, context.length * 2);
+        }
+        context[contextLength++] = token;
+    }
+
+    private void acquireContextBuffer() {
+        long[] pooled = CONTEXT_BUFFERS.poll();
+        context = pooled != null ? pooled : new long[INITIAL_CONTEXT_CAPACITY];
+        contextLength = 0;
+    }
+
+    private void releaseContextBuffer() {
+        long[] buffer = context;
+        context = null;
+        if (buffer != null && buffer.length <= MAX_POOLED_CONTEXT_CAPACITY) {
+            CONTEXT_BUFFERS.offer(buffer);
+        }
+    }
+
+    private void fail(IOException error) {
+        logger.error("Failed to parse Ollama response", error);
+        releaseContextBuffer();
+        result.completeExceptionally(error);
+    }
+}
@@ -0,0 +1,131 @@
+package br.cefet.segaudit.AIContextManager.streaming;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.cefet.segaudit.model.classes.IAGenerateChunk;
+import br.cefet.segaudit.model.classes.IAGenerateResponse;
+
+/**
+ * Consumes the NDJSON lines of a streamed Ollama response, reassembles the generated text and
+ * hands every completed output line (one KQML command) to a callback as soon as it is available.
+ * The final chunk completes {@link #getResult()} with the full text, context and prompt cost.
+ */
+public class OllamaStreamSubscriber implements Flow.Subscriber<String> {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaStreamSubscriber.class);
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<String> onLine;
+    private final StringBuilder fullText = new StringBuilder();
+    private final StringBuilder currentLine = new StringBuilder();
+    private final CompletableFuture<IAGenerateResponse> result = new CompletableFuture<>();
+    private volatile Flow.Subscription subscription;
+
+    public OllamaStreamSubscriber(ObjectMapper objectMapper, Consumer<String> onLine) {
+        this.objectMapper = objectMapper;
+        this.onLine = onLine;
+    }
+
+    /** Completes when Ollama sends the chunk with {@code done=true}, or fails if the stream breaks first. */
+    public CompletableFuture<IAGenerateResponse> getResult() {
+        return result;
+    }
+
+    /** Stops consuming the stream, which makes the HTTP client abort the exchange. */
+    public void cancel() {
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+        result.cancel(false);
+    }
+
+    /** Fails the stream with the given error, e.g. when Ollama answers with a non-2xx status. */
+    public void fail(Throwable error) {
+        if (result.completeExceptionally(error)) {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(String json) {
+        if (result.isDone() || json.isBlank()) {
+            return;
+        }
+        IAGenerateChunk chunk;
+        try {
+            chunk = objectMapper.readValue(json, IAGenerateChunk.class);
+        } catch (IOException e) {
+            logger.error("Failed to parse Ollama stream chunk: {}", json, e);
+            fail(e);
+            return;
+        }
+        if (chunk.error() != null) {
+            fail(new IOException("Ollama stream returned an error: " + chunk.error()));
+            return;
+        }
+
+        if (chunk.response() != null) {
+            fullText.append(chunk.response());
+            currentLine.append(chunk.response());
+            emitCompletedLines();
+        }
+
+        if (chunk.done()) {
+            emit(currentLine.toString());
+            currentLine.setLength(0);
+            result.complete(new IAGenerateResponse(fullText.toString(), chunk.context(), chunk.promptEvalCount(), chunk.loadDuration()));
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (!result.isDone()) {
+            result.completeExceptionally(new IOException("Ollama stream ended before the final chunk was received."));
+        }
+    }
+
+    private void emitCompletedLines() {
+        int newline;
+        while ((newline = currentLine.indexOf("\n")) != -1) {
+            String line = currentLine.substring(0, newline);
+            currentLine.delete(0, newline + 1);
+            emit(line);
+        }
+    }
+
+    private void emit(String rawLine) {
+        String line = rawLine.trim();
+        if (line.isEmpty()) {
+            return;
+        }
+        try {
+            onLine.accept(line);
+        } catch (RuntimeException e) {
+            // Uma falha no consumidor não deve interromper a leitura do restante da geração.
+            logger.error("Line callback failed for streamed line '{}'", line, e);
+        }
+    }
+}
@@ -4,6 +4,9 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -12,9 +15,39 @@ import jakarta.annotation.PreDestroy;
 @Configuration
 public class AppConfig {
 
-    private final ExecutorService contextNetExecutor = Executors.newFixedThreadPool(10);
+    private static final Logger logger = LoggerFactory.getLogger(AppConfig.class);
+
+    private final ExecutorService contextNetExecutor;
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
 
+    /**
+     * {@code contextnet.executor.mode} chooses how blocking session work (ContextNet connection setup and
+     * AI session initialization) runs: {@code platform} uses a pool of {@code contextnet.executor.pool-size}
+     * threads, {@code virtual} starts one virtual thread per task and needs Java 21.
+     */
+    public AppConfig(@Value("${contextnet.executor.mode:platform}") String mode,
+                     @Value("${contextnet.executor.pool-size:10}") int poolSize) {
+        this.contextNetExecutor = createExecutor(mode, poolSize);
+    }
+
+    private static ExecutorService createExecutor(String mode, int poolSize) {
+        if ("virtual".equalsIgnoreCase(mode)) {
+            try {
+                // Via reflexão para o código continuar compilando com Java 17.
+                ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                logger.info("Running session and ContextNet work on virtual threads.");
+                return executor;
+            } catch (ReflectiveOperationException e) {
+                logger.warn("Virtual threads need Java 21 (running {}); falling back to a pool of {} platform threads.",
+                        Runtime.version(), poolSize);
+            }
+        } else if (!"platform".equalsIgnoreCase(mode)) {
+            logger.warn("Unknown contextnet.executor.mode '{}'; using platform threads.", mode);
+        }
+        logger.info("Running session and ContextNet work on a pool of {} platform threads.", poolSize);
+        return new InstrumentedThreadPoolExecutor("contextnet", poolSize);
+    }
+
     @Bean
     public ExecutorService contextNetExecutor() {
         return contextNetExecutor;
@@ -30,4 +63,4 @@ public class AppConfig {
     public ScheduledExecutorService scheduledExecutorService() {
         return scheduler;
     }
-}
\ No newline at end of file
+}
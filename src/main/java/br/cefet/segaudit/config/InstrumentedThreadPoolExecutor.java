@@ -0,0 +1,84 @@
+package br.cefet.segaudit.config;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fixed-size platform thread pool that records how long tasks wait for a thread.
+ * A long wait means every thread is blocked (e.g. in session initialization) and the pool is undersized.
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstrumentedThreadPoolExecutor.class);
+    private static final long SLOW_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String name;
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public InstrumentedThreadPoolExecutor(String name, int poolSize) {
+        super(poolSize, poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory(name));
+        this.name = name;
+        allowCoreThreadTimeOut(true);
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            return thread;
+        };
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        super.execute(new TimedTask(command));
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable runnable) {
+        super.beforeExecute(thread, runnable);
+        if (runnable instanceof TimedTask task) {
+            long waited = System.nanoTime() - task.submittedAt;
+            started.incrementAndGet();
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            if (waited > SLOW_WAIT_NANOS) {
+                logger.warn("Task waited {} ms for a '{}' thread ({} active, {} queued). Consider raising the pool size or using virtual threads.",
+                        TimeUnit.NANOSECONDS.toMillis(waited), name, getActiveCount(), getQueue().size());
+            }
+        }
+    }
+
+    /** Mean time tasks spent queued before a thread picked them up. */
+    public double getAverageWaitMillis() {
+        long count = started.get();
+        return count == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    private static final class TimedTask implements Runnable {
+        private final Runnable delegate;
+        private final long submittedAt = System.nanoTime();
+
+        TimedTask(Runnable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            delegate.run();
+        }
+    }
+}
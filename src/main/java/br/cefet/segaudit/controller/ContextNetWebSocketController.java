@@ -1,23 +1,42 @@
 package br.cefet.segaudit.controller;
 
+import br.cefet.segaudit.metrics.GatewayMetrics;
+import br.cefet.segaudit.metrics.GatewayMetrics.Stage;
 import br.cefet.segaudit.model.interfaces.IModelManagaer;
 import br.cefet.segaudit.model.classes.WebSocketSessionState;
+import br.cefet.segaudit.model.classes.BatchItemResult;
 import br.cefet.segaudit.model.classes.ContextNetConfig;
+import br.cefet.segaudit.model.classes.PlanCatalog;
+import br.cefet.segaudit.model.factories.CommandDispatcherFactory;
 import br.cefet.segaudit.model.factories.ContextNetClientFactory;
 import br.cefet.segaudit.service.AIService;
+import br.cefet.segaudit.service.CommandDispatcher;
 import br.cefet.segaudit.service.ContextNetClient;
+import br.cefet.segaudit.service.HashedTimingWheel;
+import br.cefet.segaudit.service.SessionInbox;
 
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Component
@@ -25,18 +44,71 @@ public class ContextNetWebSocketController extends TextWebSocketHandler {
     private static final Logger logger = LoggerFactory.getLogger(ContextNetWebSocketController.class);
 
     private final ContextNetClientFactory contextNetClientFactory;
+    private final CommandDispatcherFactory commandDispatcherFactory;
 
     private final Map<String, WebSocketSessionState> sessions = new ConcurrentHashMap<>();
+    /** Sessions whose socket dropped, by resume token, until a new socket claims them or the grace period ends. */
+    private final Map<String, WebSocketSessionState> parkedSessions = new ConcurrentHashMap<>();
+    /** Ready sessions, open or parked, by the token {@code POST /translate/batch} identifies them with. */
+    private final Map<String, WebSocketSessionState> batchSessions = new ConcurrentHashMap<>();
+    private final SecureRandom tokenRandom = new SecureRandom();
     private final IModelManagaer modelManagaer;
     private final ObjectMapper objectMapper;
+    private final GatewayMetrics metrics;
+    private final HashedTimingWheel timeouts;
     private final ExecutorService contextNetExecutor;
 
+    @Value("${ollama.streaming.enabled:false}")
+    private boolean streamingEnabled;
+
+    @Value("${contextnet.plans.timeout-ms:120000}")
+    private long plansTimeoutMillis;
+
+    @Value("${session.inbox.capacity:16}")
+    private int inboxCapacity;
+
+    @Value("${session.inbox.coalesce:false}")
+    private boolean coalesceMessages;
+
+    @Value("${translation.batch.max-items:64}")
+    private int batchMaxItems;
+
+    @Value("${translation.batch.parallelism:4}")
+    private int batchParallelism;
+
+    @Value("${session.resume.enabled:true}")
+    private boolean resumeEnabled;
+
+    @Value("${session.resume.grace-ms:60000}")
+    private long resumeGraceMillis;
+
+    @Value("${session.resume.buffer-size:256}")
+    private int resumeBufferSize;
+
     /** Initializes the controller with required factories and managers for handling WebSocket connections. */
-    public ContextNetWebSocketController(ContextNetClientFactory factory, IModelManagaer modelManagaer, ObjectMapper objectMapper, ExecutorService contextNetExecutor) {
+    public ContextNetWebSocketController(ContextNetClientFactory factory, CommandDispatcherFactory commandDispatcherFactory, IModelManagaer modelManagaer,
+                                         ObjectMapper objectMapper, GatewayMetrics metrics, HashedTimingWheel timeouts,
+                                         ExecutorService contextNetExecutor) {
         this.contextNetClientFactory = factory;
+        this.commandDispatcherFactory = commandDispatcherFactory;
         this.modelManagaer = modelManagaer;
         this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.timeouts = timeouts;
         this.contextNetExecutor = contextNetExecutor;
+        registerGauges();
+    }
+
+    /** Session-level gauges, summed over the open sessions on every scrape. */
+    private void registerGauges() {
+        metrics.gauge("segaudit.sessions.active", "Open WebSocket sessions", sessions, Map::size);
+        metrics.gauge("segaudit.sessions.parked", "Sessions waiting to be resumed by a new socket", parkedSessions, Map::size);
+        metrics.gauge("segaudit.inbox.queued", "User messages waiting in session inboxes", sessions,
+                s -> s.values().stream().mapToInt(state -> state.getInbox() == null ? 0 : state.getInbox().size()).sum());
+        metrics.gauge("segaudit.outbound.queued", "Commands and messages waiting to be sent to agents", sessions,
+                s -> s.values().stream().mapToInt(ContextNetWebSocketController::queuedOutbound).sum());
+        metrics.gauge("segaudit.contextnet.pending", "Requests waiting for an agent reply", sessions,
+                s -> s.values().stream().mapToInt(state -> state.getContextNetClient() == null ? 0 : state.getContextNetClient().getPendingRequestCount()).sum());
     }
 
     //? ----------- Methods -----------
@@ -44,7 +116,7 @@ public class ContextNetWebSocketController extends TextWebSocketHandler {
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
         logger.info("WebSocket session opened: {}", session.getId());
-        sessions.put(session.getId(), new WebSocketSessionState());
+        sessions.put(session.getId(), new WebSocketSessionState(session));
     }
 
     /** Handles incoming text messages, routing them to initialize the session or process subsequent commands. */
@@ -74,6 +146,7 @@ public class ContextNetWebSocketController extends TextWebSocketHandler {
     //?First Message is a JSON with connection configs*/
     private void handleFirstMessage(WebSocketSession session, String payload) throws Exception {
         String sessionId = session.getId();
+        long setupStart = System.nanoTime();
         logger.info("[{}] Handling first message. Payload: {}", sessionId, payload);
         WebSocketSessionState state = sessions.get(sessionId);
 
@@ -81,6 +154,14 @@ public class ContextNetWebSocketController extends TextWebSocketHandler {
 
         ContextNetConfig config = objectMapper.readValue(payload, ContextNetConfig.class);
 
+        if (config.resumeToken != null && resumeEnabled) {
+            if (resumeSession(session, config.resumeToken)) {
+                return;
+            }
+            logger.info("[{}] Unknown or expired resume token; starting a new session.", sessionId);
+            sendToSession(session, "Warning: Session could not be resumed. Starting a new session.");
+        }
+
         if (config.gatewayIP == null || config.myUUID == null || config.destinationUUID == null) {
             logger.error("[{}] Invalid configuration received. Closing session.", sessionId);
             sendToSession(session, "Error: Invalid configuration. 'gatewayIP', 'agentUUID', and 'destinationUUID' are required.");
@@ -89,31 +170,45 @@ public class ContextNetWebSocketController extends TextWebSocketHandler {
         }
         logger.debug("[{}] Parsed ContextNetConfig: MyUUID={}, DestinationUUID={}", sessionId, config.myUUID, config.destinationUUID);
 
-        ContextNetClient client = contextNetClientFactory.create(config, (msg) -> {
-            sendToSession(session, msg);
-        });
+        ContextNetClient client = contextNetClientFactory.create(config, (msg) -> sendToClient(state, msg));
         state.setContextNetClient(client);
+        state.setCommandDispatcher(commandDispatcherFactory.create(sessionId, client));
+        state.setInbox(new SessionInbox(sessionId, inboxCapacity, coalesceMessages, msg -> processMessage(state, msg)));
         logger.info("[{}] ContextNetClient created and stored.", sessionId);
-        
-        client.getConnectionFuture().thenCompose(v -> {
+
+        metrics.time(Stage.SESSION_SETUP, setupStart, client.getConnectionFuture().thenCompose(v -> {
             logger.info("[{}] Connection to ContextNet established. Fetching agent plans...", sessionId);
             //? Busca os planos do agente de forma assíncrona.
-            return client.fetchAgentPlans().orTimeout(120, java.util.concurrent.TimeUnit.SECONDS); // Adiciona um timeout de 2m
+            return client.fetchAgentPlans(java.time.Duration.ofMillis(plansTimeoutMillis));
         })
           .thenCompose(agentPlans -> {
             logger.info("[{}] Successfully received plans from agent: {}", sessionId, agentPlans);
             logger.info("[{}] Contexto do agente recuperado com sucesso.", sessionId);
+            PlanCatalog catalog = PlanCatalog.parse(agentPlans);
+            logger.info("[{}] Parsed {} plan(s) from agent.", sessionId, catalog.size());
+            //? Um contexto persistido para o mesmo par cliente/agente, feito com os mesmos planos, dispensa a inicialização do modelo.
+            boolean resumed = modelManagaer.resumeUserSession(sessionId, config.myUUID + ":" + config.destinationUUID, catalog);
+            if (resumed) {
+                logger.info("[{}] Resuming persisted model context.", sessionId);
+            }
             logger.info("[{}] Initializing AI Service...", sessionId);
-            AIService aiService = new AIService(this.modelManagaer, sessionId, contextNetExecutor);
+            AIService aiService = new AIService(this.modelManagaer, sessionId, metrics);
             state.setAiService(aiService);
-            return aiService.initialize(agentPlans);
+            if (Boolean.FALSE.equals(config.translationCache)) {
+                modelManagaer.setTranslationCacheEnabled(sessionId, false);
+            }
+            return resumed ? CompletableFuture.<Void>completedFuture(null) : aiService.initialize(catalog);
         })
           .thenAccept(v -> {
             state.setInitializing(false); // Libera o bloqueio de inicialização.
             state.setInitialized(true); // Marca a sessão como totalmente inicializada.
             logger.info("[{}] AI Service initialized and stored.", sessionId);
             sendToSession(session, "Connection stabilized and IA session ready.");
-        }).exceptionally(ex -> {
+            issueBatchToken(state);
+            if (resumeEnabled) {
+                issueResumeToken(state);
+            }
+        })).exceptionally(ex -> {
             state.setInitializing(false); // Libera o bloqueio em caso de erro.
             Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
 
@@ -141,7 +236,7 @@ public class ContextNetWebSocketController extends TextWebSocketHandler {
         });
     }
 
-    /** Handles all messages after the initial setup, translating user input into KQML commands and sending them to the ContextNet. */
+    /** Handles all messages after the initial setup, queueing them in the session inbox for in-order translation into KQML commands. */
     private void handleSubsequentMessages(WebSocketSession session, String payload) {
         String sessionId = session.getId();
         WebSocketSessionState state = sessions.get(sessionId);
@@ -152,68 +247,302 @@ public class ContextNetWebSocketController extends TextWebSocketHandler {
             return;
         }
 
-        if (!state.tryStartProcessing()) {
-            logger.warn("[{}] Received message while another is still being processed. Ignoring.", sessionId);
-            sendToSession(session, "Warning: Previous message is still being processed. Please wait.");
+        JsonNode typed = parseTypedMessage(payload);
+        if (typed != null) {
+            handleTypedMessage(state, typed);
             return;
         }
+
+        int ahead = state.getInbox().offer(payload);
+        if (ahead < 0) {
+            logger.warn("[{}] Inbox full ({} messages waiting). Rejecting message: '{}'", sessionId, state.getInbox().getCapacity(), payload);
+            sendToSession(session, "Warning: Too many pending messages (" + state.getInbox().getCapacity() + "). Please wait before sending more.");
+        } else if (ahead > 0) {
+            logger.info("[{}] Queued message behind {} other(s): '{}'", sessionId, ahead, payload);
+        }
+    }
+
+    /**
+     * Translates one message taken from the session inbox. The returned future completes when the translation is done,
+     * so the inbox can start translating the next message while these commands are still being dispatched.
+     */
+    private CompletableFuture<?> processMessage(WebSocketSessionState state, String payload) {
+        String sessionId = state.getSessionId();
         AIService aiService = state.getAiService();
 
         logger.info("[{}] Handling subsequent message: '{}'", sessionId, payload);
 
-        aiService.getKQMLMessages(sessionId, payload)
+        if (streamingEnabled) {
+            return handleStreamingTranslation(state, payload);
+        }
+
+        return metrics.time(Stage.MESSAGE, aiService.getKQMLMessages(sessionId, payload)
             .thenAccept(kqmlMessages -> {
                 logger.info("[{}] AI translated message to {} KQML command(s): {}", sessionId, kqmlMessages.size(), kqmlMessages);
-                ContextNetClient client = state.getContextNetClient();
-
-                // Se houver múltiplos comandos, envie-os com um pequeno atraso entre eles.
-                // Este loop ainda é bloqueante, mas apenas por curtos períodos.
-                // Para uma solução totalmente não bloqueante, seria necessário um agendador.
-                for (int i = 0; i < kqmlMessages.size(); i++) {
-                    String kqmlMessage = kqmlMessages.get(i);
-                    String fullKqmlMessage = String.format("achieve,%s,%s", client.getDestinationUUID(), kqmlMessage);
-                    client.sendToContextNet(fullKqmlMessage);
-                    logger.debug("[{}] Sent to ContextNet: {}", sessionId, fullKqmlMessage);
-
-                    if (i < kqmlMessages.size() - 1) {
-                        try {
-                            Thread.sleep(1000);
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            logger.error("Thread interrupted while waiting to send next command", e);
-                            break; // Sai do loop se a thread for interrompida
-                        }
-                    }
-                }
-            })
+                // O dispatcher espaça os comandos pelo agendador, sem bloquear esta thread.
+                state.getCommandDispatcher().submitAll(kqmlMessages);
+            }))
             .exceptionally(ex -> {
                 logger.error("[{}] Error processing AI translation for subsequent message.", sessionId, ex);
-                sendToSession(session, "Error during AI translation: " + ex.getMessage());
+                sendToClient(state, translationErrorMessage(ex));
+                return null;
+            });
+    }
+
+    /** Translates a message with a streamed generation, sending each command to the agent while the model is still producing the rest. */
+    private CompletableFuture<?> handleStreamingTranslation(WebSocketSessionState state, String payload) {
+        String sessionId = state.getSessionId();
+        CommandDispatcher dispatcher = state.getCommandDispatcher();
+
+        return metrics.time(Stage.MESSAGE, state.getAiService().streamKQMLMessages(sessionId, payload, dispatcher::submit)
+            .thenAccept(kqmlMessages -> logger.info("[{}] AI streamed {} KQML command(s): {}", sessionId, kqmlMessages.size(), kqmlMessages)))
+            .exceptionally(ex -> {
+                logger.error("[{}] Error processing streamed AI translation for subsequent message.", sessionId, ex);
+                sendToClient(state, translationErrorMessage(ex));
                 return null;
-            })
-            .whenComplete((res, ex) -> {
-                state.finishProcessing(); // Libera o semáforo, permitindo a próxima mensagem
             });
     }
 
-    /** Invoked when a WebSocket connection is closed, performing cleanup by removing the client and terminating the AI model session. */
+    //? ----------- Typed messages -----------
+
+    /** Reads a JSON object with a {@code type} field; anything else yields {@code null} and is handled as a single utterance. */
+    private JsonNode parseTypedMessage(String payload) {
+        if (!payload.stripLeading().startsWith("{")) {
+            return null;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(payload);
+            return node.path("type").isTextual() ? node : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * {@code {"type":"batch","utterances":[...]}} goes through the inbox like any message. {@code {"type":"draft","text":"..."}}
+     * is text the user is still typing: it skips the inbox and only starts a speculative translation, which the final
+     * message reuses when it has the same text.
+     */
+    private void handleTypedMessage(WebSocketSessionState state, JsonNode message) {
+        String type = message.path("type").asText();
+        switch (type) {
+            case "batch" -> {
+                List<String> utterances = new ArrayList<>();
+                message.path("utterances").forEach(utterance -> utterances.add(utterance.asText()));
+                handleBatchMessage(state, utterances);
+            }
+            case "draft" -> state.getAiService().speculate(state.getSessionId(), message.path("text").asText(""));
+            default -> {
+                logger.warn("[{}] Ignoring message of unknown type '{}'.", state.getSessionId(), type);
+                sendToClient(state, "Warning: Unknown message type '" + type + "'.");
+            }
+        }
+    }
+
+    //? ----------- Batches -----------
+
+    /** Queues a batch received over the socket; its commands are dispatched and the per-item results sent back as one frame. */
+    private void handleBatchMessage(WebSocketSessionState state, List<String> utterances) {
+        submitBatch(state, utterances, true).whenComplete((results, ex) -> {
+            if (ex != null) {
+                Throwable cause = ex instanceof java.util.concurrent.CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                sendToClient(state, cause instanceof RejectedExecutionException ? "Warning: " + cause.getMessage() : "Error: " + cause.getMessage());
+                return;
+            }
+            try {
+                sendToClient(state, objectMapper.writeValueAsString(Map.of("type", "batch", "items", results)));
+            } catch (IOException e) {
+                logger.error("[{}] Failed to serialize batch results.", state.getSessionId(), e);
+            }
+        });
+    }
+
+    /**
+     * Queues a batch for the session holding {@code batchToken}, as {@code POST /translate/batch} does.
+     * Empty when no open or parked session holds the token.
+     */
+    public Optional<CompletableFuture<List<BatchItemResult>>> submitBatch(String batchToken, List<String> utterances, boolean dispatch) {
+        WebSocketSessionState state = batchSessions.get(batchToken);
+        if (state == null || !state.isInitialized()) {
+            return Optional.empty();
+        }
+        return Optional.of(submitBatch(state, utterances, dispatch));
+    }
+
+    /** Puts the batch in the session inbox, so it runs in order with the session's other messages. */
+    private CompletableFuture<List<BatchItemResult>> submitBatch(WebSocketSessionState state, List<String> utterances, boolean dispatch) {
+        if (utterances.isEmpty() || utterances.size() > batchMaxItems) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    "A batch must have between 1 and " + batchMaxItems + " utterances, got " + utterances.size() + "."));
+        }
+        CompletableFuture<List<BatchItemResult>> result = new CompletableFuture<>();
+        int ahead = state.getInbox().offerTask(() -> processBatch(state, utterances, dispatch).whenComplete((results, ex) -> {
+            if (ex != null) {
+                result.completeExceptionally(ex);
+            } else {
+                result.complete(results);
+            }
+        }), () -> result.completeExceptionally(new CancellationException("The session closed before the batch ran.")));
+        if (ahead < 0) {
+            result.completeExceptionally(new RejectedExecutionException(
+                    "Too many pending messages (" + state.getInbox().getCapacity() + "). Please wait before sending more."));
+        } else if (ahead > 0) {
+            logger.info("[{}] Queued batch of {} message(s) behind {} other(s).", state.getSessionId(), utterances.size(), ahead);
+        }
+        return result;
+    }
+
+    /** Translates the batch and, when asked to, queues the commands of the successful items in item order. */
+    private CompletableFuture<List<BatchItemResult>> processBatch(WebSocketSessionState state, List<String> utterances, boolean dispatch) {
+        String sessionId = state.getSessionId();
+        logger.info("[{}] Handling batch of {} message(s).", sessionId, utterances.size());
+        return metrics.time(Stage.BATCH, state.getAiService().translateBatch(sessionId, utterances, batchParallelism)
+            .thenApply(results -> {
+                if (dispatch) {
+                    state.getCommandDispatcher().submitAll(results.stream()
+                                                                  .filter(BatchItemResult::isOk)
+                                                                  .flatMap(item -> item.commands().stream())
+                                                                  .toList());
+                }
+                return results;
+            }));
+    }
+
+    /**
+     * Invoked when a WebSocket connection is closed. A ready session that holds a resume token and was not closed
+     * normally by the client is parked for the grace period; otherwise the client is removed and the AI model session terminated.
+     */
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-        String sessionId = session.getId();
-        WebSocketSessionState state = sessions.get(sessionId);
+        WebSocketSessionState state = sessions.remove(session.getId());
+        if (state != null && resumeEnabled && state.isInitialized() && state.getResumeToken() != null
+                && !CloseStatus.NORMAL.equalsCode(status)) {
+            parkSession(state, status);
+            return;
+        }
+        closeSession(state != null ? state.getSessionId() : session.getId(), state);
+    }
+
+    /** Releases everything a session holds: agent connection, inbox, dispatcher and model context. */
+    private void closeSession(String sessionId, WebSocketSessionState state) {
+        if (state != null && state.getBatchToken() != null) {
+            batchSessions.remove(state.getBatchToken(), state);
+        }
         if (state != null && state.getContextNetClient() != null) {
-            // Cancela qualquer requisição pendente para evitar que fique "presa"
-            state.getContextNetClient().cancelPendingRequests();
-            state.getContextNetClient().cancelConnectionTimeout();
+            // Cancela requisições pendentes e libera a conexão (ou a vaga na conexão compartilhada).
+            state.getContextNetClient().close();
+        }
+        if (state != null && state.getInbox() != null) {
+            state.getInbox().close();
+        }
+        if (state != null && state.getCommandDispatcher() != null) {
+            state.getCommandDispatcher().close();
         }
 
-        sessions.remove(sessionId);
         modelManagaer.endSession(sessionId);
         logger.info("WebSocket and AI sessions closed for id: {}", sessionId);
     }
 
+    //? ----------- Tokens -----------
+
+    private String newToken() {
+        byte[] bytes = new byte[24];
+        tokenRandom.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /** Issues the token the client presents to {@code POST /translate/batch}; it stays valid until the session closes, parked or not. */
+    private void issueBatchToken(WebSocketSessionState state) {
+        String token = newToken();
+        state.setBatchToken(token);
+        batchSessions.put(token, state);
+        sendToClient(state, "Batch token: " + token);
+    }
+
+    //? ----------- Resumption -----------
+
+    /** Issues a new single-use token the client can present in its first message after a reconnect. */
+    private void issueResumeToken(WebSocketSessionState state) {
+        String token = newToken();
+        state.setResumeToken(token);
+        sendToClient(state, "Resume token: " + token);
+    }
+
+    /** Detaches the socket and keeps the session running; agent messages are buffered until it is resumed. */
+    private void parkSession(WebSocketSessionState state, CloseStatus status) {
+        String token = state.getResumeToken();
+        synchronized (state) {
+            state.setSocket(null);
+        }
+        // O timeout é armado antes de publicar a sessão: um resume concorrente sempre encontra o que cancelar.
+        state.setParkTimeout(timeouts.schedule(() -> {
+            if (parkedSessions.remove(token, state)) {
+                logger.info("[{}] Session was not resumed within {} ms.", state.getSessionId(), resumeGraceMillis);
+                // Fechar o cliente faz I/O bloqueante; não ocupa a thread compartilhada do timing wheel.
+                contextNetExecutor.execute(() -> closeSession(state.getSessionId(), state));
+            }
+        }, resumeGraceMillis, TimeUnit.MILLISECONDS));
+        parkedSessions.put(token, state);
+        logger.info("[{}] Socket closed ({}); session parked for {} ms awaiting resumption.", state.getSessionId(), status, resumeGraceMillis);
+    }
+
+    /** Re-attaches a parked session to a new socket and replays what the agent sent meanwhile; false if the token is unknown or expired. */
+    private boolean resumeSession(WebSocketSession session, String token) {
+        WebSocketSessionState state = parkedSessions.remove(token);
+        if (state == null) {
+            return false;
+        }
+        state.getParkTimeout().cancel();
+        sessions.put(session.getId(), state);
+        List<String> missed;
+        int dropped;
+        synchronized (state) {
+            state.setSocket(session);
+            missed = state.drainUndelivered();
+            dropped = state.takeDroppedCount();
+            sendToSession(session, "Session resumed.");
+            if (dropped > 0) {
+                sendToSession(session, "Warning: " + dropped + " message(s) were dropped while disconnected.");
+            }
+            missed.forEach(msg -> sendToSession(session, msg));
+        }
+        issueResumeToken(state);
+        logger.info("[{}] Session resumed on socket {} ({} buffered message(s) replayed, {} dropped).",
+                state.getSessionId(), session.getId(), missed.size(), dropped);
+        return true;
+    }
+
     //? ----------- Helpers -----------
 
+    private static int queuedOutbound(WebSocketSessionState state) {
+        int queued = state.getCommandDispatcher() == null ? 0 : state.getCommandDispatcher().getQueuedCount();
+        return queued + (state.getContextNetClient() == null ? 0 : state.getContextNetClient().getQueuedMessageCount());
+    }
+
+    /** Builds the message shown to the user when a translation fails, telling load shedding apart from real errors. */
+    private static String translationErrorMessage(Throwable ex) {
+        Throwable cause = ex;
+        while (cause instanceof java.util.concurrent.CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof java.util.concurrent.RejectedExecutionException) {
+            return "Warning: Server busy. " + cause.getMessage();
+        }
+        return "Error during AI translation: " + cause.getMessage();
+    }
+
+    /** Sends to the socket the session is attached to, buffering the message while a resumable session has none. */
+    private void sendToClient(WebSocketSessionState state, String msg) {
+        synchronized (state) {
+            WebSocketSession socket = state.getSocket();
+            if (socket != null && socket.isOpen()) {
+                sendToSession(socket, msg);
+            } else if (state.getResumeToken() != null) {
+                state.bufferUndelivered(msg, resumeBufferSize);
+            }
+        }
+    }
+
     /** Sends a string message to a specific WebSocket session if it is open. */
     private void sendToSession(WebSocketSession session, String msg) {
         try { 
@@ -0,0 +1,62 @@
+package br.cefet.segaudit.controller;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import br.cefet.segaudit.model.classes.BatchItemResult;
+import br.cefet.segaudit.model.classes.BatchTranslationRequest;
+
+/** REST entry point for batches, for scripted clients that would rather not keep their utterances on the socket. */
+@RestController
+public class TranslationBatchController {
+
+    private final ContextNetWebSocketController sessions;
+
+    public TranslationBatchController(ContextNetWebSocketController sessions) {
+        this.sessions = sessions;
+    }
+
+    /** Translates the utterances in order for the session holding the batch token, with one result per utterance. */
+    @PostMapping("/translate/batch")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> translateBatch(@RequestBody BatchTranslationRequest request) {
+        if (request.batchToken() == null || request.utterances() == null) {
+            return CompletableFuture.completedFuture(error(HttpStatus.BAD_REQUEST, "'batchToken' and 'utterances' are required."));
+        }
+        boolean dispatch = !Boolean.FALSE.equals(request.dispatch());
+        return sessions.submitBatch(request.batchToken(), request.utterances(), dispatch)
+                       .map(future -> future.thenApply(TranslationBatchController::ok).exceptionally(TranslationBatchController::failure))
+                       .orElseGet(() -> CompletableFuture.completedFuture(error(HttpStatus.NOT_FOUND, "No session holds this batch token.")));
+    }
+
+    private static ResponseEntity<Map<String, Object>> ok(List<BatchItemResult> items) {
+        return ResponseEntity.ok(Map.of("items", items));
+    }
+
+    private static ResponseEntity<Map<String, Object>> failure(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof IllegalArgumentException) {
+            return error(HttpStatus.BAD_REQUEST, cause.getMessage());
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return error(HttpStatus.TOO_MANY_REQUESTS, cause.getMessage());
+        }
+        if (cause instanceof CancellationException) {
+            return error(HttpStatus.GONE, "The session closed before the batch ran.");
+        }
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, String.valueOf(cause.getMessage()));
+    }
+
+    private static ResponseEntity<Map<String, Object>> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(Map.of("error", message));
+    }
+}
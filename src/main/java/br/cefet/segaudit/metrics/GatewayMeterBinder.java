@@ -0,0 +1,118 @@
+package br.cefet.segaudit.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.stereotype.Component;
+
+import br.cefet.segaudit.AIContextManager.balancing.OllamaEndpointPool;
+import br.cefet.segaudit.AIContextManager.cache.PromptContextCache;
+import br.cefet.segaudit.AIContextManager.cache.TranslationCache;
+import br.cefet.segaudit.AIContextManager.scheduling.OllamaRequestScheduler;
+import br.cefet.segaudit.AIContextManager.scheduling.OllamaRequestScheduler.Priority;
+import br.cefet.segaudit.AIContextManager.snapshot.ContextSnapshotStore;
+import br.cefet.segaudit.config.InstrumentedThreadPoolExecutor;
+import br.cefet.segaudit.service.HashedTimingWheel;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Exposes the counters the shared components already keep (admission scheduler, endpoint pool,
+ * caches, context snapshots, ContextNet timing wheel, session executor) as gauges, sampled on every scrape instead of updated on the hot path.
+ */
+@Component
+public class GatewayMeterBinder implements MeterBinder {
+
+    private final OllamaRequestScheduler scheduler;
+    private final OllamaEndpointPool endpointPool;
+    private final PromptContextCache contextCache;
+    private final TranslationCache translationCache;
+    private final ExecutorService contextNetExecutor;
+    private final HashedTimingWheel timeouts;
+    private final ContextSnapshotStore snapshotStore;
+
+    public GatewayMeterBinder(OllamaRequestScheduler scheduler, OllamaEndpointPool endpointPool, PromptContextCache contextCache,
+                              TranslationCache translationCache, ExecutorService contextNetExecutor, HashedTimingWheel timeouts,
+                              ContextSnapshotStore snapshotStore) {
+        this.scheduler = scheduler;
+        this.endpointPool = endpointPool;
+        this.contextCache = contextCache;
+        this.translationCache = translationCache;
+        this.contextNetExecutor = contextNetExecutor;
+        this.timeouts = timeouts;
+        this.snapshotStore = snapshotStore;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Priority priority : Priority.values()) {
+            Gauge.builder("segaudit.ollama.scheduler.queued", scheduler, s -> s.getQueueDepth(priority))
+                    .description("Ollama requests waiting for an admission slot")
+                    .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        Gauge.builder("segaudit.ollama.scheduler.in.flight", scheduler, OllamaRequestScheduler::getInFlight)
+                .description("Ollama requests currently admitted")
+                .register(registry);
+        Gauge.builder("segaudit.ollama.scheduler.wait.avg", scheduler, OllamaRequestScheduler::getAverageWaitMillis)
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("segaudit.ollama.scheduler.wait.max", scheduler, OllamaRequestScheduler::getMaxWaitMillis)
+                .baseUnit("milliseconds")
+                .register(registry);
+        FunctionCounter.builder("segaudit.ollama.scheduler.rejected", scheduler, OllamaRequestScheduler::getRejectedCount)
+                .description("Ollama requests shed because the admission queue was full")
+                .register(registry);
+
+        for (OllamaEndpointPool.Endpoint endpoint : endpointPool.getEndpoints()) {
+            Gauge.builder("segaudit.ollama.endpoint.outstanding", endpoint, OllamaEndpointPool.Endpoint::getOutstanding)
+                    .tag("endpoint", endpoint.toString())
+                    .register(registry);
+        }
+        FunctionCounter.builder("segaudit.ollama.hedged", endpointPool, OllamaEndpointPool::getHedgedCount).register(registry);
+        FunctionCounter.builder("segaudit.ollama.hedge.wins", endpointPool, OllamaEndpointPool::getHedgeWinCount).register(registry);
+
+        FunctionCounter.builder("segaudit.cache.context.hits", contextCache, PromptContextCache::getHits).register(registry);
+        FunctionCounter.builder("segaudit.cache.context.misses", contextCache, PromptContextCache::getMisses).register(registry);
+        FunctionCounter.builder("segaudit.cache.context.coalesced", contextCache, PromptContextCache::getCoalesced).register(registry);
+        FunctionCounter.builder("segaudit.cache.translation.hits", translationCache, TranslationCache::getHits).register(registry);
+        FunctionCounter.builder("segaudit.cache.translation.misses", translationCache, TranslationCache::getMisses).register(registry);
+
+        Gauge.builder("segaudit.snapshots.count", snapshotStore, ContextSnapshotStore::size)
+                .description("Session contexts persisted for resumption")
+                .register(registry);
+        Gauge.builder("segaudit.snapshots.disk", snapshotStore, ContextSnapshotStore::getDiskBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("segaudit.snapshots.hits", snapshotStore, ContextSnapshotStore::getHits).register(registry);
+        FunctionCounter.builder("segaudit.snapshots.misses", snapshotStore, ContextSnapshotStore::getMisses).register(registry);
+        FunctionCounter.builder("segaudit.snapshots.evicted", snapshotStore, ContextSnapshotStore::getEvictedCount)
+                .description("Snapshots dropped to stay within the disk budget")
+                .register(registry);
+        FunctionCounter.builder("segaudit.snapshots.compactions", snapshotStore, ContextSnapshotStore::getCompactedSegments).register(registry);
+
+        Gauge.builder("segaudit.contextnet.requests.outstanding", timeouts, HashedTimingWheel::getPendingCount)
+                .description("Agent requests, connection attempts and parked-session expiries waiting on the timing wheel")
+                .register(registry);
+        FunctionCounter.builder("segaudit.contextnet.requests.expired", timeouts, HashedTimingWheel::getExpiredCount)
+                .description("Agent requests, connection attempts and parked sessions that timed out")
+                .register(registry);
+
+        // Threads virtuais não têm fila nem espera a medir.
+        if (contextNetExecutor instanceof ThreadPoolExecutor pool) {
+            Gauge.builder("segaudit.executor.active", pool, ThreadPoolExecutor::getActiveCount).register(registry);
+            Gauge.builder("segaudit.executor.queued", pool, p -> p.getQueue().size()).register(registry);
+        }
+        if (contextNetExecutor instanceof InstrumentedThreadPoolExecutor pool) {
+            Gauge.builder("segaudit.executor.wait.avg", pool, InstrumentedThreadPoolExecutor::getAverageWaitMillis)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            Gauge.builder("segaudit.executor.wait.max", pool, InstrumentedThreadPoolExecutor::getMaxWaitMillis)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+        }
+    }
+}
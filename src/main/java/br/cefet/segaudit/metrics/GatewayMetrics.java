@@ -0,0 +1,188 @@
+package br.cefet.segaudit.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import org.springframework.stereotype.Component;
+
+import br.cefet.segaudit.model.classes.TranslationSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Meters for the session pipeline, exported through {@code /actuator/prometheus}.
+ * Every stage is a {@code segaudit.stage} timer tagged with the stage and its outcome, published as a
+ * histogram so latency percentiles can be aggregated across instances.
+ */
+@Component
+public class GatewayMetrics {
+
+    /** The stages a session goes through, from the WebSocket handshake to the agent's reply. */
+    public enum Stage {
+        /** Configuration received until the AI session is ready. */
+        SESSION_SETUP,
+        /** ContextNet client created until the gateway connection is up. */
+        GATEWAY_CONNECT,
+        /** {@code askOne plans(N)} sent until the agent's reply arrives. */
+        AGENT_PLANS,
+        /** Evaluation of the initial prompt, including context cache hits. */
+        MODEL_INIT,
+        /** One user message, from leaving the inbox until its commands are queued for dispatch. */
+        MESSAGE,
+        /** One batch of user messages, from leaving the inbox until all of its commands are queued for dispatch. */
+        BATCH,
+        /** One translation, whatever served it (cache, rules or model). */
+        TRANSLATION,
+        /** One call to Ollama, including the wait for an admission slot. */
+        OLLAMA_REQUEST,
+        /** A command waiting in the dispatcher for its turn to be sent. */
+        DISPATCH_DELAY,
+        /** A message sent to the agent until the reply that names it as in-reply-to; only the latest message sent is timed. */
+        AGENT_REPLY;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    public enum Outcome {
+        SUCCESS, ERROR, CANCELLED;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    /** What happened to a speculative translation of draft text. */
+    public enum SpeculationOutcome {
+        STARTED, COMMITTED, CANCELLED;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Map<Outcome, Timer>> timers = new EnumMap<>(Stage.class);
+    private final Map<TranslationSource, Counter> translations = new EnumMap<>(TranslationSource.class);
+    private final Counter initializationTokens;
+    private final Counter translationTokens;
+    private final Timer coldLoads;
+    private final Counter contextRollbacks;
+    private final Map<SpeculationOutcome, Counter> speculations = new EnumMap<>(SpeculationOutcome.class);
+
+    public GatewayMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            Map<Outcome, Timer> byOutcome = new EnumMap<>(Outcome.class);
+            for (Outcome outcome : Outcome.values()) {
+                byOutcome.put(outcome, Timer.builder("segaudit.stage")
+                        .description("Time spent in each stage of a session")
+                        .tag("stage", stage.tag)
+                        .tag("outcome", outcome.tag)
+                        .publishPercentileHistogram()
+                        .register(registry));
+            }
+            timers.put(stage, byOutcome);
+        }
+        for (TranslationSource source : TranslationSource.values()) {
+            translations.put(source, Counter.builder("segaudit.translations")
+                    .description("Translations by what served them")
+                    .tag("source", source.name().toLowerCase(Locale.ROOT))
+                    .register(registry));
+        }
+        this.initializationTokens = promptTokens("initialization");
+        this.translationTokens = promptTokens("translation");
+        this.coldLoads = Timer.builder("segaudit.ollama.cold.loads")
+                .description("Model loads caused by Ollama having evicted the model")
+                .register(registry);
+        this.contextRollbacks = Counter.builder("segaudit.model.context.rollbacks")
+                .description("Sessions sent back to their base context after reaching the context threshold")
+                .register(registry);
+        for (SpeculationOutcome outcome : SpeculationOutcome.values()) {
+            speculations.put(outcome, Counter.builder("segaudit.model.speculations")
+                    .description("Speculative translations of draft text, by what became of them")
+                    .tag("outcome", outcome.tag)
+                    .register(registry));
+        }
+    }
+
+    private Counter promptTokens(String kind) {
+        return Counter.builder("segaudit.ollama.prompt.tokens")
+                .description("prompt_eval_count reported by Ollama")
+                .baseUnit("tokens")
+                .tag("kind", kind)
+                .register(registry);
+    }
+
+    /** Metrics kept in memory only, for components built outside Spring (tests, benchmarks). */
+    public static GatewayMetrics inMemory() {
+        return new GatewayMetrics(new SimpleMeterRegistry());
+    }
+
+    /** Records a stage that started at {@code startNanos} ({@link System#nanoTime()}) and ended now. */
+    public void record(Stage stage, long startNanos, Outcome outcome) {
+        timers.get(stage).get(outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void record(Stage stage, long startNanos) {
+        record(stage, startNanos, Outcome.SUCCESS);
+    }
+
+    /** Records the stage when the future completes and returns the same future, so cancellation still reaches it. */
+    public <T> CompletableFuture<T> time(Stage stage, long startNanos, CompletableFuture<T> future) {
+        future.whenComplete((result, ex) -> record(stage, startNanos, outcomeOf(ex)));
+        return future;
+    }
+
+    public <T> CompletableFuture<T> time(Stage stage, CompletableFuture<T> future) {
+        return time(stage, System.nanoTime(), future);
+    }
+
+    /** Counts the prompt tokens Ollama evaluated for an initialization or a translation. */
+    public void countPromptTokens(boolean initialization, int tokens) {
+        if (tokens > 0) {
+            (initialization ? initializationTokens : translationTokens).increment(tokens);
+        }
+    }
+
+    /** Counts a model load reported by Ollama, with its {@code load_duration}. */
+    public void recordColdLoad(long loadDurationNanos) {
+        coldLoads.record(loadDurationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void countContextRollback() {
+        contextRollbacks.increment();
+    }
+
+    public void countSpeculation(SpeculationOutcome outcome) {
+        speculations.get(outcome).increment();
+    }
+
+    public void countTranslation(TranslationSource source) {
+        if (source != null) {
+            translations.get(source).increment();
+        }
+    }
+
+    /** Translations served by the given path since startup. */
+    public long getTranslationCount(TranslationSource source) {
+        return (long) translations.get(source).count();
+    }
+
+    /** Registers a gauge sampled from {@code state} whenever the registry is scraped. */
+    public <T> void gauge(String name, String description, T state, ToDoubleFunction<T> value) {
+        Gauge.builder(name, state, value).description(description).register(registry);
+    }
+
+    private static Outcome outcomeOf(Throwable ex) {
+        if (ex == null) {
+            return Outcome.SUCCESS;
+        }
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        return cause instanceof CancellationException ? Outcome.CANCELLED : Outcome.ERROR;
+    }
+}
@@ -0,0 +1,27 @@
+package br.cefet.segaudit.model.classes;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+/** Outcome of one utterance of a batch: the commands and the path that served them, or why it failed. */
+public record BatchItemResult(int index, String utterance, Status status, List<String> commands, TranslationSource source, String error) {
+
+    public enum Status { OK, ERROR }
+
+    public static BatchItemResult ok(int index, String utterance, TranslationResult result) {
+        return new BatchItemResult(index, utterance, Status.OK, result.getKqmlMessages(), result.getSource(), null);
+    }
+
+    public static BatchItemResult failed(int index, String utterance, Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        String message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        return new BatchItemResult(index, utterance, Status.ERROR, List.of(), null, message);
+    }
+
+    public boolean isOk() {
+        return status == Status.OK;
+    }
+}
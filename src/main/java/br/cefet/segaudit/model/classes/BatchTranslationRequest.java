@@ -0,0 +1,10 @@
+package br.cefet.segaudit.model.classes;
+
+import java.util.List;
+
+/**
+ * Body of {@code POST /translate/batch}. The session is identified by the batch token the server sent over its socket;
+ * {@code dispatch} defaults to {@code true}, {@code false} only returns the translations.
+ */
+public record BatchTranslationRequest(String batchToken, List<String> utterances, Boolean dispatch) {
+}
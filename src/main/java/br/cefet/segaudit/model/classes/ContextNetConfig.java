@@ -10,4 +10,8 @@ public class ContextNetConfig {
     public UUID myUUID;
     @JsonProperty("destinationUUID")
     public UUID destinationUUID;
+    /** Optional; {@code false} disables the shared translation cache for this session. */
+    public Boolean translationCache;
+    /** Optional; token issued to a previous socket whose parked session should be resumed. */
+    public String resumeToken;
 }
@@ -0,0 +1,11 @@
+package br.cefet.segaudit.model.classes;
+
+/** How a session's model context evolves from one translation to the next. */
+public enum ContextPolicy {
+    /** Every translation continues from the previous one until the model's window is full. */
+    GROW,
+    /** Like {@link #GROW}, but once the context reaches the threshold the session goes back to its post-initialization context. */
+    ROLLBACK,
+    /** Every translation starts from the post-initialization context; nothing carries over between utterances. */
+    STATELESS
+}
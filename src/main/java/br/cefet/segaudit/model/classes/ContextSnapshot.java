@@ -0,0 +1,9 @@
+package br.cefet.segaudit.model.classes;
+
+/**
+ * A persisted model context for one client/agent pair: the plans the session was initialized with,
+ * the key of the initial prompt they produced, the context right after initialization and the context
+ * as of the last translation.
+ */
+public record ContextSnapshot(String key, String promptKey, String plansContent, long[] baseContext, long[] context, long savedAtMillis) {
+}
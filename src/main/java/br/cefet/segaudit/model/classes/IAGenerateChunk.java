@@ -0,0 +1,18 @@
+package br.cefet.segaudit.model.classes;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One NDJSON line of a streamed Ollama /api/generate response.
+ * Only the final chunk ({@code done=true}) carries the context and the prompt evaluation count.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record IAGenerateChunk(
+    String response,
+    boolean done,
+    long[] context,
+    @JsonProperty("prompt_eval_count") int promptEvalCount,
+    @JsonProperty("load_duration") long loadDuration,
+    String error
+) {}
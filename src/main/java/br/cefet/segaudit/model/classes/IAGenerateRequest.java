@@ -14,14 +14,29 @@ public record IAGenerateRequest(
     long[] context,
     OllamaOptions options,
     @JsonProperty("stream") boolean stream,
-    @JsonProperty("think") Boolean think
+    @JsonProperty("think") Boolean think,
+    @JsonProperty("keep_alive") String keepAlive
 ) {
     public IAGenerateRequest(String model, String prompt, long[] context, OllamaOptions options) {
-        this(model, prompt, context, options, false, false);
+        this(model, prompt, context, options, false, false, null);
+    }
+
+    public IAGenerateRequest(String model, String prompt, long[] context, OllamaOptions options, boolean stream) {
+        this(model, prompt, context, options, stream, false, null);
     }
 
     public IAGenerateRequest(String model, String prompt, OllamaOptions options) {
-        this(model, prompt, null, options, false, false);
+        this(model, prompt, null, options, false, false, null);
+    }
+
+    /** A request without prompt: Ollama only loads the model (if needed) and restarts its keep_alive timer. */
+    public static IAGenerateRequest preload(String model, String keepAlive) {
+        return new IAGenerateRequest(model, null, null, null, false, null, keepAlive);
+    }
+
+    /** How long Ollama keeps the model in memory after this request (e.g. "10m", "-1" for forever). */
+    public IAGenerateRequest withKeepAlive(String keepAlive) {
+        return new IAGenerateRequest(model, prompt, context, options, stream, think, keepAlive);
     }
 }
 // @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -4,5 +4,10 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 // @JsonIgnoreProperties é crucial porque a resposta tem muitos campos que não nos interessam
 @com.fasterxml.jackson.annotation.JsonIgnoreProperties(ignoreUnknown = true)
-public record IAGenerateResponse(String response, long[] context, @JsonProperty("prompt_eval_count") int promptEvalCount) {
+public record IAGenerateResponse(String response, long[] context, @JsonProperty("prompt_eval_count") int promptEvalCount,
+                                 @JsonProperty("load_duration") long loadDuration) {
+
+    public IAGenerateResponse(String response, long[] context, int promptEvalCount) {
+        this(response, context, promptEvalCount, 0);
+    }
 }
\ No newline at end of file
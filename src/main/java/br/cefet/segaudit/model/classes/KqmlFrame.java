@@ -0,0 +1,192 @@
+package br.cefet.segaudit.model.classes;
+
+/**
+ * Zero-copy view of a KQML frame {@code <id[->inReplyTo],sender,performative,receiver,content>}.
+ * {@link #parse} scans the text once and only records field offsets; strings are created only when a
+ * caller asks for one with {@link #getString}. Malformed input yields {@code null} instead of an exception.
+ */
+public final class KqmlFrame {
+
+    public enum Field { ID, IN_REPLY_TO, SENDER, PERFORMATIVE, RECEIVER, CONTENT }
+
+    private static final int FIELD_COUNT = Field.values().length;
+
+    private final CharSequence source;
+    // Pares início/fim por campo; -1 quando o campo não existe (só IN_REPLY_TO é opcional).
+    private final int[] bounds = new int[FIELD_COUNT * 2];
+
+    private KqmlFrame(CharSequence source) {
+        this.source = source;
+    }
+
+    /** Parses the frame, or returns {@code null} if the text is not a well-formed KQML frame. */
+    public static KqmlFrame parse(CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start < 2 || text.charAt(start) != '<' || text.charAt(end - 1) != '>') {
+            return null;
+        }
+
+        KqmlFrame frame = new KqmlFrame(text);
+        int[] commas = new int[4];
+        int found = 0;
+        int arrow = -1;
+        for (int i = start + 1; i < end - 1 && found < 4; i++) {
+            char c = text.charAt(i);
+            if (c == ',') {
+                commas[found++] = i;
+            } else if (found == 0 && arrow == -1 && c == '-' && i + 1 < end - 1 && text.charAt(i + 1) == '>') {
+                arrow = i;
+            }
+        }
+        if (found < 4) {
+            return null;
+        }
+
+        if (arrow == -1) {
+            frame.set(Field.ID, start + 1, commas[0]);
+            frame.set(Field.IN_REPLY_TO, -1, -1);
+        } else {
+            frame.set(Field.ID, start + 1, arrow);
+            frame.set(Field.IN_REPLY_TO, arrow + 2, commas[0]);
+        }
+        frame.set(Field.SENDER, commas[0] + 1, commas[1]);
+        frame.set(Field.PERFORMATIVE, commas[1] + 1, commas[2]);
+        frame.set(Field.RECEIVER, commas[2] + 1, commas[3]);
+        frame.set(Field.CONTENT, commas[3] + 1, end - 1);
+        return frame;
+    }
+
+    /** Stores the field bounds with surrounding whitespace removed. */
+    private void set(Field field, int from, int to) {
+        if (from >= 0) {
+            while (from < to && Character.isWhitespace(source.charAt(from))) {
+                from++;
+            }
+            while (to > from && Character.isWhitespace(source.charAt(to - 1))) {
+                to--;
+            }
+        }
+        bounds[field.ordinal() * 2] = from;
+        bounds[field.ordinal() * 2 + 1] = to;
+    }
+
+    public boolean has(Field field) {
+        return bounds[field.ordinal() * 2] >= 0;
+    }
+
+    public boolean isReply() {
+        return has(Field.IN_REPLY_TO);
+    }
+
+    public int length(Field field) {
+        return has(field) ? bounds[field.ordinal() * 2 + 1] - bounds[field.ordinal() * 2] : 0;
+    }
+
+    /** Compares a field with the given text without allocating. */
+    public boolean fieldEquals(Field field, CharSequence expected) {
+        if (!has(field) || expected == null || length(field) != expected.length()) {
+            return false;
+        }
+        int offset = bounds[field.ordinal() * 2];
+        for (int i = 0; i < expected.length(); i++) {
+            if (source.charAt(offset + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a field of the form {@code prefix + digits} (e.g. {@code mid42}) as the number after the prefix, in place.
+     * Returns -1 when the field is absent, has another form or does not fit in a {@code long}.
+     */
+    public long parseId(Field field, String prefix) {
+        if (!has(field)) {
+            return -1;
+        }
+        int from = bounds[field.ordinal() * 2];
+        int to = bounds[field.ordinal() * 2 + 1];
+        int digits = to - from - prefix.length();
+        if (digits < 1 || digits > 18) {
+            return -1;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (source.charAt(from + i) != prefix.charAt(i)) {
+                return -1;
+            }
+        }
+        long id = 0;
+        for (int i = from + prefix.length(); i < to; i++) {
+            char c = source.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+
+    /** A view of the field backed by the original text; {@code null} if the field is absent. */
+    public CharSequence get(Field field) {
+        return has(field) ? new Slice(source, bounds[field.ordinal() * 2], bounds[field.ordinal() * 2 + 1]) : null;
+    }
+
+    /** Materializes the field as a string; {@code null} if the field is absent. */
+    public String getString(Field field) {
+        return has(field) ? source.subSequence(bounds[field.ordinal() * 2], bounds[field.ordinal() * 2 + 1]).toString() : null;
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+
+    /** Read-only window over another character sequence. */
+    private static final class Slice implements CharSequence {
+        private final CharSequence source;
+        private final int from;
+        private final int to;
+
+        Slice(CharSequence source, int from, int to) {
+            this.source = source;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int length() {
+            return to - from;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return source.charAt(from + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length() || start > end) {
+                throw new IndexOutOfBoundsException();
+            }
+            return new Slice(source, from + start, from + end);
+        }
+
+        @Override
+        public String toString() {
+            return source.subSequence(from, to).toString();
+        }
+    }
+}
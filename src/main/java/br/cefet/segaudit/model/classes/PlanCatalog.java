@@ -0,0 +1,223 @@
+package br.cefet.segaudit.model.classes;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Parsed view of the plans an agent exposes through {@code plans("/**@Description ...*&#47; name(X) ...")}.
+ * The plans string is scanned once into entries indexed by name and by description keyword, so lookups
+ * stay constant-time even for agents with hundreds of plans.
+ */
+public class PlanCatalog {
+
+    /** A single plan: its name, parameter names and the text of its {@code @Description} comment. */
+    public record PlanEntry(String name, List<String> parameters, String description) {
+        public int arity() {
+            return parameters.size();
+        }
+
+        /** The plan as it appears in a command, e.g. {@code up(X)}. */
+        public String signature() {
+            return parameters.isEmpty() ? name : name + "(" + String.join(",", parameters) + ")";
+        }
+    }
+
+    private static final PlanCatalog EMPTY = new PlanCatalog("", List.of());
+
+    private final String plansContent;
+    private final List<PlanEntry> entries;
+    private final Map<String, PlanEntry> byName = new HashMap<>();
+    private final Map<String, List<PlanEntry>> byLowerCaseName = new HashMap<>();
+    private final Map<String, List<PlanEntry>> byKeyword = new HashMap<>();
+
+    private PlanCatalog(String plansContent, List<PlanEntry> entries) {
+        this.plansContent = plansContent;
+        this.entries = Collections.unmodifiableList(entries);
+        for (PlanEntry entry : entries) {
+            byName.putIfAbsent(entry.name(), entry);
+            byLowerCaseName.computeIfAbsent(entry.name().toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(entry);
+            Set<String> keywords = new LinkedHashSet<>(keywordsOf(entry.description()));
+            keywords.addAll(keywordsOf(entry.name().replaceAll("([a-z])([A-Z])", "$1 $2")));
+            keywords.add(entry.name().toLowerCase(Locale.ROOT));
+            for (String keyword : keywords) {
+                byKeyword.computeIfAbsent(keyword, k -> new ArrayList<>()).add(entry);
+            }
+        }
+    }
+
+    public static PlanCatalog empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Parses the agent reply. Accepts either the full {@code plans("...")} literal, in which case only the text
+     * between the first and the last quote is used, or the bare plans text.
+     */
+    public static PlanCatalog parse(String agentPlans) {
+        if (agentPlans == null || agentPlans.isBlank()) {
+            return EMPTY;
+        }
+        int firstQuote = agentPlans.indexOf('"');
+        int lastQuote = agentPlans.lastIndexOf('"');
+        String content = firstQuote != -1 && lastQuote > firstQuote
+                ? agentPlans.substring(firstQuote + 1, lastQuote)
+                : agentPlans;
+        return new PlanCatalog(content, scan(content));
+    }
+
+    /** Single left-to-right pass: a description comment applies to the plan signature that follows it. */
+    private static List<PlanEntry> scan(String content) {
+        List<PlanEntry> entries = new ArrayList<>();
+        String pendingDescription = "";
+        int length = content.length();
+        int i = 0;
+        while (i < length) {
+            char c = content.charAt(i);
+            if (content.startsWith("/*", i)) {
+                int end = content.indexOf("*/", i + 2);
+                int bodyEnd = end == -1 ? length : end;
+                String body = content.substring(i + (content.startsWith("/**", i) ? 3 : 2), bodyEnd).trim();
+                if (body.startsWith("@Description")) {
+                    body = body.substring("@Description".length()).trim();
+                }
+                pendingDescription = body;
+                i = end == -1 ? length : end + 2;
+            } else if (Character.isLetter(c) || c == '_') {
+                int nameStart = i;
+                while (i < length && (Character.isLetterOrDigit(content.charAt(i)) || content.charAt(i) == '_')) {
+                    i++;
+                }
+                String name = content.substring(nameStart, i);
+                while (i < length && Character.isWhitespace(content.charAt(i))) {
+                    i++;
+                }
+                List<String> parameters = List.of();
+                if (i < length && content.charAt(i) == '(') {
+                    int depth = 0;
+                    int argsStart = i + 1;
+                    for (; i < length; i++) {
+                        char p = content.charAt(i);
+                        if (p == '(') {
+                            depth++;
+                        } else if (p == ')' && --depth == 0) {
+                            break;
+                        }
+                    }
+                    parameters = splitParameters(content.substring(argsStart, Math.min(i, length)));
+                    i++;
+                }
+                entries.add(new PlanEntry(name, parameters, pendingDescription));
+                pendingDescription = "";
+            } else {
+                i++;
+            }
+        }
+        return entries;
+    }
+
+    private static List<String> splitParameters(String args) {
+        if (args.isBlank()) {
+            return List.of();
+        }
+        List<String> parameters = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < args.length(); i++) {
+            char c = args.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                parameters.add(args.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        parameters.add(args.substring(start).trim());
+        return List.copyOf(parameters);
+    }
+
+    /** Lower-cases, strips accents and splits the text into alphanumeric words. */
+    public static List<String> keywordsOf(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                                      .replaceAll("\\p{M}", "")
+                                      .toLowerCase(Locale.ROOT);
+        List<String> keywords = new ArrayList<>();
+        for (String word : normalized.split("[^a-z0-9]+")) {
+            if (!word.isEmpty()) {
+                keywords.add(word);
+            }
+        }
+        return keywords;
+    }
+
+    /** The plans text as sent by the agent, without the surrounding {@code plans("...")}. */
+    public String getPlansContent() {
+        return plansContent;
+    }
+
+    public List<PlanEntry> getEntries() {
+        return entries;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /** Exact, case-sensitive lookup by plan name. */
+    public PlanEntry find(String name) {
+        return byName.get(name);
+    }
+
+    /** Case-insensitive lookup; returns {@code null} when the name is unknown or ambiguous. */
+    public PlanEntry findIgnoreCase(String name) {
+        List<PlanEntry> matches = byLowerCaseName.get(name.toLowerCase(Locale.ROOT));
+        return matches != null && matches.size() == 1 ? matches.get(0) : null;
+    }
+
+    /** Plans whose name or description contains the given (normalized) keyword. */
+    public List<PlanEntry> findByKeyword(String keyword) {
+        return byKeyword.getOrDefault(keyword, List.of());
+    }
+
+    /**
+     * Checks a command produced by the model against the catalog. Returns the command with the plan name
+     * spelled as the agent declared it, or empty when the plan does not exist or the arity does not match.
+     */
+    public Optional<String> validate(String command) {
+        String trimmed = command.trim();
+        int open = trimmed.indexOf('(');
+        String name = open == -1 ? trimmed : trimmed.substring(0, open).trim();
+        int arity = 0;
+        if (open != -1) {
+            if (!trimmed.endsWith(")")) {
+                return Optional.empty();
+            }
+            arity = splitParameters(trimmed.substring(open + 1, trimmed.length() - 1)).size();
+        }
+
+        PlanEntry entry = find(name);
+        if (entry == null) {
+            entry = findIgnoreCase(name);
+        }
+        if (entry == null || entry.arity() != arity) {
+            return Optional.empty();
+        }
+        return Optional.of(open == -1 ? entry.name() : entry.name() + trimmed.substring(open));
+    }
+}
@@ -5,10 +5,16 @@ import java.util.List;
 public class TranslationResult {
     private final List<String> kqmlMessages;
     private final int promptEvalCount;
+    private final TranslationSource source;
 
     public TranslationResult(List<String> kqmlMessages, int promptEvalCount) {
+        this(kqmlMessages, promptEvalCount, TranslationSource.MODEL);
+    }
+
+    public TranslationResult(List<String> kqmlMessages, int promptEvalCount, TranslationSource source) {
         this.kqmlMessages = kqmlMessages;
         this.promptEvalCount = promptEvalCount;
+        this.source = source;
     }
 
     public List<String> getKqmlMessages() {
@@ -18,4 +24,8 @@ public class TranslationResult {
     public int getPromptEvalCount() {
         return promptEvalCount;
     }
-}
\ No newline at end of file
+
+    public TranslationSource getSource() {
+        return source;
+    }
+}
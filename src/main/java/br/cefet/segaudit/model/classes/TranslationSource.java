@@ -0,0 +1,13 @@
+package br.cefet.segaudit.model.classes;
+
+/** Identifies which path produced a {@link TranslationResult}. */
+public enum TranslationSource {
+    /** Generated by the language model. */
+    MODEL,
+    /** Served from the exact-match translation cache without calling the model. */
+    CACHE,
+    /** Produced by a deterministic pre-translator matching the utterance against the agent plans. */
+    RULES,
+    /** Generated by the model from draft text while the user was still typing, and reused when the same text was sent. */
+    SPECULATION
+}
@@ -1,21 +1,110 @@
 package br.cefet.segaudit.model.classes;
 
 import br.cefet.segaudit.service.AIService;
+import br.cefet.segaudit.service.CommandDispatcher;
 import br.cefet.segaudit.service.ContextNetClient;
+import br.cefet.segaudit.service.HashedTimingWheel;
+import br.cefet.segaudit.service.SessionInbox;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.springframework.web.socket.WebSocketSession;
+
 /**
  * Encapsulates all state related to a single WebSocket session.
- * This includes the ContextNet client, the AI service, and the initialization status.
+ * This includes the ContextNet client, the AI service, the inbound message queue, the outbound command dispatcher
+ * and the initialization status. The state outlives its socket while the session is parked for resumption.
  */
 public class WebSocketSessionState {
 
+    private final String sessionId;
+    private volatile WebSocketSession socket;
+    private volatile String resumeToken;
+    private volatile String batchToken;
+    private volatile HashedTimingWheel.Timeout parkTimeout;
+    private final Deque<String> undelivered = new ArrayDeque<>();
+    private int droppedWhileDetached;
     private ContextNetClient contextNetClient;
     private AIService aiService;
+    private CommandDispatcher commandDispatcher;
+    private SessionInbox inbox;
     private final AtomicBoolean isInitialized = new AtomicBoolean(false);
     private final AtomicBoolean isInitializing = new AtomicBoolean(false);
-    private final AtomicBoolean isProcessingMessage = new AtomicBoolean(false);
+
+    public WebSocketSessionState(WebSocketSession socket) {
+        this.sessionId = socket.getId();
+        this.socket = socket;
+    }
+
+    /** Id of the socket that opened the session; the AI and ContextNet state stay keyed by it after a resumption. */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /** The socket currently attached, or {@code null} while the session is parked. */
+    public WebSocketSession getSocket() {
+        return socket;
+    }
+
+    public void setSocket(WebSocketSession socket) {
+        this.socket = socket;
+    }
+
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
+    public void setResumeToken(String resumeToken) {
+        this.resumeToken = resumeToken;
+    }
+
+    /** Token that identifies the session to {@code POST /translate/batch}; unlike the resume token it lasts as long as the session. */
+    public String getBatchToken() {
+        return batchToken;
+    }
+
+    public void setBatchToken(String batchToken) {
+        this.batchToken = batchToken;
+    }
+
+    public HashedTimingWheel.Timeout getParkTimeout() {
+        return parkTimeout;
+    }
+
+    public void setParkTimeout(HashedTimingWheel.Timeout parkTimeout) {
+        this.parkTimeout = parkTimeout;
+    }
+
+    /** Keeps a message the client could not receive, dropping the oldest one once {@code capacity} are waiting. */
+    public synchronized void bufferUndelivered(String message, int capacity) {
+        if (capacity <= 0) {
+            droppedWhileDetached++;
+            return;
+        }
+        if (undelivered.size() >= capacity) {
+            undelivered.pollFirst();
+            droppedWhileDetached++;
+        }
+        undelivered.addLast(message);
+    }
+
+    /** Takes the buffered messages, oldest first. */
+    public synchronized List<String> drainUndelivered() {
+        List<String> messages = new ArrayList<>(undelivered);
+        undelivered.clear();
+        return messages;
+    }
+
+    /** Number of messages dropped from a full buffer since the last call. */
+    public synchronized int takeDroppedCount() {
+        int dropped = droppedWhileDetached;
+        droppedWhileDetached = 0;
+        return dropped;
+    }
 
     public ContextNetClient getContextNetClient() {
         return contextNetClient;
@@ -33,6 +122,22 @@ public class WebSocketSessionState {
         this.aiService = aiService;
     }
 
+    public CommandDispatcher getCommandDispatcher() {
+        return commandDispatcher;
+    }
+
+    public void setCommandDispatcher(CommandDispatcher commandDispatcher) {
+        this.commandDispatcher = commandDispatcher;
+    }
+
+    public SessionInbox getInbox() {
+        return inbox;
+    }
+
+    public void setInbox(SessionInbox inbox) {
+        this.inbox = inbox;
+    }
+
     public boolean isInitialized() {
         return isInitialized.get();
     }
@@ -48,19 +153,4 @@ public class WebSocketSessionState {
     public void setInitializing(boolean initializing) {
         isInitializing.set(initializing);
     }
-
-    /**
-     * Tenta marcar a sessão como "processando uma mensagem".
-     * @return {@code true} se o bloqueio foi adquirido com sucesso, {@code false} caso contrário.
-     */
-    public boolean tryStartProcessing() {
-        return isProcessingMessage.compareAndSet(false, true);
-    }
-
-    /**
-     * Marca a sessão como "não mais processando uma mensagem".
-     */
-    public void finishProcessing() {
-        isProcessingMessage.set(false);
-    }
 }
\ No newline at end of file
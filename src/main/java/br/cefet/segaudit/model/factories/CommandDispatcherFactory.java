@@ -0,0 +1,40 @@
+package br.cefet.segaudit.model.factories;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import br.cefet.segaudit.metrics.GatewayMetrics;
+import br.cefet.segaudit.service.CommandDispatcher;
+import br.cefet.segaudit.service.ContextNetClient;
+
+@Component
+public class CommandDispatcherFactory {
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService contextNetExecutor;
+    private final long delayMillis;
+    private final boolean adaptive;
+    private final GatewayMetrics metrics;
+
+    public CommandDispatcherFactory(ScheduledExecutorService scheduler, ExecutorService contextNetExecutor, GatewayMetrics metrics,
+                                    @Value("${contextnet.dispatch.delay-ms:1000}") long delayMillis,
+                                    @Value("${contextnet.dispatch.adaptive:false}") boolean adaptive) {
+        this.scheduler = scheduler;
+        this.contextNetExecutor = contextNetExecutor;
+        this.delayMillis = delayMillis;
+        this.adaptive = adaptive;
+        this.metrics = metrics;
+    }
+
+    /** In adaptive mode the dispatcher listens to the client's replies, so a reply to the last command releases the next one. */
+    public CommandDispatcher create(String sessionId, ContextNetClient client) {
+        CommandDispatcher dispatcher = new CommandDispatcher(sessionId, client, scheduler, contextNetExecutor, delayMillis, adaptive, metrics);
+        if (adaptive) {
+            client.setReplyListener(dispatcher::onAgentReply);
+        }
+        return dispatcher;
+    }
+}
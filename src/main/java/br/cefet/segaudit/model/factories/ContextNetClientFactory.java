@@ -1,26 +1,41 @@
 package br.cefet.segaudit.model.factories;
 
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import br.cefet.segaudit.metrics.GatewayMetrics;
 import br.cefet.segaudit.model.classes.ContextNetConfig;
 import br.cefet.segaudit.service.ContextNetClient;
+import br.cefet.segaudit.service.GatewayConnectionManager;
+import br.cefet.segaudit.service.HashedTimingWheel;
 
 @Component
 public class ContextNetClientFactory {
 
     private final ExecutorService contextNetExecutor;
-    private final ScheduledExecutorService scheduler;
+    private final HashedTimingWheel timeouts;
+    private final GatewayConnectionManager gatewayManager;
+    private final boolean multiplex;
+    private final GatewayMetrics metrics;
 
-    public ContextNetClientFactory(ExecutorService contextNetExecutor, ScheduledExecutorService scheduler) {
+    public ContextNetClientFactory(ExecutorService contextNetExecutor, HashedTimingWheel timeouts,
+                                   GatewayConnectionManager gatewayManager, GatewayMetrics metrics,
+                                   @Value("${contextnet.gateway.multiplex:false}") boolean multiplex) {
         this.contextNetExecutor = contextNetExecutor;
-        this.scheduler = scheduler;
+        this.timeouts = timeouts;
+        this.gatewayManager = gatewayManager;
+        this.multiplex = multiplex;
+        this.metrics = metrics;
     }
 
+    /** Creates a client over a shared gateway connection when multiplexing is on, or over its own connection otherwise. */
     public ContextNetClient create(ContextNetConfig config, Consumer<String> messageHandler) {
-        return new ContextNetClient(config, messageHandler, contextNetExecutor, scheduler);
+        if (multiplex) {
+            return new ContextNetClient(config, messageHandler, gatewayManager, timeouts, metrics);
+        }
+        return new ContextNetClient(config, messageHandler, contextNetExecutor, timeouts, metrics);
     }
 }
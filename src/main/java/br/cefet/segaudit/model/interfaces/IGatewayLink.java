@@ -0,0 +1,12 @@
+package br.cefet.segaudit.model.interfaces;
+
+/** Outbound path from a {@code ContextNetClient} to the ContextNet gateway. */
+public interface IGatewayLink {
+  /** Sends a KQML message to the session's destination agent. */
+  void sendMessage(String message);
+  /** Tells the link that a reply to the message with the given numeric id belongs to this session. */
+  default void expectReply(long messageId) {
+  }
+  /** Releases the link; a dedicated link closes its connection, a shared one only unregisters the session. */
+  void close();
+}
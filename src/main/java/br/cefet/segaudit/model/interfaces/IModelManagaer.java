@@ -1,13 +1,67 @@
 package br.cefet.segaudit.model.interfaces;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import br.cefet.segaudit.model.classes.BatchItemResult;
+import br.cefet.segaudit.model.classes.PlanCatalog;
 import br.cefet.segaudit.model.classes.TranslationResult;
 
 public interface IModelManagaer {
   /** Initializes a user session with the base context and agent-specific plans. */
   int initializeUserSession(String sessionId, String agentPlans);
+  /** Initializes a user session from an already parsed plan catalog. */
+  default int initializeUserSession(String sessionId, PlanCatalog catalog) {
+    return initializeUserSession(sessionId, "plans(\"" + catalog.getPlansContent() + "\")");
+  }
+  /** Initializes a user session without blocking the caller; completes with the initial prompt cost in tokens. */
+  default CompletableFuture<Integer> initializeUserSessionAsync(String sessionId, PlanCatalog catalog) {
+    return CompletableFuture.supplyAsync(() -> initializeUserSession(sessionId, catalog));
+  }
+  /**
+   * Restores the context persisted for the client/agent pair identified by {@code clientKey} if it was built from
+   * {@code agentPlans}, the plans the agent reports now; returns false when the session must be initialized.
+   * From now on the session context is persisted under that key.
+   */
+  default boolean resumeUserSession(String sessionId, String clientKey, PlanCatalog agentPlans) {
+    return false;
+  }
   /** Translates a user message into a list of KQML commands using the session context. */
   CompletableFuture<TranslationResult> translateMessage(String sessionId, String userMessage);
+  /** Translates a user message, invoking {@code onCommand} for each KQML command as soon as it is produced. */
+  default CompletableFuture<TranslationResult> translateMessageStreaming(String sessionId, String userMessage, Consumer<String> onCommand) {
+    return translateMessage(sessionId, userMessage).thenApply(result -> {
+      result.getKqmlMessages().forEach(onCommand);
+      return result;
+    });
+  }
+  /**
+   * Translates several messages of one session and completes with one result per message, in order; a failed
+   * message does not fail the batch. This default translates them one after the other; implementations may run up
+   * to {@code parallelism} at once.
+   */
+  default CompletableFuture<List<BatchItemResult>> translateBatch(String sessionId, List<String> userMessages, int parallelism) {
+    List<BatchItemResult> results = new ArrayList<>(userMessages.size());
+    CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+    for (int i = 0; i < userMessages.size(); i++) {
+      int index = i;
+      String message = userMessages.get(i);
+      chain = chain.thenCompose(v -> translateMessage(sessionId, message)
+          .handle((result, ex) -> results.add(ex == null ? BatchItemResult.ok(index, message, result) : BatchItemResult.failed(index, message, ex)))
+          .thenAccept(added -> { }));
+    }
+    return chain.thenApply(v -> List.copyOf(results));
+  }
+  /**
+   * Starts translating text the user is still typing, replacing the session's previous draft. A later
+   * {@link #translateMessage} with the same text reuses the result instead of calling the model again.
+   */
+  default void speculate(String sessionId, String draftText) {
+  }
+  /** Enables or disables reuse of cached translations for the given session. */
+  default void setTranslationCacheEnabled(String sessionId, boolean enabled) {
+  }
   /** Ends the AI model session for the given session ID. */
   void endSession(String sessionId);
 }
@@ -0,0 +1,11 @@
+package br.cefet.segaudit.model.interfaces;
+
+import java.util.List;
+import java.util.Optional;
+
+import br.cefet.segaudit.model.classes.PlanCatalog;
+
+public interface IPreTranslator {
+  /** Returns the commands for the utterance when the mapping is unambiguous, or empty to defer to the language model. */
+  Optional<List<String>> tryTranslate(String utterance, PlanCatalog catalog);
+}
@@ -2,11 +2,15 @@ package br.cefet.segaudit.service;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import br.cefet.segaudit.metrics.GatewayMetrics;
+import br.cefet.segaudit.metrics.GatewayMetrics.Stage;
 import br.cefet.segaudit.model.interfaces.IModelManagaer;
+import br.cefet.segaudit.model.classes.BatchItemResult;
+import br.cefet.segaudit.model.classes.PlanCatalog;
 import br.cefet.segaudit.model.classes.TranslationResult;
 
 public class AIService {
@@ -15,31 +19,56 @@ public class AIService {
     public IModelManagaer modelManagaer;
 
     private final String sessionId;
-    private final Executor executor;
+    private final GatewayMetrics metrics;
 
-    public AIService(IModelManagaer modelManager, String sessionId, Executor executor) {
+    public AIService(IModelManagaer modelManager, String sessionId, GatewayMetrics metrics) {
         this.modelManagaer = modelManager;
         this.sessionId = sessionId;
-        this.executor = executor;
+        this.metrics = metrics;
     }
 
-    public CompletableFuture<Void> initialize(String agentPlans) {
-        return CompletableFuture.runAsync(() -> {
-            int initialContextCost = this.modelManagaer.initializeUserSession(sessionId, agentPlans);
+    /** Initializes the model session; no thread is held while the model evaluates the initial prompt. */
+    public CompletableFuture<Void> initialize(PlanCatalog catalog) {
+        return metrics.time(Stage.MODEL_INIT, this.modelManagaer.initializeUserSessionAsync(sessionId, catalog)).thenAccept(initialContextCost -> {
             logger.info("[{}] Initial context cost (prompt_eval_count): {} tokens.", sessionId, initialContextCost);
             if (initialContextCost > 2000) {
                 logger.warn("[{}] ATTENTION: Initial context size is over 2000 tokens. This may impact performance.", sessionId);
             }
-        }, executor);
+        });
     }
     public CompletableFuture<List<String>> getKQMLMessages(String sessionId, String message) {
-        return this.modelManagaer.translateMessage(sessionId, message)
+        return metrics.time(Stage.TRANSLATION, this.modelManagaer.translateMessage(sessionId, message))
             .thenApply(result -> {
-                logger.info("[{}] Translation prompt cost (prompt_eval_count): {} tokens.", sessionId, result.getPromptEvalCount());
+                logger.info("[{}] Translation served by {}, prompt cost (prompt_eval_count): {} tokens.", sessionId, result.getSource(), result.getPromptEvalCount());
                 return result.getKqmlMessages();
-            }).exceptionally(e -> {
-                logger.error("[{}] Error processing AI translation", sessionId, e);
-                return List.of("Error processing AI translation: " + e.getMessage());
+            }).whenComplete((result, e) -> {
+                if (e != null) {
+                    logger.error("[{}] Error processing AI translation", sessionId, e);
+                }
+            });
+    }
+
+    /** Streams the translation of a message, handing each KQML command to {@code onCommand} as soon as the model emits it. */
+    public CompletableFuture<List<String>> streamKQMLMessages(String sessionId, String message, Consumer<String> onCommand) {
+        return metrics.time(Stage.TRANSLATION, this.modelManagaer.translateMessageStreaming(sessionId, message, onCommand))
+            .thenApply(result -> {
+                logger.info("[{}] Translation served by {}, prompt cost (prompt_eval_count): {} tokens.", sessionId, result.getSource(), result.getPromptEvalCount());
+                return result.getKqmlMessages();
+            });
+    }
+
+    /** Translates draft text ahead of time; sending the same text afterwards reuses that translation. */
+    public void speculate(String sessionId, String draftText) {
+        this.modelManagaer.speculate(sessionId, draftText);
+    }
+
+    /** Translates several messages with at most {@code parallelism} model calls at a time; results come back in order, one per message. */
+    public CompletableFuture<List<BatchItemResult>> translateBatch(String sessionId, List<String> messages, int parallelism) {
+        return this.modelManagaer.translateBatch(sessionId, messages, parallelism)
+            .thenApply(results -> {
+                long failed = results.stream().filter(item -> !item.isOk()).count();
+                logger.info("[{}] Batch of {} message(s) translated, {} failed.", sessionId, results.size(), failed);
+                return results;
             });
     }
 }
\ No newline at end of file
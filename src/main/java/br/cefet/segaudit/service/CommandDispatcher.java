@@ -0,0 +1,175 @@
+package br.cefet.segaudit.service;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.cefet.segaudit.metrics.GatewayMetrics;
+
+/**
+ * Per-session outbound queue that paces KQML commands sent to the agent using the shared scheduler.
+ * The scheduler only measures the delay; the send itself, which may block on the gateway, runs on the worker executor.
+ * No thread is held between commands: each send schedules the next one after the configured delay,
+ * or earlier in adaptive mode when the agent replies to the previous command. Only a reply whose
+ * in-reply-to is that command's id counts; telemetry and replies to anything else leave the delay running.
+ */
+public class CommandDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandDispatcher.class);
+
+    private final String sessionId;
+    private final ContextNetClient client;
+    private final ScheduledExecutorService scheduler;
+    private final Executor sendExecutor;
+    private final long delayMillis;
+    private final boolean adaptive;
+    private final GatewayMetrics metrics;
+
+    private final Object lock = new Object();
+    private final Queue<PendingCommand> queue = new ArrayDeque<>();
+    private ScheduledFuture<?> nextSend;
+    /** Identifies the send scheduled last; a send cancelled after its timer fired finds it replaced and does nothing. */
+    private Object nextSendToken;
+    private long awaitedReplyId = -1;
+    private long lastSentAt = 0;
+    private boolean closed = false;
+
+    public CommandDispatcher(String sessionId, ContextNetClient client, ScheduledExecutorService scheduler, Executor sendExecutor,
+                             long delayMillis, boolean adaptive, GatewayMetrics metrics) {
+        this.sessionId = sessionId;
+        this.client = client;
+        this.scheduler = scheduler;
+        this.sendExecutor = sendExecutor;
+        this.delayMillis = delayMillis;
+        this.adaptive = adaptive;
+        this.metrics = metrics;
+    }
+
+    /** Enqueues a single command; the future completes once it has been handed to ContextNet. */
+    public CompletableFuture<Void> submit(String kqmlMessage) {
+        PendingCommand command = new PendingCommand(kqmlMessage);
+        synchronized (lock) {
+            if (closed) {
+                command.sent.cancel(false);
+                return command.sent;
+            }
+            queue.add(command);
+            scheduleNextLocked();
+        }
+        return command.sent;
+    }
+
+    /** Enqueues commands in order; the future completes once the last one has been sent. */
+    public CompletableFuture<Void> submitAll(List<String> kqmlMessages) {
+        CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+        for (String kqmlMessage : kqmlMessages) {
+            last = submit(kqmlMessage);
+        }
+        return last;
+    }
+
+    /** Signals that the agent replied to the message with the given id; in adaptive mode a reply to the last command sends the next one immediately. */
+    public void onAgentReply(long inReplyTo) {
+        if (!adaptive) {
+            return;
+        }
+        synchronized (lock) {
+            if (inReplyTo != awaitedReplyId) {
+                return;
+            }
+            awaitedReplyId = -1;
+            lastSentAt = 0; // A resposta libera o próximo comando sem esperar o atraso completo.
+            if (nextSend != null) {
+                nextSend.cancel(false);
+                nextSend = null;
+                nextSendToken = null;
+            }
+            scheduleNextLocked();
+        }
+    }
+
+    /** Number of commands waiting to be sent. */
+    public int getQueuedCount() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /** Drops every queued command and stops scheduling new sends. */
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            if (nextSend != null) {
+                nextSend.cancel(false);
+                nextSend = null;
+            }
+            if (!queue.isEmpty()) {
+                logger.warn("[{}] Discarding {} queued command(s) on dispatcher close.", sessionId, queue.size());
+            }
+            queue.forEach(command -> command.sent.cancel(false));
+            queue.clear();
+        }
+    }
+
+    private void scheduleNextLocked() {
+        if (nextSend != null || queue.isEmpty() || closed) {
+            return;
+        }
+        long wait = Math.max(0, lastSentAt + delayMillis - System.currentTimeMillis());
+        Object token = new Object();
+        nextSendToken = token;
+        // O envio pode bloquear no gateway: só o atraso fica na thread compartilhada do scheduler.
+        nextSend = scheduler.schedule(() -> sendExecutor.execute(() -> sendNext(token)), wait, TimeUnit.MILLISECONDS);
+    }
+
+    private void sendNext(Object token) {
+        PendingCommand command;
+        long messageId = client.nextMessageId();
+        synchronized (lock) {
+            if (token != nextSendToken) {
+                return;
+            }
+            nextSend = null;
+            nextSendToken = null;
+            command = queue.poll();
+            if (command == null || closed) {
+                return;
+            }
+            lastSentAt = System.currentTimeMillis();
+            // Registrado antes do envio: a resposta pode chegar antes de send() retornar.
+            awaitedReplyId = adaptive ? messageId : -1;
+        }
+
+        try {
+            client.send(messageId, "achieve", command.kqmlMessage);
+            logger.debug("[{}] Sent to ContextNet: achieve {} (id {}{})", sessionId, command.kqmlMessage, ContextNetClient.MESSAGE_ID_PREFIX, messageId);
+            metrics.record(GatewayMetrics.Stage.DISPATCH_DELAY, command.enqueuedAt);
+            command.sent.complete(null);
+        } catch (RuntimeException e) {
+            logger.error("[{}] Failed to send command '{}' to ContextNet", sessionId, command.kqmlMessage, e);
+            command.sent.completeExceptionally(e);
+        }
+
+        synchronized (lock) {
+            scheduleNextLocked();
+        }
+    }
+
+    private static final class PendingCommand {
+        private final String kqmlMessage;
+        private final CompletableFuture<Void> sent = new CompletableFuture<>();
+        private final long enqueuedAt = System.nanoTime();
+
+        private PendingCommand(String kqmlMessage) {
+            this.kqmlMessage = kqmlMessage;
+        }
+    }
+}
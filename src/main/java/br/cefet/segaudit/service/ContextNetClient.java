@@ -5,23 +5,28 @@ import lac.cnclib.net.NodeConnectionListener;
 import lac.cnclib.sddl.message.Message;
 
 import java.io.IOException;
-import java.util.Map;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import br.cefet.segaudit.metrics.GatewayMetrics;
+import br.cefet.segaudit.metrics.GatewayMetrics.Stage;
 import br.cefet.segaudit.model.classes.ContextNetConfig;
+import br.cefet.segaudit.model.classes.KqmlFrame;
+import br.cefet.segaudit.model.interfaces.IGatewayLink;
 
 public class ContextNetClient implements NodeConnectionListener {
     private static final Logger logger = LoggerFactory.getLogger(ContextNetClient.class);
@@ -29,35 +34,64 @@ public class ContextNetClient implements NodeConnectionListener {
     private final UUID destinationUUID;
     private final String gatewayIP;
     private final int gatewayPort;
-    private Sender sender;
+    private volatile IGatewayLink link;
     private Consumer<String> messageHandler;
+    private volatile LongConsumer replyListener;
     private final Queue<String> messageQueue = new ConcurrentLinkedQueue<>();
     private volatile boolean isConnected = false;
-    private final Map<String, CompletableFuture<String>> pendingRequests = new ConcurrentHashMap<>();
-    private final AtomicLong messageIdCounter = new AtomicLong(0);
+    /** Message ids are this prefix followed by a number; replies are matched on the number, read in place from the frame. */
+    public static final String MESSAGE_ID_PREFIX = "mid";
+    private final LongKeyedMap<CompletableFuture<String>> pendingRequests = new LongKeyedMap<>();
+    // Compartilhado entre sessões: ids únicos permitem rotear respostas numa conexão multiplexada.
+    private static final AtomicLong messageIdCounter = new AtomicLong(0);
     private final CompletableFuture<Void> connectionFuture = new CompletableFuture<>();
-    private ScheduledFuture<?> timeoutTask;
-
-    public ContextNetClient(ContextNetConfig config, Consumer<String> messageHandler, ExecutorService executor, ScheduledExecutorService scheduler) {
-        this.gatewayIP = config.gatewayIP;
-        this.gatewayPort = config.gatewayPort;
-        this.myUUID = config.myUUID;
-        this.destinationUUID = config.destinationUUID;
-        this.messageHandler = messageHandler;
+    private final HashedTimingWheel timeouts;
+    private final HashedTimingWheel.Timeout connectionTimeout;
+    private final GatewayMetrics metrics;
+    // Última mensagem enviada com id conhecido: a resposta a ela (pelo in-reply-to) mede o estágio agent_reply.
+    private final Object timedMessageLock = new Object();
+    private volatile long timedMessageId = -1;
+    private long timedMessageSentAt;
+
+    /** Opens a dedicated gateway connection for this session. */
+    public ContextNetClient(ContextNetConfig config, Consumer<String> messageHandler, ExecutorService executor, HashedTimingWheel timeouts,
+                            GatewayMetrics metrics) {
+        this(config, messageHandler, timeouts, metrics);
 
         logger.info("Connecting to ContextNet gateway at {}:{}", gatewayIP, gatewayPort);
         logger.info("Session UUID: {}, Destination UUID: {}", myUUID, destinationUUID);
 
         // Inicia a conexão em uma thread dedicada.
         CompletableFuture.runAsync(() -> {
-            this.sender = new Sender(gatewayIP, gatewayPort, myUUID, destinationUUID, this::handleIncomingMessage);
-            this.sender.setConnectionListener(this); // O Sender irá notificar o ContextNetClient sobre eventos de conexão.
+            Sender sender = new Sender(gatewayIP, gatewayPort, myUUID, destinationUUID, this::handleIncomingMessage);
+            sender.setConnectionListener(this); // O Sender irá notificar o ContextNetClient sobre eventos de conexão.
+            attach(sender);
         }, executor);
+    }
+
+    /** Multiplexes this session over a shared gateway connection. */
+    public ContextNetClient(ContextNetConfig config, Consumer<String> messageHandler, GatewayConnectionManager gatewayManager, HashedTimingWheel timeouts,
+                            GatewayMetrics metrics) {
+        this(config, messageHandler, timeouts, metrics);
+
+        logger.info("Session UUID: {}, Destination UUID: {} (shared connection to {}:{})", myUUID, destinationUUID, gatewayIP, gatewayPort);
+        attach(gatewayManager.register(this, gatewayIP, gatewayPort));
+    }
+
+    private ContextNetClient(ContextNetConfig config, Consumer<String> messageHandler, HashedTimingWheel timeouts, GatewayMetrics metrics) {
+        this.gatewayIP = config.gatewayIP;
+        this.gatewayPort = config.gatewayPort;
+        this.myUUID = config.myUUID;
+        this.destinationUUID = config.destinationUUID;
+        this.messageHandler = messageHandler;
+        this.metrics = metrics;
+        this.timeouts = timeouts;
+        metrics.time(Stage.GATEWAY_CONNECT, connectionFuture);
 
         // Agenda uma verificação de timeout para garantir que a conexão não fique travada.
-        this.timeoutTask = scheduler.schedule(() -> {
+        this.connectionTimeout = timeouts.schedule(() -> {
             if (!connectionFuture.isDone()) {
-                connectionFuture.completeExceptionally(new java.util.concurrent.TimeoutException("ContextNet connection attempt timed out after 30 seconds."));
+                connectionFuture.completeExceptionally(new TimeoutException("ContextNet connection attempt timed out after 30 seconds."));
             }
         }, 30, TimeUnit.SECONDS);
     }
@@ -67,33 +101,32 @@ public class ContextNetClient implements NodeConnectionListener {
         return connectionFuture;
     }
 
+    /** Sets the outbound link and sends whatever was queued if the connection is already up. */
+    private void attach(IGatewayLink newLink) {
+        this.link = newLink;
+        if (isConnected) {
+            flushQueue();
+        }
+    }
+
+    /** Entry point for messages routed to this session by a shared gateway connection. */
+    void onGatewayMessage(String message) {
+        handleIncomingMessage(message);
+    }
+
     private void handleIncomingMessage(String message) {
         logger.debug("Received from ContextNet: {}", message);
 
-        if (message.startsWith("<")) {
-            String innerMessage = message.substring(1, message.length() - 1);
-            int firstComma = innerMessage.indexOf(',');
-
-            if (firstComma != -1) {
-                String header = innerMessage.substring(0, firstComma);
-                if (header.contains("->")) {
-                    String originalRequestId = header.substring(header.indexOf("->") + 2);
-
-                    if (pendingRequests.containsKey(originalRequestId)) {
-                        CompletableFuture<String> future = pendingRequests.remove(originalRequestId);
-                        if (future != null && !future.isDone()) {
-
-                            int contentStartIndex = findNthOccurrence(innerMessage, ',', 4);
-                            if (contentStartIndex == -1) {
-                                throw new IllegalStateException("Invalid KQML message format received from agent: " + message);
-                            }
-
-                            String content = innerMessage.substring(contentStartIndex + 1);
-                            
-                            logger.info("Completing future for request '{}' with content: {}", originalRequestId, content);
-                            future.complete(content.trim());
-                        }
-                    }
+        // A maioria das mensagens (telemetria) não responde a nada: só analisa o quadro se houver quem espere.
+        LongConsumer listener = replyListener;
+        if (!pendingRequests.isEmpty() || listener != null || timedMessageId >= 0) {
+            KqmlFrame frame = KqmlFrame.parse(message);
+            long inReplyTo = frame == null ? -1 : frame.parseId(KqmlFrame.Field.IN_REPLY_TO, MESSAGE_ID_PREFIX);
+            if (inReplyTo >= 0) {
+                recordAgentReply(inReplyTo);
+                completePendingRequest(inReplyTo, frame);
+                if (listener != null) {
+                    listener.accept(inReplyTo);
                 }
             }
         }
@@ -103,74 +136,184 @@ public class ContextNetClient implements NodeConnectionListener {
         }
     }
 
-    private int findNthOccurrence(String str, char c, int n) {
-        int pos = -1;
-        for (int i = 0; i < n; i++) {
-            pos = str.indexOf(c, pos + 1);
-            if (pos == -1) {
-                break;
+    /** Records {@link Stage#AGENT_REPLY} if this is the reply to the timed message. */
+    private void recordAgentReply(long inReplyTo) {
+        long sentAt;
+        synchronized (timedMessageLock) {
+            if (timedMessageId != inReplyTo) {
+                return;
             }
+            timedMessageId = -1;
+            sentAt = timedMessageSentAt;
         }
-        return pos;
+        metrics.record(Stage.AGENT_REPLY, sentAt);
     }
 
+    /**
+     * Starts timing the reply to a message that just went out. Only the latest one is timed: a message the agent
+     * never answers (most {@code achieve}s) is replaced by the next send instead of blocking the stage.
+     */
+    private void timeReplyTo(long messageId) {
+        if (messageId < 0) {
+            return;
+        }
+        synchronized (timedMessageLock) {
+            timedMessageSentAt = System.nanoTime();
+            timedMessageId = messageId;
+        }
+    }
+
+    /** Completes the future waiting for the message this frame replies to; only the content of a match is materialized. */
+    private void completePendingRequest(long requestId, KqmlFrame frame) {
+        CompletableFuture<String> future = pendingRequests.remove(requestId);
+        if (future != null && !future.isDone()) {
+            String content = frame.getString(KqmlFrame.Field.CONTENT);
+            logger.debug("Completing future for request '{}{}' with content: {}", MESSAGE_ID_PREFIX, requestId, content);
+            future.complete(content);
+        }
+    }
 
     public void setMessageHandler(Consumer<String> handler) {
         this.messageHandler = handler;
     }
 
-    public CompletableFuture<String> fetchAgentPlans() {
-        CompletableFuture<String> future = new CompletableFuture<>();
-        String messageId = "mid" + messageIdCounter.incrementAndGet();
+    /** Receives the numeric id every inbound reply answers, e.g. so the dispatcher can pace commands on the agent's replies. */
+    public void setReplyListener(LongConsumer listener) {
+        this.replyListener = listener;
+    }
 
-        pendingRequests.put(messageId, future);
+    /** Reserves the id of a message before it is sent, so a reply racing the send can still be matched. */
+    public long nextMessageId() {
+        return messageIdCounter.incrementAndGet();
+    }
+
+    /** Sends {@code <id,me,performative,agent,content>} with an id from {@link #nextMessageId()}. */
+    public void send(long messageId, String performative, String content) {
+        enqueueMessage(String.format("<%s%d,%s,%s,%s,%s>", MESSAGE_ID_PREFIX, messageId, myUUID, performative, destinationUUID, content), messageId);
+    }
 
-        String getPlansCommand = String.format("<%s,%s,askOne,%s,plans(N)>", messageId, myUUID, destinationUUID);
+    /** Asks the agent for its plans; fails with a TimeoutException if it does not answer in time. */
+    public CompletableFuture<String> fetchAgentPlans(Duration timeout) {
+        logger.info("Requesting agent plans from {}", destinationUUID);
+        return metrics.time(Stage.AGENT_PLANS, ask("askOne", "plans(N)", timeout));
+    }
 
-        logger.info("Requesting agent plans with command: {}", getPlansCommand);
-        sendToContextNet(getPlansCommand);
+    /**
+     * Sends {@code <id,me,performative,agent,content>} and completes with the content of the agent's reply to it.
+     * The future fails with a TimeoutException once {@code timeout} elapses; cancelling it forgets the request.
+     */
+    public CompletableFuture<String> ask(String performative, String content, Duration timeout) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        long messageId = nextMessageId();
 
+        pendingRequests.put(messageId, future);
+        HashedTimingWheel.Timeout expiry = timeouts.schedule(() -> future.completeExceptionally(
+                new TimeoutException("Agent did not reply to " + performative + " " + content + " within " + timeout.toMillis() + " ms.")),
+                timeout.toNanos(), TimeUnit.NANOSECONDS);
+        // Resposta, timeout ou cancelamento: em todos os casos a entrada sai do mapa e da roda.
+        future.whenComplete((reply, ex) -> {
+            pendingRequests.remove(messageId, future);
+            expiry.cancel();
+        });
+
+        IGatewayLink current = link;
+        if (current != null) {
+            current.expectReply(messageId);
+        }
+        send(messageId, performative, content);
         return future;
     }
 
+    /**
+     * Sends one request per content and completes with the replies in the same order. If any request fails,
+     * the others are cancelled and the returned future fails with that error.
+     */
+    public CompletableFuture<List<String>> askAll(String performative, List<String> contents, Duration timeout) {
+        List<CompletableFuture<String>> futures = new ArrayList<>(contents.size());
+        for (String content : contents) {
+            futures.add(ask(performative, content, timeout));
+        }
+        CompletableFuture<List<String>> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> futures.stream().map(CompletableFuture::join).toList());
+        futures.forEach(future -> future.whenComplete((reply, ex) -> {
+            if (ex != null) {
+                futures.forEach(other -> other.cancel(false));
+                all.completeExceptionally(ex);
+            }
+        }));
+        all.whenComplete((replies, ex) -> {
+            if (all.isCancelled()) {
+                futures.forEach(other -> other.cancel(false));
+            }
+        });
+        return all;
+    }
+
     /** Cancels all pending CompletableFuture requests. */
     public void cancelPendingRequests() {
-        int count = pendingRequests.size();
-        if (count > 0) {
-            logger.warn("Cancelling {} pending request(s) for session UUID {}", count, myUUID);
-            pendingRequests.values().forEach(future -> future.cancel(true));
-            pendingRequests.clear();
+        List<CompletableFuture<String>> pending = pendingRequests.clear();
+        if (!pending.isEmpty()) {
+            logger.warn("Cancelling {} pending request(s) for session UUID {}", pending.size(), myUUID);
+            pending.forEach(future -> future.cancel(true));
         }
     }
 
     /** Cancels the scheduled connection timeout task. */
     public void cancelConnectionTimeout() {
-        if (this.timeoutTask != null && !this.timeoutTask.isDone()) {
-            this.timeoutTask.cancel(false);
+        if (connectionTimeout.cancel()) {
             logger.debug("Connection timeout task cancelled for session UUID {}", myUUID);
         }
     }
 
+    /** Cancels pending work and releases the gateway link. */
+    public void close() {
+        cancelPendingRequests();
+        cancelConnectionTimeout();
+        IGatewayLink current = link;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /** Messages held until the gateway connection is up. */
+    public int getQueuedMessageCount() {
+        return messageQueue.size();
+    }
+
+    /** Requests (e.g. the plans query) still waiting for the agent's reply. */
+    public int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
     public UUID getDestinationUUID() {
         return destinationUUID;
     }
 
+    public UUID getMyUUID() {
+        return myUUID;
+    }
+
     public void sendToContextNet(String message) {
-        String formattedMessage;
-        
         if (message.trim().startsWith("<")) {
-            formattedMessage = message;
+            enqueueMessage(message, idOf(message));
         } else {
-            String messageId = "mid" + messageIdCounter.incrementAndGet();
-            formattedMessage = String.format("<%s,%s,%s>", messageId, myUUID, message);
+            long messageId = nextMessageId();
+            enqueueMessage(String.format("<%s%d,%s,%s>", MESSAGE_ID_PREFIX, messageId, myUUID, message), messageId);
         }
-        enqueueMessage(formattedMessage);
     }
 
-    private void enqueueMessage(String message) {
-        if (isConnected) {
+    /** Numeric id of an already formatted frame, or -1 if it does not carry one of ours. */
+    private static long idOf(String message) {
+        KqmlFrame frame = KqmlFrame.parse(message);
+        return frame == null ? -1 : frame.parseId(KqmlFrame.Field.ID, MESSAGE_ID_PREFIX);
+    }
+
+    private void enqueueMessage(String message, long messageId) {
+        IGatewayLink current = link;
+        if (isConnected && current != null) {
             logger.debug("Sending to ContextNet: {}", message);
-            sender.sendMessage(message);
+            current.sendMessage(message);
+            timeReplyTo(messageId);
         } else {
             logger.warn("Connection not yet established. Enqueuing message: {}", message);
             messageQueue.add(message);
@@ -183,11 +326,19 @@ public class ContextNetClient implements NodeConnectionListener {
         isConnected = true;
         cancelConnectionTimeout(); // Cancela o timeout, pois a conexão foi bem-sucedida.
         connectionFuture.complete(null); // Notifica que a conexão foi bem-sucedida.
+        flushQueue();
+    }
 
-        while (!messageQueue.isEmpty()) {
-            String msg = messageQueue.poll();
+    private void flushQueue() {
+        IGatewayLink current = link;
+        if (current == null) {
+            return; // O link ainda não foi anexado; attach() envia a fila.
+        }
+        String msg;
+        while ((msg = messageQueue.poll()) != null) {
             logger.info("Sending enqueued message: {}", msg);
-            sender.sendMessage(msg);
+            current.sendMessage(msg);
+            timeReplyTo(idOf(msg));
         }
     }
 
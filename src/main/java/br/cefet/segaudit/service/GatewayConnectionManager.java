@@ -0,0 +1,96 @@
+package br.cefet.segaudit.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import br.cefet.segaudit.model.interfaces.IGatewayLink;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps a small pool of {@link SharedGatewayConnection}s per gateway and spreads sessions over them.
+ * A new connection is opened only when every existing one already carries
+ * {@code contextnet.gateway.sessions-per-connection} sessions and the pool is below {@code contextnet.gateway.pool-size}.
+ * A connection whose last session leaves is closed and removed from the pool.
+ */
+@Component
+public class GatewayConnectionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatewayConnectionManager.class);
+
+    private final ExecutorService executor;
+    private final int poolSize;
+    private final int sessionsPerConnection;
+    private final Map<String, List<SharedGatewayConnection>> pools = new ConcurrentHashMap<>();
+
+    public GatewayConnectionManager(ExecutorService contextNetExecutor,
+                                    @Value("${contextnet.gateway.pool-size:2}") int poolSize,
+                                    @Value("${contextnet.gateway.sessions-per-connection:100}") int sessionsPerConnection) {
+        this.executor = contextNetExecutor;
+        this.poolSize = Math.max(1, poolSize);
+        this.sessionsPerConnection = sessionsPerConnection;
+    }
+
+    /** Attaches the client to a shared connection to its gateway. */
+    public IGatewayLink register(ContextNetClient client, String gatewayIP, int gatewayPort) {
+        String key = gatewayIP + ":" + gatewayPort;
+        List<SharedGatewayConnection> pool = pools.computeIfAbsent(key, k -> new ArrayList<>());
+        SharedGatewayConnection chosen;
+        IGatewayLink link;
+        synchronized (pool) {
+            pool.removeIf(SharedGatewayConnection::isFailed);
+            chosen = pool.stream()
+                         .min(Comparator.comparingInt(SharedGatewayConnection::getSessionCount))
+                         .orElse(null);
+            if (chosen == null || (chosen.getSessionCount() >= sessionsPerConnection && pool.size() < poolSize)) {
+                chosen = new SharedGatewayConnection(gatewayIP, gatewayPort, executor, idle -> closeIfIdle(key, pool, idle));
+                pool.add(chosen);
+                logger.info("Gateway {} now has {} shared connection(s).", key, pool.size());
+            }
+            // Contada ainda sob o lock: sessões simultâneas não veem todas a mesma contagem.
+            link = chosen.attach(client);
+        }
+        logger.debug("Session {} multiplexed over gateway {} ({} session(s) on its connection).",
+                client.getMyUUID(), key, chosen.getSessionCount());
+        chosen.activate(client);
+        return link;
+    }
+
+    /** Closes a connection whose last session left, unless a new session attached to it in the meantime. */
+    private void closeIfIdle(String key, List<SharedGatewayConnection> pool, SharedGatewayConnection connection) {
+        synchronized (pool) {
+            if (connection.getSessionCount() > 0 || !pool.remove(connection)) {
+                return;
+            }
+            logger.info("Closing idle shared connection to gateway {}; {} connection(s) left.", key, pool.size());
+        }
+        connection.close();
+    }
+
+    /** Shared connections currently open over all gateways. */
+    public int getConnectionCount() {
+        return pools.values().stream().mapToInt(pool -> {
+            synchronized (pool) {
+                return pool.size();
+            }
+        }).sum();
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        pools.values().forEach(pool -> {
+            synchronized (pool) {
+                pool.forEach(SharedGatewayConnection::close);
+                pool.clear();
+            }
+        });
+    }
+}
@@ -0,0 +1,179 @@
+package br.cefet.segaudit.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Hashed timing wheel shared by every ContextNet client for request and connection timeouts, and by the
+ * controller for the grace period of parked sessions.
+ * One periodic tick on the shared scheduler advances the wheel, so thousands of outstanding requests cost
+ * one scheduler entry instead of one each; cancelling a timeout is O(1). Expiry is accurate to one tick.
+ */
+@Component
+public class HashedTimingWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tickNanos;
+    private final int mask;
+    private final List<Set<Timeout>> buckets;
+    private final long startNanos = System.nanoTime();
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final ScheduledFuture<?> ticker;
+    // Só a thread do tick mexe nos baldes e no contador de ticks.
+    private long tick;
+
+    public HashedTimingWheel(ScheduledExecutorService scheduler,
+                             @Value("${contextnet.timeouts.tick-ms:100}") long tickMillis,
+                             @Value("${contextnet.timeouts.ticks-per-wheel:512}") int ticksPerWheel) {
+        if (tickMillis <= 0 || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("tick-ms and ticks-per-wheel must be positive.");
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        int size = Integer.highestOneBit(ticksPerWheel - 1) << 1; // Potência de 2 para usar máscara no lugar de módulo.
+        this.mask = Math.max(1, size) - 1;
+        this.buckets = new ArrayList<>(mask + 1);
+        for (int i = 0; i <= mask; i++) {
+            buckets.add(new LinkedHashSet<>());
+        }
+        this.ticker = scheduler.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Runs {@code task} on the wheel thread once {@code delay} has elapsed, unless the returned timeout is cancelled first. */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + unit.toNanos(delay));
+        pendingCount.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    /** Timeouts scheduled and neither expired nor cancelled yet. */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.cancel(false);
+    }
+
+    private void advance() {
+        try {
+            removeCancelled();
+            transferAdded();
+            Iterator<Timeout> bucket = buckets.get((int) (tick & mask)).iterator();
+            List<Timeout> expired = new ArrayList<>();
+            while (bucket.hasNext()) {
+                Timeout timeout = bucket.next();
+                if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                } else {
+                    bucket.remove();
+                    expired.add(timeout);
+                }
+            }
+            tick++;
+            expired.forEach(Timeout::expire);
+        } catch (RuntimeException e) {
+            // Uma exceção aqui cancelaria o agendamento periódico e pararia a roda.
+            logger.error("Timing wheel tick failed.", e);
+        }
+    }
+
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.state.get() != PENDING) {
+                continue;
+            }
+            long deadlineTick = Math.max(tick, (timeout.deadlineNanos - startNanos) / tickNanos);
+            timeout.remainingRounds = (deadlineTick - tick) / (mask + 1);
+            timeout.bucket = buckets.get((int) (deadlineTick & mask));
+            timeout.bucket.add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /** Handle to a scheduled task. */
+    public static final class Timeout {
+        private final HashedTimingWheel wheel;
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private long remainingRounds;
+        private Set<Timeout> bucket;
+
+        private Timeout(HashedTimingWheel wheel, Runnable task, long deadlineNanos) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /** Prevents the task from running; returns false if it already ran or was cancelled. */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            wheel.pendingCount.decrementAndGet();
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            wheel.pendingCount.decrementAndGet();
+            wheel.expiredCount.incrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Timeout task failed.", e);
+            }
+        }
+    }
+}
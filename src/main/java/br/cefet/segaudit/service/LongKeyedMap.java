@@ -0,0 +1,151 @@
+package br.cefet.segaudit.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Small hash map from {@code long} keys to values. Replies are matched by the numeric part of the message id
+ * they answer, parsed in place from the frame, so looking one up neither boxes the key nor creates a string.
+ * Every method synchronizes on the map; {@link #isEmpty} is a lock-free read for the inbound fast path.
+ */
+final class LongKeyedMap<V> {
+
+    private static final class Node<V> {
+        final long key;
+        V value;
+        Node<V> next;
+
+        Node(long key, V value, Node<V> next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private Node<V>[] table = newTable(16);
+    private volatile int size;
+
+    @SuppressWarnings("unchecked")
+    private static <V> Node<V>[] newTable(int capacity) {
+        return (Node<V>[]) new Node<?>[capacity];
+    }
+
+    private static int indexOf(long key, int capacity) {
+        int hash = Long.hashCode(key);
+        return (hash ^ (hash >>> 16)) & (capacity - 1);
+    }
+
+    synchronized void put(long key, V value) {
+        int index = indexOf(key, table.length);
+        for (Node<V> node = table[index]; node != null; node = node.next) {
+            if (node.key == key) {
+                node.value = value;
+                return;
+            }
+        }
+        table[index] = new Node<>(key, value, table[index]);
+        size++;
+        if (size > table.length * 3 / 4) {
+            resize();
+        }
+    }
+
+    synchronized V get(long key) {
+        for (Node<V> node = table[indexOf(key, table.length)]; node != null; node = node.next) {
+            if (node.key == key) {
+                return node.value;
+            }
+        }
+        return null;
+    }
+
+    /** Removes and returns the value for the key, or {@code null}. */
+    synchronized V remove(long key) {
+        int index = indexOf(key, table.length);
+        Node<V> previous = null;
+        for (Node<V> node = table[index]; node != null; previous = node, node = node.next) {
+            if (node.key == key) {
+                unlink(index, previous, node);
+                return node.value;
+            }
+        }
+        return null;
+    }
+
+    /** Removes the entry only if it still maps to {@code value}. */
+    synchronized boolean remove(long key, V value) {
+        int index = indexOf(key, table.length);
+        Node<V> previous = null;
+        for (Node<V> node = table[index]; node != null; previous = node, node = node.next) {
+            if (node.key == key) {
+                if (node.value != value) {
+                    return false;
+                }
+                unlink(index, previous, node);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Removes every entry whose value matches. */
+    synchronized void removeValues(Predicate<? super V> predicate) {
+        for (int index = 0; index < table.length; index++) {
+            Node<V> previous = null;
+            for (Node<V> node = table[index]; node != null; node = node.next) {
+                if (predicate.test(node.value)) {
+                    unlink(index, previous, node);
+                } else {
+                    previous = node;
+                }
+            }
+        }
+    }
+
+    /** Empties the map and returns the values it held. */
+    synchronized List<V> clear() {
+        List<V> values = new ArrayList<>(size);
+        for (Node<V> head : table) {
+            for (Node<V> node = head; node != null; node = node.next) {
+                values.add(node.value);
+            }
+        }
+        table = newTable(16);
+        size = 0;
+        return values;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void unlink(int index, Node<V> previous, Node<V> node) {
+        if (previous == null) {
+            table[index] = node.next;
+        } else {
+            previous.next = node.next;
+        }
+        size--;
+    }
+
+    private void resize() {
+        Node<V>[] old = table;
+        Node<V>[] resized = newTable(old.length * 2);
+        for (Node<V> head : old) {
+            Node<V> node = head;
+            while (node != null) {
+                Node<V> next = node.next;
+                int index = indexOf(node.key, resized.length);
+                node.next = resized[index];
+                resized[index] = node;
+                node = next;
+            }
+        }
+        table = resized;
+    }
+}
@@ -8,13 +8,14 @@ import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import br.cefet.segaudit.model.interfaces.IGatewayLink;
 import lac.cnclib.net.NodeConnection;
 import lac.cnclib.net.NodeConnectionListener;
 import lac.cnclib.net.mrudp.MrUdpNodeConnection;
 import lac.cnclib.sddl.message.ApplicationMessage;
 import lac.cnclib.sddl.message.Message;
 
-public class Sender implements NodeConnectionListener {
+public class Sender implements NodeConnectionListener, IGatewayLink {
     private static final Logger logger = LoggerFactory.getLogger(Sender.class);
     private String gatewayIP;
     private int gatewayPort;
@@ -55,6 +56,7 @@ public class Sender implements NodeConnectionListener {
         }
     }
 
+    @Override
     public void sendMessage(String msg) {
         ApplicationMessage message = new ApplicationMessage();
         logger.debug("Sending message to {}: {}", getDestinationUUID(), msg);
@@ -81,6 +83,19 @@ public class Sender implements NodeConnectionListener {
         }
     }
 
+    /** Disconnects the dedicated gateway connection. */
+    @Override
+    public void close() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.disconnect();
+        } catch (IOException e) {
+            logger.warn("Failed to disconnect from gateway {}:{}", gatewayIP, gatewayPort, e);
+        }
+    }
+
     public void setConnectionListener(NodeConnectionListener listener) {
         this.externalListener = listener;
     }
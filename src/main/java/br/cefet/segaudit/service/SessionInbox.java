@@ -0,0 +1,149 @@
+package br.cefet.segaudit.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded, ordered inbox of user messages for one session.
+ * Messages are handed to the processor one at a time, in arrival order; the next one starts as soon as the
+ * previous translation finishes, while its commands are still being paced out by the {@link CommandDispatcher}.
+ * With coalescing on, everything that queued up behind a running translation is sent to the model as one message.
+ * Tasks such as batches take a place in the same order but are never coalesced.
+ */
+public class SessionInbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionInbox.class);
+    private static final String COALESCE_SEPARATOR = ". ";
+
+    private final String sessionId;
+    private final int capacity;
+    private final boolean coalesce;
+    private final Function<String, CompletableFuture<?>> processor;
+
+    /** A user message, or a task that runs in its place and is told through {@code onDropped} if it never runs. */
+    private record Entry(String message, Supplier<CompletableFuture<?>> task, Runnable onDropped) {
+        boolean isTask() {
+            return task != null;
+        }
+    }
+
+    private final Queue<Entry> queue = new ArrayDeque<>();
+    private boolean processing = false;
+    private boolean closed = false;
+
+    public SessionInbox(String sessionId, int capacity, boolean coalesce, Function<String, CompletableFuture<?>> processor) {
+        this.sessionId = sessionId;
+        this.capacity = capacity;
+        this.coalesce = coalesce;
+        this.processor = processor;
+    }
+
+    /**
+     * Accepts a message. Returns how many messages are ahead of it (0 when it starts right away),
+     * or -1 when the inbox is full or closed and the message was not accepted.
+     */
+    public int offer(String message) {
+        return enqueue(new Entry(message, null, null));
+    }
+
+    /**
+     * Queues work that must run in order with the messages, such as a batch; returns like {@link #offer}.
+     * {@code onDropped} runs if the inbox closes before the task starts, so its owner can fail whatever waits on it.
+     */
+    public int offerTask(Supplier<CompletableFuture<?>> task, Runnable onDropped) {
+        return enqueue(new Entry(null, task, onDropped));
+    }
+
+    private int enqueue(Entry entry) {
+        int ahead;
+        synchronized (this) {
+            if (closed || queue.size() >= capacity) {
+                return -1;
+            }
+            queue.add(entry);
+            ahead = queue.size() - 1 + (processing ? 1 : 0);
+            if (processing) {
+                return ahead;
+            }
+            processing = true;
+        }
+        processNext();
+        return ahead;
+    }
+
+    private void processNext() {
+        Entry next;
+        synchronized (this) {
+            if (closed || queue.isEmpty()) {
+                processing = false;
+                return;
+            }
+            next = takeLocked();
+        }
+
+        CompletableFuture<?> running;
+        try {
+            running = next.isTask() ? next.task().get() : processor.apply(next.message());
+        } catch (RuntimeException e) {
+            logger.error("[{}] Failed to start processing message '{}'.", sessionId, next.isTask() ? "<task>" : next.message(), e);
+            running = CompletableFuture.completedFuture(null);
+        }
+        running.whenComplete((result, ex) -> processNext());
+    }
+
+    /** Takes the head entry, or, when coalescing, every message up to the next task joined into one. */
+    private Entry takeLocked() {
+        if (!coalesce || queue.size() == 1 || queue.peek().isTask()) {
+            return queue.poll();
+        }
+        List<Entry> batch = new ArrayList<>();
+        while (!queue.isEmpty() && !queue.peek().isTask()) {
+            batch.add(queue.poll());
+        }
+        if (batch.size() == 1) {
+            return batch.get(0);
+        }
+        logger.info("[{}] Coalescing {} queued messages into a single translation.", sessionId, batch.size());
+        List<String> parts = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            String trimmed = entry.message().trim();
+            parts.add(trimmed.endsWith(".") ? trimmed.substring(0, trimmed.length() - 1) : trimmed);
+        }
+        return new Entry(String.join(COALESCE_SEPARATOR, parts), null, null);
+    }
+
+    /** Number of messages waiting, not counting the one being processed. */
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Drops every waiting message and tells the waiting tasks they will not run; the one in progress is left
+     * to finish or be cancelled by its owner.
+     */
+    public void close() {
+        List<Entry> dropped;
+        synchronized (this) {
+            closed = true;
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+        }
+        for (Entry entry : dropped) {
+            if (entry.isTask()) {
+                entry.onDropped().run();
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package br.cefet.segaudit.service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.cefet.segaudit.model.classes.KqmlFrame;
+import br.cefet.segaudit.model.interfaces.IGatewayLink;
+import lac.cnclib.net.NodeConnection;
+import lac.cnclib.net.NodeConnectionListener;
+import lac.cnclib.net.mrudp.MrUdpNodeConnection;
+import lac.cnclib.sddl.message.ApplicationMessage;
+import lac.cnclib.sddl.message.Message;
+
+/**
+ * One MR-UDP connection to a gateway shared by many sessions. Every session keeps its own UUID: it is announced
+ * on the connection when the session registers and stamped as the sender of each message the session sends.
+ * Inbound messages are routed to exactly one {@link ContextNetClient} by, in order: the recipient UUID set by the
+ * gateway, the KQML receiver field, and the id the message replies to. A message that matches none of them is
+ * dropped; it is never fanned out to every session talking to the same agent, as those sessions belong to
+ * different operators.
+ */
+public class SharedGatewayConnection implements NodeConnectionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedGatewayConnection.class);
+    private static final int UUID_LENGTH = 36;
+
+    private final UUID connectionUUID = UUID.randomUUID();
+    private final InetSocketAddress address;
+    private final Map<UUID, ContextNetClient> bySessionUUID = new ConcurrentHashMap<>();
+    private final LongKeyedMap<ContextNetClient> byReplyId = new LongKeyedMap<>();
+    private final Set<ContextNetClient> clients = ConcurrentHashMap.newKeySet();
+    private volatile MrUdpNodeConnection connection;
+    private volatile boolean connected = false;
+    private volatile boolean failed = false;
+    private final AtomicLong unrouted = new AtomicLong();
+    private final Consumer<SharedGatewayConnection> onIdle;
+
+    public SharedGatewayConnection(String gatewayIP, int gatewayPort, Executor executor) {
+        this(gatewayIP, gatewayPort, executor, connection -> { });
+    }
+
+    /** {@code onIdle} is called each time the last session unregisters, so a pool can close the connection. */
+    public SharedGatewayConnection(String gatewayIP, int gatewayPort, Executor executor, Consumer<SharedGatewayConnection> onIdle) {
+        this.onIdle = onIdle;
+        this.address = new InetSocketAddress(gatewayIP, gatewayPort);
+        logger.info("Opening shared gateway connection {} to {}:{}", connectionUUID, gatewayIP, gatewayPort);
+        executor.execute(() -> {
+            try {
+                MrUdpNodeConnection created = new MrUdpNodeConnection(connectionUUID);
+                created.addNodeConnectionListener(this);
+                connection = created;
+                created.connect(address);
+            } catch (IOException e) {
+                logger.error("Failed to open shared gateway connection to {}", address, e);
+                internalException(null, e);
+            }
+        });
+    }
+
+    /** Registers a session; if the connection is already up the session is told so right away. */
+    public IGatewayLink register(ContextNetClient client) {
+        IGatewayLink link = attach(client);
+        activate(client);
+        return link;
+    }
+
+    /** Counts the session on this connection without calling back into it, so a pool can do it under its lock. */
+    IGatewayLink attach(ContextNetClient client) {
+        clients.add(client);
+        bySessionUUID.put(client.getMyUUID(), client);
+        return new SessionLink(client);
+    }
+
+    /** Announces an attached session and tells it the connection is up, if it already is. */
+    void activate(ContextNetClient client) {
+        if (connected && clients.contains(client)) {
+            announce(client.getMyUUID());
+            client.connected(null);
+        }
+    }
+
+    /** Messages that matched no session and were dropped. */
+    public long getUnroutedCount() {
+        return unrouted.get();
+    }
+
+    public int getSessionCount() {
+        return clients.size();
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /** True when the connection could not be opened and should not receive new sessions. */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    private void unregister(ContextNetClient client) {
+        boolean removed = clients.remove(client);
+        bySessionUUID.remove(client.getMyUUID(), client);
+        byReplyId.removeValues(owner -> owner == client);
+        if (removed && clients.isEmpty()) {
+            onIdle.accept(this);
+        }
+    }
+
+    /** Makes the session's UUID known to the gateway through this connection, as a dedicated connection does on connect. */
+    private void announce(UUID session) {
+        send(session, null, null);
+    }
+
+    private void send(UUID sender, UUID recipient, String message) {
+        MrUdpNodeConnection current = connection;
+        if (current == null) {
+            logger.warn("Shared gateway connection {} is not open; dropping message: {}", connectionUUID, message);
+            return;
+        }
+        ApplicationMessage applicationMessage = new ApplicationMessage();
+        applicationMessage.setSenderID(sender);
+        if (message != null) {
+            applicationMessage.setContentObject(message);
+            applicationMessage.setRecipientID(recipient);
+        }
+        try {
+            current.sendMessage(applicationMessage);
+        } catch (IOException e) {
+            logger.error("Failed to send message to {} over shared connection {}", recipient, connectionUUID, e);
+        }
+    }
+
+    @Override
+    public void connected(NodeConnection remoteCon) {
+        announce(connectionUUID);
+        connected = true;
+        logger.info("Shared gateway connection {} established; {} session(s) waiting.", connectionUUID, clients.size());
+        clients.forEach(client -> {
+            announce(client.getMyUUID());
+            client.connected(remoteCon);
+        });
+    }
+
+    @Override
+    public void newMessageReceived(NodeConnection remoteCon, Message message) {
+        String received;
+        try {
+            received = (String) message.getContentObject();
+        } catch (Exception e) {
+            logger.error("Error reading message received on shared connection {}", connectionUUID, e);
+            return;
+        }
+        if (received == null) {
+            return;
+        }
+
+        UUID recipient = message.getRecipientID();
+        ContextNetClient target = recipient == null ? null : bySessionUUID.get(recipient);
+        if (target == null) {
+            target = routeByFrame(received);
+        }
+        if (target != null) {
+            target.onGatewayMessage(received);
+            return;
+        }
+        unrouted.incrementAndGet();
+        logger.debug("No session on shared connection {} for message from {}; dropping: {}", connectionUUID, message.getSenderID(), received);
+    }
+
+    /** Looks at the KQML header {@code <id[->replyTo],sender,performative,receiver,content>}. */
+    private ContextNetClient routeByFrame(String message) {
+        KqmlFrame frame = KqmlFrame.parse(message);
+        if (frame == null) {
+            return null;
+        }
+        if (frame.length(KqmlFrame.Field.RECEIVER) == UUID_LENGTH) {
+            try {
+                ContextNetClient byReceiver = bySessionUUID.get(UUID.fromString(frame.getString(KqmlFrame.Field.RECEIVER)));
+                if (byReceiver != null) {
+                    return byReceiver;
+                }
+            } catch (IllegalArgumentException notAUuid) {
+                // O destinatário pode ser um nome de agente em vez de UUID.
+            }
+        }
+        long inReplyTo = frame.parseId(KqmlFrame.Field.IN_REPLY_TO, ContextNetClient.MESSAGE_ID_PREFIX);
+        return inReplyTo < 0 ? null : byReplyId.remove(inReplyTo);
+    }
+
+    @Override
+    public void reconnected(NodeConnection remoteCon, java.net.SocketAddress endPoint, boolean wasHandover, boolean wasMandatory) {
+    }
+
+    @Override
+    public void disconnected(NodeConnection remoteCon) {
+        connected = false;
+        logger.warn("Shared gateway connection {} lost; notifying {} session(s).", connectionUUID, clients.size());
+        clients.forEach(client -> client.disconnected(remoteCon));
+    }
+
+    @Override
+    public void unsentMessages(NodeConnection remoteCon, List<Message> unsentMessages) {
+        logger.warn("There are {} unsent messages on shared connection {}.", unsentMessages.size(), connectionUUID);
+    }
+
+    @Override
+    public void internalException(NodeConnection remoteCon, Exception e) {
+        logger.error("Internal exception in shared gateway connection {}.", connectionUUID, e);
+        if (!connected) {
+            failed = true;
+        }
+        clients.forEach(client -> client.internalException(remoteCon, e));
+    }
+
+    /** Closes the underlying connection, on shutdown or once its pool finds it idle. */
+    public void close() {
+        MrUdpNodeConnection current = connection;
+        if (current != null) {
+            try {
+                current.disconnect();
+            } catch (IOException e) {
+                logger.warn("Failed to close shared gateway connection {}", connectionUUID, e);
+            }
+        }
+    }
+
+    /** A session's view of the shared connection. */
+    private final class SessionLink implements IGatewayLink {
+        private final ContextNetClient client;
+
+        SessionLink(ContextNetClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public void sendMessage(String message) {
+            send(client.getMyUUID(), client.getDestinationUUID(), message);
+        }
+
+        @Override
+        public void expectReply(long messageId) {
+            byReplyId.put(messageId, client);
+        }
+
+        @Override
+        public void close() {
+            unregister(client);
+        }
+    }
+}
@@ -28,7 +28,6 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import br.cefet.segaudit.model.classes.IAGenerateResponse;
 import br.cefet.segaudit.model.classes.TranslationResult;
@@ -45,9 +44,6 @@ public class AIModelManagerInternalMockedTest {
     @Autowired
     private IModelManagaer modelManager;
 
-    @Autowired
-    private ObjectMapper objectMapper;
-
     private final String sessionId = "test-session-123";
     private final String agentPlans = "plans(\"takeOff,land,turnoff,up(N),down(N),left(N),right(N),forward(N),backward(N)\")";
 
@@ -57,22 +53,20 @@ public class AIModelManagerInternalMockedTest {
 
         // Mock da resposta para a chamada de inicialização
         IAGenerateResponse initResponse = new IAGenerateResponse("Initialized.", new long[]{1, 2, 3}, 1500);
-        String initResponseJson = objectMapper.writeValueAsString(initResponse);
         
         @SuppressWarnings("unchecked")
-        HttpResponse<String> mockInitHttpResponse = (HttpResponse<String>) org.mockito.Mockito.mock(HttpResponse.class);
+        HttpResponse<IAGenerateResponse> mockInitHttpResponse = (HttpResponse<IAGenerateResponse>) org.mockito.Mockito.mock(HttpResponse.class);
         when(mockInitHttpResponse.statusCode()).thenReturn(200);
-        when(mockInitHttpResponse.body()).thenReturn(initResponseJson);
+        when(mockInitHttpResponse.body()).thenReturn(initResponse);
 
         // Mock da resposta para a chamada de tradução
         String expectedCommands = "takeOff\nup(50)\nright(80)\nforward(40)\nleft(40)\nforward(20)\nleft(80)\nbackward(20)\nleft(40)\nbackward(40)\nright(80)\nland\nturnoff";
         IAGenerateResponse translateResponse = new IAGenerateResponse(expectedCommands, new long[]{4, 5, 6}, 350);
-        String translateResponseJson = objectMapper.writeValueAsString(translateResponse);
 
         @SuppressWarnings("unchecked")
-        HttpResponse<String> mockTranslateHttpResponse = (HttpResponse<String>) org.mockito.Mockito.mock(HttpResponse.class);
+        HttpResponse<IAGenerateResponse> mockTranslateHttpResponse = (HttpResponse<IAGenerateResponse>) org.mockito.Mockito.mock(HttpResponse.class);
         when(mockTranslateHttpResponse.statusCode()).thenReturn(200);
-        when(mockTranslateHttpResponse.body()).thenReturn(translateResponseJson);
+        when(mockTranslateHttpResponse.body()).thenReturn(translateResponse);
 
         when(mockHttpClient.sendAsync(any(), any(HttpResponse.BodyHandler.class)))
             .thenReturn(CompletableFuture.completedFuture(mockInitHttpResponse))
@@ -0,0 +1,119 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.AIContextManager.balancing.OllamaEndpointPool;
+import br.cefet.segaudit.AIContextManager.cache.PromptContextCache;
+import br.cefet.segaudit.AIContextManager.cache.TranslationCache;
+import br.cefet.segaudit.AIContextManager.scheduling.OllamaRequestScheduler;
+import br.cefet.segaudit.AIContextManager.snapshot.ContextSnapshotStore;
+import br.cefet.segaudit.config.AppConfig;
+import br.cefet.segaudit.config.InstrumentedThreadPoolExecutor;
+import br.cefet.segaudit.metrics.GatewayMeterBinder;
+import br.cefet.segaudit.service.HashedTimingWheel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AppConfigTest {
+
+    @Test
+    @DisplayName("O pool de threads de plataforma mede quanto as tarefas esperam por uma thread")
+    void instrumentedPoolRecordsWaits() throws Exception {
+        InstrumentedThreadPoolExecutor pool = new InstrumentedThreadPoolExecutor("test", 1);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            pool.submit(() -> {
+                release.await();
+                return null;
+            });
+            Future<?> waiting = pool.submit(() -> { });
+            Thread.sleep(60);
+            assertEquals(1, pool.getQueue().size());
+
+            release.countDown();
+            waiting.get(5, TimeUnit.SECONDS);
+
+            assertTrue(pool.getMaxWaitMillis() >= 50, "max wait " + pool.getMaxWaitMillis());
+            assertTrue(pool.getAverageWaitMillis() >= 25, "average wait " + pool.getAverageWaitMillis());
+            assertTrue(pool.getAverageWaitMillis() <= pool.getMaxWaitMillis());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Sem Java 21, o modo virtual cai para o pool de threads de plataforma")
+    void virtualModeFallsBackToPlatformThreads() {
+        AppConfig config = new AppConfig("virtual", 3);
+        try {
+            ExecutorService executor = config.contextNetExecutor();
+            if (Runtime.version().feature() >= 21) {
+                assertFalse(executor instanceof ThreadPoolExecutor);
+            } else {
+                assertTrue(executor instanceof InstrumentedThreadPoolExecutor);
+                assertEquals(3, ((ThreadPoolExecutor) executor).getCorePoolSize());
+            }
+        } finally {
+            config.shutdownExecutors();
+        }
+    }
+
+    @Test
+    @DisplayName("Modo desconhecido usa threads de plataforma")
+    void unknownModeUsesPlatformThreads() {
+        AppConfig config = new AppConfig("green", 2);
+        try {
+            assertTrue(config.contextNetExecutor() instanceof InstrumentedThreadPoolExecutor);
+            assertEquals(2, ((ThreadPoolExecutor) config.contextNetExecutor()).getMaximumPoolSize());
+        } finally {
+            config.shutdownExecutors();
+        }
+    }
+
+    @Test
+    @DisplayName("As métricas de espera do executor só são publicadas para o pool instrumentado")
+    void executorGaugesFollowTheExecutorKind() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        InstrumentedThreadPoolExecutor instrumented = new InstrumentedThreadPoolExecutor("test", 2);
+        ExecutorService workStealing = Executors.newWorkStealingPool(2);
+        try {
+            SimpleMeterRegistry withPool = new SimpleMeterRegistry();
+            binder(scheduler, instrumented).bindTo(withPool);
+            assertNotNull(withPool.find("segaudit.executor.wait.max").gauge());
+            assertEquals(0.0, withPool.find("segaudit.executor.wait.avg").gauge().value());
+            assertEquals(0.0, withPool.find("segaudit.executor.queued").gauge().value());
+
+            SimpleMeterRegistry withoutPool = new SimpleMeterRegistry();
+            binder(scheduler, workStealing).bindTo(withoutPool);
+            assertNull(withoutPool.find("segaudit.executor.wait.max").gauge());
+            assertNull(withoutPool.find("segaudit.executor.active").gauge());
+        } finally {
+            instrumented.shutdownNow();
+            workStealing.shutdownNow();
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static GatewayMeterBinder binder(ScheduledExecutorService scheduler, ExecutorService executor) {
+        HttpClient client = HttpClient.newHttpClient();
+        return new GatewayMeterBinder(new OllamaRequestScheduler(2, 16),
+                new OllamaEndpointPool("http://127.0.0.1:11434/api/generate", client, scheduler, 0, 2000, 3, 30_000, false, 0.95, 20),
+                new PromptContextCache(4), new TranslationCache(4, 60), executor, new HashedTimingWheel(scheduler, 10, 64),
+                ContextSnapshotStore.disabled());
+    }
+}
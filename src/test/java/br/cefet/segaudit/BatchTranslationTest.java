@@ -0,0 +1,81 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.AIContextManager.gemma3.Gemma3Manager;
+import br.cefet.segaudit.AIContextManager.scheduling.OllamaRequestScheduler;
+import br.cefet.segaudit.model.classes.BatchItemResult;
+import br.cefet.segaudit.model.classes.PlanCatalog;
+
+public class BatchTranslationTest {
+
+    private static final String SESSION = "batch-session";
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private OllamaStub ollama;
+    private Gemma3Manager manager;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Stub do Ollama: responde "up(N)" para "suba N", falha para "quebre" e demora para expor a concorrência.
+        ollama = new OllamaStub(request -> {
+            String prompt = request.path("prompt").asText();
+            int running = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(running, Math::max);
+            try {
+                Thread.sleep(50);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            if (prompt.endsWith("quebre")) {
+                return null;
+            }
+            return OllamaStub.reply(prompt.contains("suba ") ? "up(" + prompt.substring(prompt.lastIndexOf(' ') + 1) + ")" : "OK", 10);
+        });
+        manager = ollama.manager().scheduler(new OllamaRequestScheduler(8, 64)).build();
+        manager.initializeUserSession(SESSION, PlanCatalog.parse("plans(\"takeOff,land,up(N)\")"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ollama.close();
+    }
+
+    @Test
+    @DisplayName("Lote devolve um resultado por fala, na ordem, respeitando o paralelismo")
+    void translatesInOrderWithBoundedParallelism() {
+        maxInFlight.set(0);
+        List<String> utterances = List.of("suba 1", "suba 2", "suba 3", "suba 4", "suba 5", "suba 6");
+
+        List<BatchItemResult> results = manager.translateBatch(SESSION, utterances, 2).join();
+
+        assertEquals(6, results.size());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i, results.get(i).index());
+            assertEquals(List.of("up(" + (i + 1) + ")"), results.get(i).commands());
+        }
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    @DisplayName("Falha de um item não derruba o lote")
+    void failedItemDoesNotFailBatch() {
+        List<BatchItemResult> results = manager.translateBatch(SESSION, List.of("suba 1", "quebre", "suba 3"), 3).join();
+
+        assertTrue(results.get(0).isOk());
+        assertEquals(BatchItemResult.Status.ERROR, results.get(1).status());
+        assertTrue(results.get(1).error().contains("500"), results.get(1).error());
+        assertEquals(List.of("up(3)"), results.get(2).commands());
+    }
+}
@@ -0,0 +1,96 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import br.cefet.segaudit.AIContextManager.gemma3.Gemma3Manager;
+import br.cefet.segaudit.model.classes.PlanCatalog;
+
+public class ContextPolicyTest {
+
+    private static final String SESSION = "policy-session";
+    private static final int BASE_TOKENS = 10;
+    private static final int TOKENS_PER_TURN = 40;
+
+    /** Context length and prompt of every translation request the stub received. */
+    private final List<Integer> sentContextLengths = new CopyOnWriteArrayList<>();
+    private final List<String> sentPrompts = new CopyOnWriteArrayList<>();
+    private OllamaStub ollama;
+    private Gemma3Manager manager;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Stub do Ollama: a inicialização devolve o contexto base e cada tradução acrescenta tokens ao contexto recebido.
+        ollama = new OllamaStub(request -> {
+            if (!OllamaStub.isTranslation(request)) {
+                return OllamaStub.reply("takeOff", BASE_TOKENS);
+            }
+            sentContextLengths.add(OllamaStub.contextLength(request));
+            sentPrompts.add(request.get("prompt").asText());
+            return OllamaStub.reply("takeOff", OllamaStub.contextLength(request) + TOKENS_PER_TURN);
+        });
+        manager = ollama.manager()
+                .setting("maxContextTokens", 100)
+                .setting("carryOverTurns", 2)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ollama.close();
+    }
+
+    private void translate(int turns) {
+        manager.initializeUserSession(SESSION, PlanCatalog.parse("plans(\"takeOff,land,up(N)\")"));
+        manager.setTranslationCacheEnabled(SESSION, false);
+        for (int i = 1; i <= turns; i++) {
+            manager.translateMessage(SESSION, "decole " + i).join();
+        }
+    }
+
+    @Test
+    @DisplayName("Política rollback volta ao contexto base ao atingir o limite e repete os últimos pedidos")
+    void rollbackReturnsToBaseContext() {
+        ReflectionTestUtils.invokeMethod(manager, "setContextPolicy", "rollback");
+
+        translate(5);
+
+        assertEquals(List.of(10, 50, 90, 10, 50), sentContextLengths);
+        assertFalse(sentPrompts.get(2).contains("Earlier requests"));
+        String afterRollback = sentPrompts.get(3);
+        assertTrue(afterRollback.startsWith("Earlier requests in this session:\n\"decole 2\" -> takeOff\n\"decole 3\" -> takeOff\n"), afterRollback);
+        assertTrue(afterRollback.endsWith("decole 4"));
+    }
+
+    @Test
+    @DisplayName("Política stateless começa toda tradução do contexto base")
+    void statelessAlwaysUsesBaseContext() {
+        ReflectionTestUtils.invokeMethod(manager, "setContextPolicy", "stateless");
+
+        translate(4);
+
+        assertEquals(List.of(10, 10, 10, 10), sentContextLengths);
+        assertTrue(sentPrompts.stream().noneMatch(prompt -> prompt.contains("Earlier requests")));
+    }
+
+    @Test
+    @DisplayName("Política grow mantém o contexto crescendo")
+    void growKeepsExtendingContext() {
+        ReflectionTestUtils.invokeMethod(manager, "setContextPolicy", "grow");
+
+        translate(4);
+
+        assertEquals(List.of(10, 50, 90, 130), sentContextLengths);
+    }
+}
@@ -0,0 +1,124 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.AIContextManager.snapshot.ContextSnapshotStore;
+import br.cefet.segaudit.model.classes.ContextSnapshot;
+
+public class ContextSnapshotStoreTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshots");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        scheduler.shutdownNow();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /** The flush is only run by the tests, so they control when records reach the disk. */
+    private ContextSnapshotStore open(long segmentBytes, long maxDiskBytes) {
+        return new ContextSnapshotStore(directory, segmentBytes, maxDiskBytes, TimeUnit.HOURS.toMillis(1),
+                TimeUnit.HOURS.toMillis(1), scheduler, Runnable::run);
+    }
+
+    private static ContextSnapshot snapshot(String key, int tokens) {
+        return new ContextSnapshot(key, "prompt-key", "+!takeOff <- true.", new long[] { 7, 8, 9 },
+                LongStream.range(0, tokens).toArray(), System.currentTimeMillis());
+    }
+
+    @Test
+    @DisplayName("Snapshot salvo sobrevive à reabertura do armazenamento")
+    void survivesRestart() {
+        ContextSnapshotStore store = open(1 << 20, 8 << 20);
+        store.save(snapshot("client:agent|gemma3", 500));
+        assertEquals(500, store.load("client:agent|gemma3").orElseThrow().context().length); // Ainda não gravado.
+        store.close();
+
+        ContextSnapshotStore reopened = open(1 << 20, 8 << 20);
+        ContextSnapshot loaded = reopened.load("client:agent|gemma3").orElseThrow();
+        assertArrayEquals(new long[] { 7, 8, 9 }, loaded.baseContext());
+        assertArrayEquals(LongStream.range(0, 500).toArray(), loaded.context());
+        assertEquals("prompt-key", loaded.promptKey());
+        assertEquals("+!takeOff <- true.", loaded.plansContent());
+        assertTrue(reopened.load("other|gemma3").isEmpty());
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Compactação descarta versões antigas e mantém a mais recente")
+    void compactsSupersededRecords() {
+        ContextSnapshotStore store = open(4096, 1 << 20);
+        for (int i = 1; i <= 20; i++) {
+            store.save(snapshot("session|gemma3", 100 + i));
+            store.flush();
+        }
+
+        assertTrue(store.getCompactedSegments() > 0);
+        assertTrue(store.getDiskBytes() <= 2 * 4096, "disk bytes: " + store.getDiskBytes());
+        assertEquals(120, store.load("session|gemma3").orElseThrow().context().length);
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Acima do limite de disco os segmentos mais antigos são descartados")
+    void evictsOldestBeyondDiskBudget() {
+        ContextSnapshotStore store = open(4096, 8192);
+        for (int i = 0; i < 20; i++) {
+            store.save(snapshot("session-" + i + "|gemma3", 200));
+            store.flush();
+        }
+
+        assertTrue(store.getDiskBytes() <= 8192, "disk bytes: " + store.getDiskBytes());
+        assertTrue(store.getEvictedCount() > 0);
+        assertTrue(store.load("session-0|gemma3").isEmpty());
+        assertTrue(store.load("session-19|gemma3").isPresent());
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Registro incompleto no fim do segmento é truncado na abertura")
+    void truncatesTornTail() throws IOException {
+        ContextSnapshotStore store = open(1 << 20, 8 << 20);
+        store.save(snapshot("session|gemma3", 50));
+        store.close();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        long size = Files.size(segment);
+        Files.write(segment, new byte[] { 0x50, 0x41, 0x4E, 0x53, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        ContextSnapshotStore reopened = open(1 << 20, 8 << 20);
+        assertEquals(50, reopened.load("session|gemma3").orElseThrow().context().length);
+        assertEquals(size, Files.size(segment));
+        reopened.close();
+    }
+}
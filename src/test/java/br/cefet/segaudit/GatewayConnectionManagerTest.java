@@ -0,0 +1,133 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.metrics.GatewayMetrics;
+import br.cefet.segaudit.model.classes.ContextNetConfig;
+import br.cefet.segaudit.service.ContextNetClient;
+import br.cefet.segaudit.service.GatewayConnectionManager;
+import br.cefet.segaudit.service.HashedTimingWheel;
+
+public class GatewayConnectionManagerTest {
+
+    private static final UUID AGENT = UUID.fromString("2f1d1c9e-7a43-4d3e-9d7b-3b2a8f6e5c10");
+
+    private final List<ContextNetClient> clients = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private HashedTimingWheel timeouts;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        timeouts = new HashedTimingWheel(scheduler, 10, 64);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clients.forEach(ContextNetClient::close);
+        scheduler.shutdownNow();
+    }
+
+    /** Manager whose connections are never opened: the executor drops the MR-UDP connect. */
+    private static GatewayConnectionManager manager(int poolSize, int sessionsPerConnection) {
+        ExecutorService neverRuns = new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return List.of();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return false;
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return false;
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) {
+                return true;
+            }
+        };
+        return new GatewayConnectionManager(neverRuns, poolSize, sessionsPerConnection);
+    }
+
+    private ContextNetClient session(GatewayConnectionManager gateway) {
+        ContextNetConfig config = new ContextNetConfig();
+        config.gatewayIP = "127.0.0.1";
+        config.gatewayPort = 5500;
+        config.myUUID = UUID.randomUUID();
+        config.destinationUUID = AGENT;
+        ContextNetClient client = new ContextNetClient(config, message -> { }, gateway, timeouts, GatewayMetrics.inMemory());
+        clients.add(client);
+        return client;
+    }
+
+    @Test
+    @DisplayName("Sessões que chegam juntas não ultrapassam o limite de sessões por conexão")
+    void concurrentSessionsRespectSessionsPerConnection() throws Exception {
+        GatewayConnectionManager gateway = manager(32, 1);
+        ExecutorService threads = Executors.newFixedThreadPool(32);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<ContextNetClient>> registered = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                registered.add(threads.submit(() -> {
+                    start.await();
+                    return session(gateway);
+                }));
+            }
+            start.countDown();
+            for (Future<ContextNetClient> future : registered) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+
+        assertEquals(32, gateway.getConnectionCount());
+    }
+
+    @Test
+    @DisplayName("A conexão é fechada e sai do pool quando sua última sessão sai")
+    void idleConnectionIsRemoved() {
+        GatewayConnectionManager gateway = manager(2, 1);
+        ContextNetClient first = session(gateway);
+        ContextNetClient second = session(gateway);
+        assertEquals(2, gateway.getConnectionCount());
+
+        first.close();
+        assertEquals(1, gateway.getConnectionCount());
+
+        session(gateway);
+        assertEquals(2, gateway.getConnectionCount());
+        second.close();
+        assertEquals(1, gateway.getConnectionCount());
+    }
+}
@@ -0,0 +1,77 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.service.HashedTimingWheel;
+
+public class HashedTimingWheelTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Dispara a tarefa depois do atraso, nunca antes")
+    void firesAfterDelay() throws InterruptedException {
+        HashedTimingWheel wheel = new HashedTimingWheel(scheduler, 10, 64);
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        HashedTimingWheel.Timeout timeout = wheel.schedule(fired::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        assertTrue(timeout.isExpired());
+        assertEquals(0, wheel.getPendingCount());
+        assertEquals(1, wheel.getExpiredCount());
+    }
+
+    @Test
+    @DisplayName("Atrasos maiores que uma volta da roda esperam as voltas restantes")
+    void handlesMultipleRounds() throws InterruptedException {
+        HashedTimingWheel wheel = new HashedTimingWheel(scheduler, 10, 4);
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        wheel.schedule(fired::countDown, 150, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150);
+    }
+
+    @Test
+    @DisplayName("Timeouts cancelados não disparam e saem da contagem de pendentes")
+    void cancelledTimeoutsDoNotFire() throws InterruptedException {
+        HashedTimingWheel wheel = new HashedTimingWheel(scheduler, 10, 64);
+        AtomicBoolean ran = new AtomicBoolean();
+        CountDownLatch later = new CountDownLatch(1);
+
+        HashedTimingWheel.Timeout timeout = wheel.schedule(() -> ran.set(true), 30, TimeUnit.MILLISECONDS);
+        wheel.schedule(later::countDown, 80, TimeUnit.MILLISECONDS);
+        assertEquals(2, wheel.getPendingCount());
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(1, wheel.getPendingCount());
+
+        assertTrue(later.await(2, TimeUnit.SECONDS));
+        assertFalse(ran.get());
+        assertTrue(timeout.isCancelled());
+        assertEquals(1, wheel.getExpiredCount());
+    }
+}
@@ -0,0 +1,80 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.model.classes.KqmlFrame;
+import br.cefet.segaudit.model.classes.KqmlFrame.Field;
+
+public class KqmlFrameTest {
+
+    @Test
+    @DisplayName("Extrai os campos de uma resposta com conteúdo contendo vírgulas")
+    void parsesReply() {
+        KqmlFrame frame = KqmlFrame.parse("<mid7->mid3,agent-uuid,tell,session-uuid,plans(\"takeOff, land, up(X)\")>");
+
+        assertNotNull(frame);
+        assertTrue(frame.isReply());
+        assertEquals("mid7", frame.getString(Field.ID));
+        assertEquals("mid3", frame.getString(Field.IN_REPLY_TO));
+        assertEquals("agent-uuid", frame.getString(Field.SENDER));
+        assertEquals("tell", frame.getString(Field.PERFORMATIVE));
+        assertEquals("session-uuid", frame.getString(Field.RECEIVER));
+        assertEquals("plans(\"takeOff, land, up(X)\")", frame.getString(Field.CONTENT));
+    }
+
+    @Test
+    @DisplayName("Mensagens que não são respostas não têm in-reply-to")
+    void parsesNonReply() {
+        KqmlFrame frame = KqmlFrame.parse("  <mid1,uuid-a,achieve,uuid-b, up(3) >\n");
+
+        assertNotNull(frame);
+        assertFalse(frame.isReply());
+        assertNull(frame.getString(Field.IN_REPLY_TO));
+        assertEquals("up(3)", frame.getString(Field.CONTENT));
+    }
+
+    @Test
+    @DisplayName("Compara campos e expõe visões sem copiar o texto")
+    void comparesWithoutCopying() {
+        KqmlFrame frame = KqmlFrame.parse("<a->mid42,s,tell,r,battery(80)>");
+
+        assertTrue(frame.fieldEquals(Field.IN_REPLY_TO, "mid42"));
+        assertFalse(frame.fieldEquals(Field.IN_REPLY_TO, "mid4"));
+        assertFalse(frame.fieldEquals(Field.IN_REPLY_TO, "mid43"));
+        CharSequence content = frame.get(Field.CONTENT);
+        assertEquals(11, content.length());
+        assertEquals('b', content.charAt(0));
+        assertEquals("80", content.subSequence(8, 10).toString());
+    }
+
+    @Test
+    @DisplayName("Lê o número do id no próprio texto")
+    void parsesNumericIds() {
+        KqmlFrame frame = KqmlFrame.parse("<agent9->mid1234567,s,tell,r,done(up(3))>");
+
+        assertEquals(1234567, frame.parseId(Field.IN_REPLY_TO, "mid"));
+        assertEquals(-1, frame.parseId(Field.ID, "mid"));
+        assertEquals(9, frame.parseId(Field.ID, "agent"));
+        assertEquals(-1, KqmlFrame.parse("<a->mid,s,tell,r,c>").parseId(Field.IN_REPLY_TO, "mid"));
+        assertEquals(-1, KqmlFrame.parse("<a->mid12x,s,tell,r,c>").parseId(Field.IN_REPLY_TO, "mid"));
+        assertEquals(-1, KqmlFrame.parse("<a->mid99999999999999999999,s,tell,r,c>").parseId(Field.IN_REPLY_TO, "mid"));
+        assertEquals(-1, KqmlFrame.parse("<a,s,tell,r,c>").parseId(Field.IN_REPLY_TO, "mid"));
+    }
+
+    @Test
+    @DisplayName("Entradas malformadas retornam null em vez de lançar exceção")
+    void rejectsMalformedInput() {
+        assertNull(KqmlFrame.parse(null));
+        assertNull(KqmlFrame.parse(""));
+        assertNull(KqmlFrame.parse("plain text from agent"));
+        assertNull(KqmlFrame.parse("<mid1,sender,tell>"));
+        assertNull(KqmlFrame.parse("<mid1,sender,tell,receiver,content"));
+    }
+}
@@ -0,0 +1,144 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import br.cefet.segaudit.AIContextManager.gemma3.Gemma3Manager;
+import br.cefet.segaudit.metrics.GatewayMetrics;
+import br.cefet.segaudit.model.classes.IAGenerateResponse;
+import br.cefet.segaudit.model.classes.PlanCatalog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ModelKeepAliveTest {
+
+    private static final String SESSION = "keep-alive-session";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    /** When each prompt-less (preload) request reached the stub. */
+    private final List<Long> preloads = new CopyOnWriteArrayList<>();
+    /** load_duration the stub reports, in nanoseconds. */
+    private final AtomicLong loadDuration = new AtomicLong();
+    private final AtomicLong preloadDelayMillis = new AtomicLong();
+    private OllamaStub ollama;
+    private Gemma3Manager manager;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ollama = new OllamaStub(request -> {
+            if (!request.hasNonNull("prompt")) {
+                preloads.add(System.nanoTime());
+                Thread.sleep(preloadDelayMillis.get());
+            }
+            return new IAGenerateResponse("takeOff", new long[] { 1, 2, 3 }, 3, loadDuration.get());
+        });
+        manager = ollama.manager()
+                .metrics(new GatewayMetrics(registry))
+                .setting("keepAlive", "10m")
+                .setting("coldLoadThresholdMillis", 1000L)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.stopKeeper();
+        ollama.close();
+    }
+
+    private void configure(boolean warmUp, long refreshMillis) {
+        ReflectionTestUtils.setField(manager, "warmUpOnStartup", warmUp);
+        ReflectionTestUtils.setField(manager, "keepAliveRefreshMillis", refreshMillis);
+    }
+
+    private void awaitPreloads(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (preloads.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(preloads.size() >= count, "preloads: " + preloads.size());
+    }
+
+    private long coldLoads() {
+        return registry.get("segaudit.ollama.cold.loads").timer().count();
+    }
+
+    @Test
+    @DisplayName("Carrega o modelo quando a aplicação fica pronta e conta a carga a frio pelo load_duration")
+    void warmsUpOnApplicationReadyAndCountsColdLoad() throws InterruptedException {
+        configure(true, 0);
+        loadDuration.set(TimeUnit.SECONDS.toNanos(2));
+
+        manager.onApplicationReady();
+        awaitPreloads(1);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (coldLoads() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, coldLoads());
+        assertEquals(2_000.0, registry.get("segaudit.ollama.cold.loads").timer().totalTime(TimeUnit.MILLISECONDS));
+
+        // Abaixo do limite o modelo já estava carregado: não conta.
+        loadDuration.set(TimeUnit.MILLISECONDS.toNanos(20));
+        manager.initializeUserSession(SESSION, PlanCatalog.parse("plans(\"takeOff,land\")"));
+        assertEquals(1, coldLoads());
+    }
+
+    @Test
+    @DisplayName("Sem warm-up e sem sessões, o keeper não envia nada")
+    void keeperStaysSilentWithoutSessions() throws InterruptedException {
+        configure(false, 40);
+
+        manager.onApplicationReady();
+        Thread.sleep(200);
+
+        assertEquals(0, preloads.size());
+    }
+
+    @Test
+    @DisplayName("Com sessões ociosas, o keeper renova o keep_alive a cada intervalo até ser parado")
+    void keeperRefreshesWhileSessionsAreQuiet() throws InterruptedException {
+        configure(false, 40);
+        manager.initializeUserSession(SESSION, PlanCatalog.parse("plans(\"takeOff,land\")"));
+
+        manager.onApplicationReady();
+        awaitPreloads(2);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(preloads.get(1) - preloads.get(0)) >= 30);
+
+        manager.stopKeeper();
+        Thread.sleep(50); // Uma renovação já enviada ainda pode chegar.
+        int afterStop = preloads.size();
+        Thread.sleep(200);
+        assertEquals(afterStop, preloads.size());
+    }
+
+    @Test
+    @DisplayName("O keeper não bloqueia a thread compartilhada do scheduler nem acumula renovações enquanto o Ollama demora")
+    void keeperDoesNotBlockSharedScheduler() throws Exception {
+        configure(false, 40);
+        preloadDelayMillis.set(1_000);
+        manager.initializeUserSession(SESSION, PlanCatalog.parse("plans(\"takeOff,land\")"));
+
+        manager.onApplicationReady();
+        awaitPreloads(1);
+
+        long submitted = System.nanoTime();
+        ScheduledFuture<Long> probe = ollama.timers().schedule(System::nanoTime, 0, TimeUnit.MILLISECONDS);
+        long ranAfterMillis = TimeUnit.NANOSECONDS.toMillis(probe.get(5, TimeUnit.SECONDS) - submitted);
+        assertTrue(ranAfterMillis < 200, "scheduler thread was busy for " + ranAfterMillis + " ms");
+
+        Thread.sleep(200); // Vários intervalos passam com a primeira renovação ainda em andamento.
+        assertEquals(1, preloads.size());
+    }
+}
@@ -0,0 +1,176 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import br.cefet.segaudit.AIContextManager.balancing.OllamaEndpointPool;
+
+public class OllamaEndpointPoolTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private HttpServer fast;
+    private HttpServer slow;
+    private final AtomicInteger fastStatus = new AtomicInteger(200);
+    private final AtomicInteger fastCalls = new AtomicInteger();
+    private final AtomicInteger slowCalls = new AtomicInteger();
+
+    /** Stub Ollama that answers /api/generate with its own name after {@code delayMs}. */
+    private HttpServer stub(String name, long delayMs, AtomicInteger status, AtomicInteger calls) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/generate", exchange -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = name.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status.get(), body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/api/tags", exchange -> {
+            exchange.sendResponseHeaders(status.get(), -1);
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+
+    private static String url(HttpServer server) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/generate";
+    }
+
+    /** Pool over the two stubs; new sessions go to the first listed endpoint when both are idle. */
+    private OllamaEndpointPool pool(boolean fastFirst, boolean hedging) throws IOException {
+        fast = stub("fast", 0, fastStatus, fastCalls);
+        slow = stub("slow", 400, new AtomicInteger(200), slowCalls);
+        String urls = fastFirst ? url(fast) + "," + url(slow) : url(slow) + "," + url(fast);
+        return new OllamaEndpointPool(urls, client, scheduler, 0, 1000, 2, 60_000, hedging, 0.5, 3);
+    }
+
+    private CompletableFuture<String> post(URI uri) {
+        HttpRequest request = HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofString("{}")).build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            if (response.statusCode() != 200) {
+                throw new CompletionException(new IOException("status " + response.statusCode()));
+            }
+            return response.body();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (fast != null) {
+            fast.stop(0);
+        }
+        if (slow != null) {
+            slow.stop(0);
+        }
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Mantém a sessão no mesmo endpoint enquanto ele está saudável")
+    void keepsSessionAffinity() throws Exception {
+        OllamaEndpointPool pool = pool(true, false);
+
+        String first = pool.execute("s1", false, this::post).get();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(first, pool.execute("s1", false, this::post).get());
+        }
+    }
+
+    @Test
+    @DisplayName("Distribui sessões novas pelo endpoint com menos requisições pendentes")
+    void routesToLeastOutstanding() throws Exception {
+        OllamaEndpointPool pool = pool(false, false);
+
+        CompletableFuture<String> a = pool.execute("a", false, this::post);
+        CompletableFuture<String> b = pool.execute("b", false, this::post);
+        assertEquals("slow", a.get());
+        assertEquals("fast", b.get());
+    }
+
+    @Test
+    @DisplayName("Ejeta o endpoint após falhas consecutivas e move a sessão")
+    void ejectsFailingEndpoint() throws Exception {
+        OllamaEndpointPool pool = pool(true, false);
+        fastStatus.set(500);
+        assertEquals(2, pool.getAvailableCount());
+
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<String> call = pool.execute("s1", false, this::post);
+            assertThrows(ExecutionException.class, call::get);
+        }
+        assertEquals("slow", pool.execute("s1", false, this::post).get());
+        assertEquals(2, fastCalls.get());
+        assertEquals(1, pool.getAvailableCount());
+    }
+
+    @Test
+    @DisplayName("Duplica para outro endpoint requisições mais lentas que o percentil")
+    void hedgesSlowRequests() throws Exception {
+        OllamaEndpointPool pool = pool(false, true);
+        CompletableFuture<String> pinnedToSlow = pool.execute("slow-session", false, this::post);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("fast", pool.execute("warm", true, this::post).get());
+        }
+        assertEquals("slow", pinnedToSlow.get());
+
+        assertEquals("fast", pool.execute("slow-session", true, this::post).get());
+        assertEquals(1, pool.getHedgedCount());
+    }
+
+    @Test
+    @DisplayName("Se a tentativa principal falha, a reserva sai na hora e a falha só chega ao resultado se ela também falhar")
+    void hedgedCallSurvivesPrimaryFailure() throws Exception {
+        OllamaEndpointPool pool = pool(false, true);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("slow", pool.execute("warm", false, this::post).get());
+        }
+        // O percentil fica em ~400 ms: a reserva só pode sair antes disso pela falha da principal.
+        CompletableFuture<String> busySlow = pool.execute("other", false, this::post);
+        fastStatus.set(500);
+
+        assertEquals("slow", pool.execute("s1", true, this::post).get(2, TimeUnit.SECONDS));
+        assertEquals(1, fastCalls.get());
+        assertEquals(1, pool.getHedgedCount());
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (pool.getHedgeWinCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, pool.getHedgeWinCount());
+        busySlow.get();
+    }
+
+    @Test
+    @DisplayName("A falha do endpoint aparece como exceção no resultado")
+    void propagatesFailure() throws IOException {
+        OllamaEndpointPool pool = new OllamaEndpointPool("http://127.0.0.1:1/api/generate", client, scheduler, 0, 1000, 2, 60_000, false, 0.5, 3);
+        assertThrows(ExecutionException.class, () -> pool.execute("s1", false, this::post).get());
+    }
+}
@@ -0,0 +1,166 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.AIContextManager.scheduling.OllamaRequestScheduler;
+import br.cefet.segaudit.AIContextManager.scheduling.OllamaRequestScheduler.Priority;
+
+public class OllamaRequestSchedulerTest {
+
+    private final List<String> started = new ArrayList<>();
+    private final List<CompletableFuture<String>> calls = new ArrayList<>();
+
+    private CompletableFuture<String> submit(OllamaRequestScheduler scheduler, String sessionId, Priority priority, String label) {
+        return scheduler.submit(sessionId, priority, () -> {
+            started.add(label);
+            CompletableFuture<String> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        });
+    }
+
+    /** Completes the oldest running call, freeing its slot. */
+    private void finishNext() {
+        calls.remove(0).complete("ok");
+    }
+
+    @Test
+    @DisplayName("Limita as requisições simultâneas e enfileira o excedente")
+    void limitsInFlight() throws Exception {
+        OllamaRequestScheduler scheduler = new OllamaRequestScheduler(2, 10);
+        CompletableFuture<String> first = submit(scheduler, "s1", Priority.INTERACTIVE, "a");
+        submit(scheduler, "s2", Priority.INTERACTIVE, "b");
+        submit(scheduler, "s3", Priority.INTERACTIVE, "c");
+
+        assertEquals(List.of("a", "b"), started);
+        assertEquals(2, scheduler.getInFlight());
+        assertEquals(1, scheduler.getQueueDepth());
+
+        finishNext();
+        assertEquals("ok", first.get());
+        assertEquals(List.of("a", "b", "c"), started);
+        assertEquals(0, scheduler.getQueueDepth());
+    }
+
+    @Test
+    @DisplayName("O limite é por endpoint e acompanha os endpoints disponíveis")
+    void limitScalesWithAvailableEndpoints() {
+        AtomicInteger endpoints = new AtomicInteger(2);
+        OllamaRequestScheduler scheduler = new OllamaRequestScheduler(2, 10, endpoints::get);
+        for (int i = 0; i < 6; i++) {
+            submit(scheduler, "s" + i, Priority.INTERACTIVE, "r" + i);
+        }
+        assertEquals(4, scheduler.getMaxInFlight());
+        assertEquals(List.of("r0", "r1", "r2", "r3"), started);
+        assertEquals(2, scheduler.getQueueDepth());
+
+        endpoints.set(1); // Um endpoint ejetado leva suas vagas: nada novo começa até sobrar só o limite de um.
+        finishNext();
+        finishNext();
+        assertEquals(4, started.size());
+        finishNext();
+        assertEquals(5, started.size());
+
+        endpoints.set(0); // Todos ejetados: o pool ainda usa um endpoint.
+        assertEquals(2, scheduler.getMaxInFlight());
+    }
+
+    @Test
+    @DisplayName("Quando um endpoint volta, a próxima requisição já aproveita as vagas novas")
+    void regainedEndpointStartsQueuedWork() {
+        AtomicInteger endpoints = new AtomicInteger(1);
+        OllamaRequestScheduler scheduler = new OllamaRequestScheduler(1, 10, endpoints::get);
+        submit(scheduler, "s1", Priority.INTERACTIVE, "a");
+        submit(scheduler, "s2", Priority.INTERACTIVE, "b");
+        submit(scheduler, "s3", Priority.INTERACTIVE, "c");
+        assertEquals(List.of("a"), started);
+
+        endpoints.set(3); // Nenhuma chamada terminou, mas agora há três vagas.
+        submit(scheduler, "s4", Priority.INTERACTIVE, "d");
+
+        assertEquals(List.of("a", "b", "c"), started);
+        assertEquals(3, scheduler.getInFlight());
+        assertEquals(1, scheduler.getQueueDepth());
+    }
+
+    @Test
+    @DisplayName("Atende sessões em rodízio e traduções antes de inicializações")
+    void roundRobinWithPriority() {
+        OllamaRequestScheduler scheduler = new OllamaRequestScheduler(1, 10);
+        submit(scheduler, "busy", Priority.INTERACTIVE, "busy-0");
+        submit(scheduler, "new", Priority.INITIALIZATION, "new-init");
+        submit(scheduler, "busy", Priority.INTERACTIVE, "busy-1");
+        submit(scheduler, "busy", Priority.INTERACTIVE, "busy-2");
+        submit(scheduler, "quiet", Priority.INTERACTIVE, "quiet-1");
+
+        for (int i = 0; i < 4; i++) {
+            finishNext();
+        }
+        assertEquals(List.of("busy-0", "busy-1", "quiet-1", "busy-2", "new-init"), started);
+    }
+
+    @Test
+    @DisplayName("Rejeita com erro claro quando a fila está cheia")
+    void shedsLoadWhenQueueIsFull() {
+        OllamaRequestScheduler scheduler = new OllamaRequestScheduler(1, 1);
+        submit(scheduler, "s1", Priority.INTERACTIVE, "a");
+        submit(scheduler, "s2", Priority.INTERACTIVE, "b");
+        CompletableFuture<String> shed = submit(scheduler, "s3", Priority.INTERACTIVE, "c");
+
+        ExecutionException ex = assertThrows(ExecutionException.class, shed::get);
+        assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        assertEquals(1, scheduler.getRejectedCount());
+    }
+
+    @Test
+    @DisplayName("Com a fila cheia, trabalho interativo desloca a especulação mais antiga em vez de ser rejeitado")
+    void displacesOldestSpeculationWhenQueueIsFull() {
+        OllamaRequestScheduler scheduler = new OllamaRequestScheduler(1, 2);
+        submit(scheduler, "s1", Priority.INTERACTIVE, "a");
+        CompletableFuture<String> oldDraft = submit(scheduler, "s2", Priority.SPECULATIVE, "draft-2");
+        CompletableFuture<String> newDraft = submit(scheduler, "s3", Priority.SPECULATIVE, "draft-3");
+
+        CompletableFuture<String> interactive = submit(scheduler, "s4", Priority.INTERACTIVE, "b");
+        assertFalse(interactive.isDone());
+        ExecutionException ex = assertThrows(ExecutionException.class, oldDraft::get);
+        assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        assertEquals(2, scheduler.getQueueDepth());
+
+        // Sem especulação para deslocar, outra especulação é rejeitada normalmente.
+        CompletableFuture<String> shed = submit(scheduler, "s5", Priority.SPECULATIVE, "draft-5");
+        assertTrue(shed.isCompletedExceptionally());
+        assertEquals(2, scheduler.getRejectedCount());
+
+        finishNext();
+        finishNext();
+        assertEquals(List.of("a", "b", "draft-3"), started);
+        assertFalse(newDraft.isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("Cancelar uma requisição na fila a remove sem consumir vaga")
+    void cancellingQueuedRequestRemovesIt() {
+        OllamaRequestScheduler scheduler = new OllamaRequestScheduler(1, 10);
+        submit(scheduler, "s1", Priority.INTERACTIVE, "a");
+        CompletableFuture<String> queued = submit(scheduler, "s2", Priority.INTERACTIVE, "b");
+        submit(scheduler, "s3", Priority.INTERACTIVE, "c");
+
+        queued.cancel(true);
+        assertEquals(1, scheduler.getQueueDepth());
+        finishNext();
+        assertEquals(List.of("a", "c"), started);
+    }
+}
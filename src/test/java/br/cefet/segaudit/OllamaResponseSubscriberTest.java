@@ -0,0 +1,78 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.cefet.segaudit.AIContextManager.streaming.OllamaResponseSubscriber;
+import br.cefet.segaudit.model.classes.IAGenerateResponse;
+
+public class OllamaResponseSubscriberTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Decodifica resposta, contexto e custo mesmo com o JSON fatiado em pedaços arbitrários")
+    void parsesChunkedBody() throws Exception {
+        long[] context = new long[10_000];
+        for (int i = 0; i < context.length; i++) {
+            context[i] = i * 31L;
+        }
+        String json = "{\"model\":\"gemma3\",\"created_at\":\"2024-01-01T00:00:00Z\",\"response\":\"takeOff\\nup(3)\","
+                + "\"done\":true,\"metrics\":{\"context\":[9,9],\"nested\":[[1],{\"response\":\"x\"}]},"
+                + "\"context\":" + objectMapper.writeValueAsString(context) + ",\"prompt_eval_count\":1234,\"load_duration\":4200000000,\"eval_duration\":1.5e9}";
+
+        IAGenerateResponse response = feed(json, 7);
+
+        assertEquals("takeOff\nup(3)", response.response());
+        assertArrayEquals(context, response.context());
+        assertEquals(1234, response.promptEvalCount());
+        assertEquals(4_200_000_000L, response.loadDuration());
+    }
+
+    @Test
+    @DisplayName("Contexto ausente ou nulo resulta em contexto nulo")
+    void missingContext() throws Exception {
+        assertNull(feed("{\"response\":\"land\",\"prompt_eval_count\":3}", 4096).context());
+        assertNull(feed("{\"response\":\"land\",\"context\":null}", 4096).context());
+    }
+
+    @Test
+    @DisplayName("JSON truncado ou inválido falha o corpo")
+    void rejectsMalformedBody() {
+        assertThrows(ExecutionException.class, () -> feed("{\"response\":\"land\",\"context\":[1,2", 4096));
+        assertThrows(ExecutionException.class, () -> feed("{\"response\":land}", 4096));
+    }
+
+    private IAGenerateResponse feed(String json, int chunkSize) throws Exception {
+        OllamaResponseSubscriber subscriber = new OllamaResponseSubscriber(objectMapper.getFactory());
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            int length = Math.min(chunkSize, bytes.length - offset);
+            subscriber.onNext(List.of(ByteBuffer.wrap(bytes, offset, length).slice()));
+        }
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().get();
+    }
+}
@@ -0,0 +1,138 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.cefet.segaudit.AIContextManager.streaming.OllamaStreamSubscriber;
+import br.cefet.segaudit.model.classes.IAGenerateResponse;
+
+public class OllamaStreamSubscriberTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> lines = new CopyOnWriteArrayList<>();
+    private boolean subscriptionCancelled;
+    private final OllamaStreamSubscriber subscriber = new OllamaStreamSubscriber(objectMapper, lines::add);
+
+    @BeforeEach
+    void setUp() {
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+                subscriptionCancelled = true;
+            }
+        });
+    }
+
+    private static String chunk(String text) {
+        return "{\"model\":\"gemma3\",\"response\":" + quote(text) + ",\"done\":false}";
+    }
+
+    private static String quote(String text) {
+        return "\"" + text.replace("\n", "\\n") + "\"";
+    }
+
+    @Test
+    @DisplayName("Comandos divididos entre pedaços só são emitidos quando a linha termina")
+    void reassemblesLinesAcrossChunks() {
+        subscriber.onNext(chunk("take"));
+        subscriber.onNext(chunk("Off\nup("));
+        assertEquals(List.of("takeOff"), lines);
+
+        subscriber.onNext(chunk("3)\n\n  land  \nmo"));
+        assertEquals(List.of("takeOff", "up(3)", "land"), lines);
+
+        subscriber.onNext(chunk("ve(1,2)"));
+        assertEquals(3, lines.size());
+    }
+
+    @Test
+    @DisplayName("O pedaço final emite a última linha e traz contexto, custo e tempo de carga")
+    void finalChunkCompletesWithContext() throws Exception {
+        subscriber.onNext(chunk("takeOff\nland"));
+        subscriber.onNext("");
+        subscriber.onNext("{\"model\":\"gemma3\",\"response\":\"\",\"done\":true,\"context\":[4,5,6],"
+                + "\"prompt_eval_count\":12,\"load_duration\":3000,\"eval_count\":5}");
+
+        assertEquals(List.of("takeOff", "land"), lines);
+        IAGenerateResponse response = subscriber.getResult().get();
+        assertEquals("takeOff\nland", response.response());
+        assertArrayEquals(new long[] { 4, 5, 6 }, response.context());
+        assertEquals(12, response.promptEvalCount());
+        assertEquals(3000, response.loadDuration());
+
+        subscriber.onNext(chunk("extra\n")); // Depois do fim, nada mais é emitido.
+        assertEquals(2, lines.size());
+    }
+
+    @Test
+    @DisplayName("Erro no meio do stream falha o resultado e cancela a leitura")
+    void errorChunkFailsStream() {
+        subscriber.onNext(chunk("takeOff\n"));
+        subscriber.onNext("{\"error\":\"model ran out of memory\"}");
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> subscriber.getResult().get());
+        assertTrue(failure.getCause() instanceof IOException);
+        assertTrue(failure.getCause().getMessage().contains("out of memory"));
+        assertTrue(subscriptionCancelled);
+        assertEquals(List.of("takeOff"), lines);
+    }
+
+    @Test
+    @DisplayName("JSON inválido ou stream encerrado sem o pedaço final são falhas")
+    void malformedOrTruncatedStreamFails() {
+        OllamaStreamSubscriber truncated = new OllamaStreamSubscriber(objectMapper, lines::add);
+        truncated.onNext(chunk("takeOff"));
+        truncated.onComplete();
+        assertTrue(truncated.getResult().isCompletedExceptionally());
+        assertTrue(lines.isEmpty());
+
+        subscriber.onNext("{\"response\":");
+        assertTrue(subscriber.getResult().isCompletedExceptionally());
+        assertTrue(subscriptionCancelled);
+    }
+
+    @Test
+    @DisplayName("Falha no consumidor de linhas não interrompe a geração")
+    void callbackFailureDoesNotStopStream() throws Exception {
+        OllamaStreamSubscriber fragile = new OllamaStreamSubscriber(objectMapper, line -> {
+            if (line.equals("bad")) {
+                throw new IllegalStateException("boom");
+            }
+            lines.add(line);
+        });
+        fragile.onNext(chunk("bad\ntakeOff\n"));
+        fragile.onNext("{\"response\":\"\",\"done\":true,\"context\":[1]}");
+
+        assertEquals(List.of("takeOff"), lines);
+        assertFalse(fragile.getResult().isCompletedExceptionally());
+        assertEquals("bad\ntakeOff\n", fragile.getResult().get().response());
+    }
+
+    @Test
+    @DisplayName("Cancelar para o stream e o resultado")
+    void cancelStopsSubscription() {
+        subscriber.cancel();
+
+        assertTrue(subscriptionCancelled);
+        assertTrue(subscriber.getResult().isCancelled());
+    }
+}
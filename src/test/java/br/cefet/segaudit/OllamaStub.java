@@ -0,0 +1,170 @@
+package br.cefet.segaudit;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.LongStream;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import br.cefet.segaudit.AIContextManager.balancing.OllamaEndpointPool;
+import br.cefet.segaudit.AIContextManager.cache.PromptContextCache;
+import br.cefet.segaudit.AIContextManager.cache.TranslationCache;
+import br.cefet.segaudit.AIContextManager.gemma3.Gemma3Manager;
+import br.cefet.segaudit.AIContextManager.prompt.PromptBuilder;
+import br.cefet.segaudit.AIContextManager.scheduling.OllamaRequestScheduler;
+import br.cefet.segaudit.AIContextManager.snapshot.ContextSnapshotStore;
+import br.cefet.segaudit.metrics.GatewayMetrics;
+import br.cefet.segaudit.model.classes.IAGenerateResponse;
+
+/**
+ * Stub of Ollama's {@code /api/generate} for the manager tests, with a builder for a {@link Gemma3Manager} that talks
+ * to it. Each request runs on its own thread, so a handler may hold it for as long as a test needs.
+ */
+public final class OllamaStub implements AutoCloseable {
+
+    public static final String MODEL = "gemma3:12b";
+
+    /** Answers one request; {@code null} answers 500. Throwing closes the exchange without an answer. */
+    @FunctionalInterface
+    public interface Handler {
+        IAGenerateResponse handle(JsonNode request) throws Exception;
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService timers = Executors.newSingleThreadScheduledExecutor();
+
+    public OllamaStub(Handler handler) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(threads);
+        server.createContext("/api/generate", exchange -> answer(exchange, handler));
+        server.start();
+    }
+
+    private void answer(HttpExchange exchange, Handler handler) throws IOException {
+        try (exchange) {
+            IAGenerateResponse response = handler.handle(objectMapper.readTree(exchange.getRequestBody()));
+            if (response == null) {
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /** Translations carry the session context; session initialization and model preloads do not. */
+    public static boolean isTranslation(JsonNode request) {
+        JsonNode context = request.get("context");
+        return context != null && !context.isNull();
+    }
+
+    /** Length of the context the request carries, 0 for initialization. */
+    public static int contextLength(JsonNode request) {
+        return isTranslation(request) ? request.get("context").size() : 0;
+    }
+
+    /** An answer whose context has {@code tokens} tokens. */
+    public static IAGenerateResponse reply(String response, int tokens) {
+        return new IAGenerateResponse(response, LongStream.range(0, tokens).toArray(), tokens);
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/generate";
+    }
+
+    /** Scheduler handed to the manager and its endpoint pool; shut down with the stub. */
+    public ScheduledExecutorService timers() {
+        return timers;
+    }
+
+    public ManagerBuilder manager() {
+        return new ManagerBuilder();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        threads.shutdownNow();
+        timers.shutdownNow();
+    }
+
+    /** Builds a manager for the stub; every collaborator has a test default that can be replaced by name. */
+    public final class ManagerBuilder {
+        private PromptContextCache contextCache = new PromptContextCache(32);
+        private TranslationCache translationCache = new TranslationCache(0, 0);
+        private OllamaRequestScheduler scheduler = new OllamaRequestScheduler(2, 16);
+        private GatewayMetrics metrics = GatewayMetrics.inMemory();
+        private ContextSnapshotStore snapshots = ContextSnapshotStore.disabled();
+        private final Map<String, Object> settings = new LinkedHashMap<>();
+
+        private ManagerBuilder() {
+            settings.put("modelName", MODEL);
+            settings.put("contextResource", new ClassPathResource("gemma3/gemma3Context.txt"));
+        }
+
+        public ManagerBuilder contextCache(PromptContextCache contextCache) {
+            this.contextCache = contextCache;
+            return this;
+        }
+
+        public ManagerBuilder translationCache(TranslationCache translationCache) {
+            this.translationCache = translationCache;
+            return this;
+        }
+
+        public ManagerBuilder scheduler(OllamaRequestScheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public ManagerBuilder metrics(GatewayMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public ManagerBuilder snapshots(ContextSnapshotStore snapshots) {
+            this.snapshots = snapshots;
+            return this;
+        }
+
+        /** Sets one of the manager's {@code @Value} settings by field name, as Spring would. */
+        public ManagerBuilder setting(String field, Object value) {
+            settings.put(field, value);
+            return this;
+        }
+
+        public Gemma3Manager build() {
+            HttpClient client = HttpClient.newHttpClient();
+            // Um único endpoint, sem health checks nem hedging.
+            OllamaEndpointPool endpointPool = new OllamaEndpointPool(url(), client, timers,
+                    0, 2000, 3, 30_000, false, 0.95, 20);
+            Gemma3Manager manager = new Gemma3Manager(client, objectMapper, contextCache, translationCache, List.of(),
+                    new PromptBuilder(0, 8), scheduler, endpointPool, metrics, timers, snapshots);
+            settings.forEach((field, value) -> ReflectionTestUtils.setField(manager, field, value));
+            return manager;
+        }
+    }
+}
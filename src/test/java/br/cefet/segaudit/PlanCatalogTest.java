@@ -0,0 +1,72 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.model.classes.PlanCatalog;
+import br.cefet.segaudit.model.classes.PlanCatalog.PlanEntry;
+
+public class PlanCatalogTest {
+
+    private static final String AGENT_REPLY = "plans(\"/**@Description Apenas tira o embarcado do chão*/ takeOff "
+            + "/**@Description Se o drone não estiver voando, sobe o drone em X unidades*/ up(X) "
+            + "/**@Description pousa o drone*/ land "
+            + "/**@Description move o drone até o ponto*/goTo(X, Y)  /**@Description desliga o drone*/turnOff\")";
+
+    @Test
+    @DisplayName("Extrai nome, parâmetros e descrição de cada plano")
+    void parsesEntries() {
+        PlanCatalog catalog = PlanCatalog.parse(AGENT_REPLY);
+
+        assertEquals(5, catalog.size());
+        PlanEntry up = catalog.find("up");
+        assertNotNull(up);
+        assertEquals(List.of("X"), up.parameters());
+        assertEquals("Se o drone não estiver voando, sobe o drone em X unidades", up.description());
+        assertEquals("goTo(X,Y)", catalog.find("goTo").signature());
+        assertEquals(0, catalog.find("land").arity());
+    }
+
+    @Test
+    @DisplayName("Aceita a lista simples separada por vírgulas")
+    void parsesPlainList() {
+        PlanCatalog catalog = PlanCatalog.parse("plans(\"takeOff,land,turnoff,up(N),down(N)\")");
+
+        assertEquals(5, catalog.size());
+        assertEquals(1, catalog.find("down").arity());
+        assertEquals("", catalog.find("takeOff").description());
+    }
+
+    @Test
+    @DisplayName("Indexa planos por palavras-chave da descrição e do nome")
+    void indexesKeywords() {
+        PlanCatalog catalog = PlanCatalog.parse(AGENT_REPLY);
+
+        assertEquals(List.of("land"), catalog.findByKeyword("pousa").stream().map(PlanEntry::name).toList());
+        assertEquals(List.of("turnOff"), catalog.findByKeyword("desliga").stream().map(PlanEntry::name).toList());
+        assertEquals(List.of("goTo"), catalog.findByKeyword("ate").stream().map(PlanEntry::name).toList());
+        assertTrue(catalog.findByKeyword("inexistente").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Valida comandos gerados e rejeita planos inexistentes")
+    void validatesCommands() {
+        PlanCatalog catalog = PlanCatalog.parse(AGENT_REPLY);
+
+        assertEquals(Optional.of("up(3)"), catalog.validate("up(3)"));
+        assertEquals(Optional.of("turnOff"), catalog.validate("turnoff"));
+        assertEquals(Optional.of("goTo(1, 2)"), catalog.validate("goto(1, 2)"));
+        assertTrue(catalog.validate("fly(3)").isEmpty());
+        assertTrue(catalog.validate("land(2)").isEmpty());
+        assertTrue(catalog.validate("up").isEmpty());
+        assertNull(catalog.findIgnoreCase("missing"));
+    }
+}
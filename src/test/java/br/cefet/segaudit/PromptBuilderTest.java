@@ -0,0 +1,105 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.AIContextManager.prompt.PromptBuilder;
+import br.cefet.segaudit.AIContextManager.prompt.PromptBuilder.BuiltPrompt;
+import br.cefet.segaudit.AIContextManager.prompt.PromptBuilder.CompactionLevel;
+import br.cefet.segaudit.model.classes.PlanCatalog;
+
+public class PromptBuilderTest {
+
+    private static final String TEMPLATE = "Convert the user request into commands.\n"
+            + "PLANS:\n" + PromptBuilder.PLANS_PLACEHOLDER + "\n"
+            + "Discard anything not in " + PromptBuilder.PLANS_PLACEHOLDER + ".";
+
+    private static final PlanCatalog CATALOG = PlanCatalog.parse("plans(\""
+            + "/**@Description Apenas tira o embarcado do chão, sem subir além da altura mínima de segurança*/ takeOff "
+            + "/**@Description Se o drone não estiver voando, sobe o drone em X unidades na vertical*/ up(X) "
+            + "/**@Description pousa o drone no ponto atual, reduzindo a velocidade gradualmente*/ land "
+            + "/**@Description pousa o drone no ponto atual, reduzindo a velocidade gradualmente*/ emergencyLand "
+            + "/**@Description liga a câmera térmica e começa a gravar o vídeo*/ startCamera "
+            + "/**@Description turnOff*/ turnOff\")");
+
+    @Test
+    @DisplayName("Mantém o prompt original quando cabe no orçamento")
+    void keepsFullPromptWithinBudget() {
+        BuiltPrompt built = new PromptBuilder(10_000, 8).build(TEMPLATE, CATALOG);
+
+        assertEquals(CompactionLevel.FULL, built.level());
+        assertEquals(TEMPLATE.replace(PromptBuilder.PLANS_PLACEHOLDER, CATALOG.getPlansContent()), built.prompt());
+        assertEquals(built.estimatedTokensBefore(), built.estimatedTokensAfter());
+    }
+
+    @Test
+    @DisplayName("Desativa a compactação com orçamento zero")
+    void budgetZeroDisablesCompaction() {
+        assertEquals(CompactionLevel.FULL, new PromptBuilder(0, 8).build(TEMPLATE, CATALOG).level());
+    }
+
+    @Test
+    @DisplayName("Remove descrições repetidas e a segunda cópia dos planos")
+    void collapsesRedundantText() {
+        int full = new PromptBuilder(0, 8).build(TEMPLATE, CATALOG).estimatedTokensBefore();
+        BuiltPrompt built = new PromptBuilder(full - 60, 8).build(TEMPLATE, CATALOG);
+
+        assertEquals(CompactionLevel.COLLAPSED, built.level());
+        assertFalse(built.prompt().contains(PromptBuilder.PLANS_PLACEHOLDER));
+        assertEquals(1, built.prompt().split("gradualmente", -1).length - 1);
+        assertFalse(built.plansBlock().contains("@Description turnOff"));
+        assertTrue(built.estimatedTokensAfter() <= full - 60);
+    }
+
+    @Test
+    @DisplayName("No template distribuído, a lista fica sob REAL AGENT PLANS e a regra de filtro só a referencia")
+    void keepsPlansUnderHeadingOfShippedTemplate() throws IOException {
+        String template;
+        try (InputStream in = PromptBuilderTest.class.getResourceAsStream("/gemma3/gemma3Context.txt")) {
+            template = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        int full = new PromptBuilder(0, 8).build(template, CATALOG).estimatedTokensBefore();
+        BuiltPrompt built = new PromptBuilder(full - 60, 8).build(template, CATALOG);
+
+        assertEquals(CompactionLevel.COLLAPSED, built.level());
+        assertFalse(built.prompt().contains(PromptBuilder.PLANS_PLACEHOLDER));
+        assertEquals(1, built.prompt().split("gradualmente", -1).length - 1);
+        assertTrue(built.prompt().contains("## REAL AGENT PLANS (SOURCE OF TRUTH):\n" + built.plansBlock() + "\n"), built.prompt());
+        assertTrue(built.prompt().contains("letter-by-letter in `the REAL AGENT PLANS list`"), built.prompt());
+    }
+
+    @Test
+    @DisplayName("Encurta descrições e depois mantém apenas as assinaturas")
+    void shortensThenKeepsSignatures() {
+        BuiltPrompt shortened = new PromptBuilder(110, 4).build(TEMPLATE, CATALOG);
+        assertEquals(CompactionLevel.SHORT_DESCRIPTIONS, shortened.level());
+        assertTrue(shortened.plansBlock().contains("/**@Description Apenas tira o embarcado...*/ takeOff"));
+
+        BuiltPrompt signatures = new PromptBuilder(40, 8).build(TEMPLATE, CATALOG);
+        assertEquals(CompactionLevel.SIGNATURES, signatures.level());
+        assertEquals("takeOff, up(X), land, emergencyLand, startCamera, turnOff", signatures.plansBlock());
+    }
+
+    @Test
+    @DisplayName("Seleciona os planos que cabem e sugere os omitidos relevantes por frase")
+    void selectsPlansAndHintsOmittedOnes() {
+        PromptBuilder builder = new PromptBuilder(28, 8);
+        BuiltPrompt built = builder.build(TEMPLATE, CATALOG);
+
+        assertEquals(CompactionLevel.SELECTED, built.level());
+        assertFalse(built.omittedPlans().isEmpty());
+        assertTrue(built.estimatedTokensAfter() <= 28);
+        assertEquals(CATALOG.size(), built.omittedPlans().size() + built.plansBlock().split(", ").length);
+
+        assertEquals("Additional agent plans: startCamera\n", builder.relevantPlansHint(built.omittedPlans(), "liga a câmera"));
+        assertEquals("", builder.relevantPlansHint(built.omittedPlans(), "bom dia"));
+    }
+}
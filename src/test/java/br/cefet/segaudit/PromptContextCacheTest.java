@@ -0,0 +1,144 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.AIContextManager.cache.PromptContextCache;
+import br.cefet.segaudit.model.classes.IAGenerateResponse;
+import br.cefet.segaudit.model.classes.OllamaOptions;
+
+public class PromptContextCacheTest {
+
+    private final PromptContextCache cache = new PromptContextCache(4);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final CompletableFuture<IAGenerateResponse> load = new CompletableFuture<>();
+
+    private CompletableFuture<IAGenerateResponse> request() {
+        return cache.getOrLoad("key", () -> {
+            loads.incrementAndGet();
+            return load;
+        });
+    }
+
+    @Test
+    @DisplayName("Sessões simultâneas compartilham uma única carga")
+    void coalescesConcurrentLoads() throws Exception {
+        CompletableFuture<IAGenerateResponse> first = request();
+        CompletableFuture<IAGenerateResponse> second = request();
+        load.complete(new IAGenerateResponse("", new long[] { 1, 2 }, 10));
+
+        assertEquals(10, first.get().promptEvalCount());
+        assertEquals(10, second.get().promptEvalCount());
+        assertEquals(10, request().get().promptEvalCount());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getCoalesced());
+    }
+
+    @Test
+    @DisplayName("A carga só é cancelada quando nenhuma sessão espera por ela")
+    void cancelsLoadWhenLastWaiterCancels() {
+        CompletableFuture<IAGenerateResponse> first = request();
+        CompletableFuture<IAGenerateResponse> second = request();
+
+        first.cancel(true);
+        assertFalse(load.isCancelled());
+        assertFalse(second.isDone());
+
+        second.cancel(true);
+        assertTrue(load.isCancelled());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Sessão que chega depois do cancelamento inicia uma nova carga")
+    void abandonedLoadIsNotJoined() throws Exception {
+        request().cancel(true);
+        assertTrue(load.isCancelled());
+
+        CompletableFuture<IAGenerateResponse> retry = cache.getOrLoad("key", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(new IAGenerateResponse("", new long[] { 3 }, 7));
+        });
+
+        assertEquals(7, retry.get().promptEvalCount());
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getCoalesced());
+    }
+
+    @Test
+    @DisplayName("Cancelamentos concorrentes nunca entregam carga cancelada a quem não cancelou")
+    void concurrentJoinAndCancel() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 200; round++) {
+                String key = "key-" + round;
+                CompletableFuture<IAGenerateResponse> slowLoad = new CompletableFuture<>();
+                CompletableFuture<IAGenerateResponse> leaving = cache.getOrLoad(key, () -> slowLoad);
+                CountDownLatch start = new CountDownLatch(1);
+                Future<CompletableFuture<IAGenerateResponse>> staying = pool.submit(() -> {
+                    start.await();
+                    return cache.getOrLoad(key, () -> CompletableFuture.completedFuture(new IAGenerateResponse("", new long[] { 1 }, 1)));
+                });
+                pool.submit(() -> {
+                    start.await();
+                    return leaving.cancel(true);
+                });
+                start.countDown();
+
+                CompletableFuture<IAGenerateResponse> joined = staying.get(5, TimeUnit.SECONDS);
+                slowLoad.complete(new IAGenerateResponse("", new long[] { 1 }, 1));
+                assertEquals(1, joined.get(5, TimeUnit.SECONDS).promptEvalCount(), "round " + round);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Acima do limite a entrada usada há mais tempo é descartada")
+    void evictsLeastRecentlyUsed() throws Exception {
+        PromptContextCache small = new PromptContextCache(2);
+        for (String key : new String[] { "a", "b", "a", "c" }) {
+            small.getOrLoad(key, () -> {
+                loads.incrementAndGet();
+                return CompletableFuture.completedFuture(new IAGenerateResponse("", new long[] { 1 }, 1));
+            }).get();
+        }
+        assertEquals(2, small.size());
+        assertEquals(3, loads.get());
+
+        small.getOrLoad("b", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(new IAGenerateResponse("", new long[] { 1 }, 1));
+        }).get();
+        assertEquals(4, loads.get()); // "b" foi descartada; "a" continua.
+    }
+
+    @Test
+    @DisplayName("A chave muda com o modelo, o prompt, os planos e as opções")
+    void keyCoversEveryInput() {
+        OllamaOptions options = new OllamaOptions(4096);
+        String key = PromptContextCache.keyOf("gemma3", "template", "plans", options);
+        assertEquals(key, PromptContextCache.keyOf("gemma3", "template", "plans", new OllamaOptions(4096)));
+        assertNotEquals(key, PromptContextCache.keyOf("llama3", "template", "plans", options));
+        assertNotEquals(key, PromptContextCache.keyOf("gemma3", "template2", "plans", options));
+        assertNotEquals(key, PromptContextCache.keyOf("gemma3", "template", "plans2", options));
+        assertNotEquals(key, PromptContextCache.keyOf("gemma3", "template", "plans", new OllamaOptions(8192)));
+        // Os tamanhos entram na chave: mover texto de uma parte para outra muda o resultado.
+        assertNotEquals(PromptContextCache.keyOf("gemma3", "ab", "c", options), PromptContextCache.keyOf("gemma3", "a", "bc", options));
+    }
+}
@@ -0,0 +1,65 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.AIContextManager.rules.RuleBasedTranslator;
+import br.cefet.segaudit.model.classes.PlanCatalog;
+
+public class RuleBasedTranslatorTest {
+
+    private static final PlanCatalog PLANS = PlanCatalog.parse("/**@Description Apenas tira o embarcado do chão*/ takeOff "
+            + "/**@Description sobe o drone em X unidades*/ up(X) "
+            + "/**@Description desce o drone em X unidades*/ down(X) "
+            + "/**@Description pousa o drone*/ land "
+            + "/**@Description Comanda o drone para a direita em X unidades*/ right(X) "
+            + "/**@Description desliga o drone*/turnOff");
+
+    private final RuleBasedTranslator translator = new RuleBasedTranslator(true);
+
+    @Test
+    @DisplayName("Traduz verbos simples com argumento numérico")
+    void translatesSimpleCommands() {
+        assertEquals(Optional.of(List.of("up(3)")), translator.tryTranslate("sobe 3", PLANS));
+        assertEquals(Optional.of(List.of("land")), translator.tryTranslate("Pousa!", PLANS));
+        assertEquals(Optional.of(List.of("up(2)")), translator.tryTranslate("suba dois metros", PLANS));
+        assertEquals(Optional.of(List.of("turnOff")), translator.tryTranslate("turn off", PLANS));
+    }
+
+    @Test
+    @DisplayName("Mantém a ordem de múltiplas cláusulas")
+    void keepsClauseOrder() {
+        assertEquals(Optional.of(List.of("takeOff", "up(3)", "land")),
+                translator.tryTranslate("decola, sobe 3 e depois pousa", PLANS));
+    }
+
+    @Test
+    @DisplayName("Devolve ao modelo frases ambíguas, negadas ou com argumentos incorretos")
+    void defersUncertainUtterances() {
+        assertTrue(translator.tryTranslate("não suba 3", PLANS).isEmpty());
+        assertTrue(translator.tryTranslate("suba", PLANS).isEmpty());
+        assertTrue(translator.tryTranslate("pousa 5", PLANS).isEmpty());
+        assertTrue(translator.tryTranslate("Olá agente, ligue os motores, suba 50 metros", PLANS).isEmpty());
+        assertTrue(translator.tryTranslate("vá para a esquerda 10", PLANS).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Números grandes demais para um int vão para o modelo em vez de lançar exceção")
+    void defersNumbersTooLongToParse() {
+        assertEquals(Optional.of(List.of("up(999999999)")), translator.tryTranslate("sobe 999999999", PLANS));
+        assertTrue(translator.tryTranslate("sobe 99999999999", PLANS).isEmpty());
+        assertTrue(translator.tryTranslate("decola e sobe 123456789012345678901234567890", PLANS).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Pode ser desabilitado por configuração")
+    void canBeDisabled() {
+        assertTrue(new RuleBasedTranslator(false).tryTranslate("sobe 3", PLANS).isEmpty());
+    }
+}
@@ -0,0 +1,117 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.service.SessionInbox;
+
+public class SessionInboxTest {
+
+    private final List<String> processed = new ArrayList<>();
+    private final List<CompletableFuture<Void>> running = new ArrayList<>();
+
+    private SessionInbox inbox(int capacity, boolean coalesce) {
+        return new SessionInbox("s1", capacity, coalesce, message -> {
+            processed.add(message);
+            CompletableFuture<Void> translation = new CompletableFuture<>();
+            running.add(translation);
+            return translation;
+        });
+    }
+
+    private void finishCurrent() {
+        running.remove(0).complete(null);
+    }
+
+    @Test
+    @DisplayName("Aceita mensagens durante uma tradução e as processa em ordem")
+    void processesInOrder() {
+        SessionInbox inbox = inbox(4, false);
+
+        assertEquals(0, inbox.offer("sobe 3"));
+        assertEquals(1, inbox.offer("desce 2"));
+        assertEquals(2, inbox.offer("pousa"));
+        assertEquals(List.of("sobe 3"), processed);
+
+        finishCurrent();
+        finishCurrent();
+        assertEquals(List.of("sobe 3", "desce 2", "pousa"), processed);
+        assertEquals(0, inbox.size());
+    }
+
+    @Test
+    @DisplayName("Sinaliza contrapressão quando a fila está cheia")
+    void rejectsWhenFull() {
+        SessionInbox inbox = inbox(1, false);
+
+        assertEquals(0, inbox.offer("a"));
+        assertEquals(1, inbox.offer("b"));
+        assertEquals(-1, inbox.offer("c"));
+    }
+
+    @Test
+    @DisplayName("Agrupa as mensagens acumuladas em uma única tradução")
+    void coalescesQueuedMessages() {
+        SessionInbox inbox = inbox(4, true);
+
+        inbox.offer("decola");
+        inbox.offer("sobe 3.");
+        inbox.offer("vira à direita");
+        finishCurrent();
+
+        assertEquals(List.of("decola", "sobe 3. vira à direita"), processed);
+    }
+
+    @Test
+    @DisplayName("Lote ocupa seu lugar na fila e não é agrupado com as mensagens")
+    void tasksKeepTheirPlace() {
+        SessionInbox inbox = inbox(4, true);
+
+        inbox.offer("decola");
+        inbox.offer("sobe 3");
+        inbox.offerTask(() -> {
+            processed.add("<lote>");
+            return CompletableFuture.completedFuture(null);
+        }, () -> processed.add("<descartado>"));
+        inbox.offer("pousa");
+        finishCurrent();
+        finishCurrent();
+
+        assertEquals(List.of("decola", "sobe 3", "<lote>", "pousa"), processed);
+    }
+
+    @Test
+    @DisplayName("Fechar a caixa avisa as tarefas que ainda esperavam e não as executa")
+    void closeNotifiesDroppedTasks() {
+        SessionInbox inbox = inbox(4, false);
+
+        inbox.offer("decola");
+        inbox.offerTask(() -> {
+            processed.add("<lote>");
+            return CompletableFuture.completedFuture(null);
+        }, () -> processed.add("<descartado>"));
+        inbox.close();
+        finishCurrent();
+
+        assertEquals(List.of("decola", "<descartado>"), processed);
+        assertEquals(-1, inbox.offer("pousa"));
+    }
+
+    @Test
+    @DisplayName("Continua com a próxima mensagem mesmo se a tradução falhar")
+    void continuesAfterFailure() {
+        SessionInbox inbox = inbox(4, false);
+
+        inbox.offer("a");
+        inbox.offer("b");
+        running.remove(0).completeExceptionally(new RuntimeException("boom"));
+
+        assertEquals(List.of("a", "b"), processed);
+    }
+}
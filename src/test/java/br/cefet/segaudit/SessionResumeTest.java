@@ -0,0 +1,119 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.AIContextManager.cache.PromptContextCache;
+import br.cefet.segaudit.AIContextManager.gemma3.Gemma3Manager;
+import br.cefet.segaudit.AIContextManager.snapshot.ContextSnapshotStore;
+import br.cefet.segaudit.model.classes.PlanCatalog;
+
+public class SessionResumeTest {
+
+    private static final String CLIENT = "operator:agent";
+    private static final PlanCatalog PLANS = PlanCatalog.parse("plans(\"takeOff,land\")");
+
+    private final AtomicInteger initializations = new AtomicInteger();
+    /** Context size of every translation request the stub received. */
+    private final List<Integer> translationContexts = new CopyOnWriteArrayList<>();
+    private OllamaStub ollama;
+    private Path directory;
+    private ContextSnapshotStore snapshots;
+    private Gemma3Manager manager;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Stub do Ollama: cada chamada devolve o contexto recebido acrescido de 10 tokens.
+        ollama = new OllamaStub(request -> {
+            if (OllamaStub.isTranslation(request)) {
+                translationContexts.add(OllamaStub.contextLength(request));
+            } else {
+                initializations.incrementAndGet();
+            }
+            return OllamaStub.reply("takeOff", OllamaStub.contextLength(request) + 10);
+        });
+
+        directory = Files.createTempDirectory("snapshots");
+        snapshots = new ContextSnapshotStore(directory, 1 << 20, 8 << 20, TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(1),
+                ollama.timers(), Runnable::run);
+        manager = ollama.manager().contextCache(new PromptContextCache(0)).snapshots(snapshots).build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        snapshots.close();
+        ollama.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /** Resumes the session or, when that is not possible, initializes it as the controller does. */
+    private boolean open(String sessionId, PlanCatalog plans) {
+        boolean resumed = manager.resumeUserSession(sessionId, CLIENT, plans);
+        if (!resumed) {
+            manager.initializeUserSession(sessionId, plans);
+        }
+        return resumed;
+    }
+
+    private int lastTranslationContext() {
+        return translationContexts.get(translationContexts.size() - 1);
+    }
+
+    @Test
+    @DisplayName("Retoma com os mesmos planos e descarta o snapshot quando os planos do agente mudam")
+    void plansChangeDiscardsSnapshot() {
+        assertFalse(open("s1", PLANS));
+        manager.translateMessage("s1", "decole").join();
+        manager.endSession("s1");
+
+        assertTrue(open("s2", PlanCatalog.parse("plans(\"takeOff,land\")")));
+        assertEquals(1, initializations.get());
+        manager.translateMessage("s2", "decole").join();
+        assertEquals(20, lastTranslationContext());
+        manager.endSession("s2");
+
+        PlanCatalog changed = PlanCatalog.parse("plans(\"takeOff,land,up(N)\")");
+        assertFalse(open("s3", changed));
+        assertEquals(2, initializations.get());
+        manager.translateMessage("s3", "decole").join();
+        assertEquals(10, lastTranslationContext()); // Começa do contexto inicial dos planos novos.
+        assertEquals(changed.getPlansContent(),
+                snapshots.load(ContextSnapshotStore.keyOf(CLIENT, OllamaStub.MODEL)).orElseThrow().plansContent());
+    }
+
+    @Test
+    @DisplayName("Sessões simultâneas do mesmo par: a próxima retomada continua da última que salvou")
+    void concurrentSessionsOfOnePairAreLastWriterWins() {
+        open("s1", PLANS);
+        manager.translateMessage("s1", "decole").join(); // s1: 20 tokens
+        assertTrue(open("s2", PLANS));
+        manager.translateMessage("s2", "decole").join(); // s2: 30 tokens
+        manager.translateMessage("s2", "pouse").join(); // s2: 40 tokens
+        manager.translateMessage("s1", "pouse").join(); // s1: 30 tokens, salvo por último
+
+        assertTrue(open("s3", PLANS));
+        manager.translateMessage("s3", "decole").join();
+
+        assertEquals(30, lastTranslationContext());
+    }
+}
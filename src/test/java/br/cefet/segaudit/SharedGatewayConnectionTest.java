@@ -0,0 +1,132 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.metrics.GatewayMetrics;
+import br.cefet.segaudit.model.classes.ContextNetConfig;
+import br.cefet.segaudit.model.classes.KqmlFrame;
+import br.cefet.segaudit.model.interfaces.IGatewayLink;
+import br.cefet.segaudit.service.ContextNetClient;
+import br.cefet.segaudit.service.GatewayConnectionManager;
+import br.cefet.segaudit.service.HashedTimingWheel;
+import br.cefet.segaudit.service.SharedGatewayConnection;
+import lac.cnclib.sddl.message.ApplicationMessage;
+
+public class SharedGatewayConnectionTest {
+
+    private static final UUID AGENT = UUID.fromString("2f1d1c9e-7a43-4d3e-9d7b-3b2a8f6e5c10");
+    private static final UUID OPERATOR_A = UUID.fromString("788b2b22-baa6-4c61-b1bb-01cff1f5f878");
+    private static final UUID OPERATOR_B = UUID.fromString("0c6f7d1e-5b1a-4f0e-8a52-6f3e9c2d4b71");
+
+    private final List<String> receivedByA = new CopyOnWriteArrayList<>();
+    private final List<String> receivedByB = new CopyOnWriteArrayList<>();
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private SharedGatewayConnection shared;
+    private ContextNetClient clientA;
+    private ContextNetClient clientB;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        HashedTimingWheel timeouts = new HashedTimingWheel(scheduler, 10, 64);
+        // O executor nunca roda a abertura: o teste entrega as mensagens diretamente à conexão.
+        shared = new SharedGatewayConnection("127.0.0.1", 5500, command -> { });
+        GatewayConnectionManager gateway = new GatewayConnectionManager(null, 1, 100) {
+            @Override
+            public IGatewayLink register(ContextNetClient client, String gatewayIP, int gatewayPort) {
+                IGatewayLink link = shared.register(client);
+                return new IGatewayLink() {
+                    @Override
+                    public void sendMessage(String message) {
+                        sent.add(message);
+                        link.sendMessage(message);
+                    }
+
+                    @Override
+                    public void expectReply(long messageId) {
+                        link.expectReply(messageId);
+                    }
+
+                    @Override
+                    public void close() {
+                        link.close();
+                    }
+                };
+            }
+        };
+        clientA = new ContextNetClient(config(OPERATOR_A), receivedByA::add, gateway, timeouts, GatewayMetrics.inMemory());
+        clientB = new ContextNetClient(config(OPERATOR_B), receivedByB::add, gateway, timeouts, GatewayMetrics.inMemory());
+    }
+
+    @AfterEach
+    void tearDown() {
+        clientA.close();
+        clientB.close();
+        scheduler.shutdownNow();
+    }
+
+    private static ContextNetConfig config(UUID session) {
+        ContextNetConfig config = new ContextNetConfig();
+        config.gatewayIP = "127.0.0.1";
+        config.gatewayPort = 5500;
+        config.myUUID = session;
+        config.destinationUUID = AGENT;
+        return config;
+    }
+
+    private void deliver(UUID recipient, String content) {
+        ApplicationMessage message = new ApplicationMessage();
+        message.setSenderID(AGENT);
+        message.setRecipientID(recipient);
+        message.setContentObject(content);
+        shared.newMessageReceived(null, message);
+    }
+
+    @Test
+    @DisplayName("Duas sessões no mesmo agente só recebem as mensagens endereçadas a elas")
+    void noCrossDeliveryBetweenSessionsOnOneAgent() {
+        deliver(OPERATOR_A, "position(1,2)");
+        deliver(null, "<t1," + AGENT + ",tell," + OPERATOR_B + ",battery(80)>");
+        deliver(null, "<t2," + AGENT + ",tell,operator,battery(79)>");
+        deliver(AGENT, "<t3," + AGENT + ",tell," + AGENT + ",battery(78)>");
+
+        assertEquals(List.of("position(1,2)"), receivedByA);
+        assertEquals(List.of("<t1," + AGENT + ",tell," + OPERATOR_B + ",battery(80)>"), receivedByB);
+        assertEquals(2, shared.getUnroutedCount());
+    }
+
+    @Test
+    @DisplayName("Resposta sem destinatário conhecido vai só para a sessão que fez a pergunta")
+    void replyGoesOnlyToAskingSession() throws Exception {
+        clientA.connected(null);
+        clientB.connected(null);
+        CompletableFuture<String> plans = clientB.ask("askOne", "plans(N)", Duration.ofSeconds(5));
+        String askedId = KqmlFrame.parse(sent.get(0)).getString(KqmlFrame.Field.ID);
+
+        // A resposta traz o nome do agente no lugar do UUID do destinatário: só o in-reply-to identifica a sessão.
+        deliver(null, "<r1->" + askedId + "," + AGENT + ",tell,operator,plans(\"takeOff\")>");
+
+        assertEquals("plans(\"takeOff\")", plans.get());
+        assertTrue(receivedByA.isEmpty());
+        assertEquals(1, receivedByB.size());
+
+        deliver(null, "<r2->" + askedId + "," + AGENT + ",tell,operator,plans(\"land\")>"); // Repetida: ninguém espera mais.
+        assertTrue(receivedByA.isEmpty());
+        assertEquals(1, receivedByB.size());
+    }
+}
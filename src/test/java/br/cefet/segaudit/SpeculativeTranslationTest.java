@@ -0,0 +1,113 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.AIContextManager.gemma3.Gemma3Manager;
+import br.cefet.segaudit.metrics.GatewayMetrics;
+import br.cefet.segaudit.model.classes.PlanCatalog;
+import br.cefet.segaudit.model.classes.TranslationResult;
+import br.cefet.segaudit.model.classes.TranslationSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class SpeculativeTranslationTest {
+
+    private static final String SESSION = "speculation-session";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    /** Prompt of every translation request the stub received. */
+    private final List<String> sentPrompts = new CopyOnWriteArrayList<>();
+    private OllamaStub ollama;
+    private Gemma3Manager manager;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Stub do Ollama: responde "up(N)" para "suba N" e cada tradução acrescenta tokens ao contexto recebido.
+        ollama = new OllamaStub(request -> {
+            String prompt = request.path("prompt").asText();
+            if (OllamaStub.isTranslation(request)) {
+                sentPrompts.add(prompt);
+            }
+            String response = prompt.contains("suba ") ? "up(" + prompt.substring(prompt.lastIndexOf(' ') + 1) + ")" : "takeOff";
+            return OllamaStub.reply(response, OllamaStub.contextLength(request) + 10);
+        });
+        manager = ollama.manager()
+                .metrics(new GatewayMetrics(registry))
+                .setting("speculationEnabled", true)
+                .setting("speculationDebounceMillis", 100L)
+                .setting("speculationMinChars", 4)
+                .build();
+        manager.initializeUserSession(SESSION, PlanCatalog.parse("plans(\"takeOff,land,up(N)\")"));
+        manager.setTranslationCacheEnabled(SESSION, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ollama.close();
+    }
+
+    private void awaitPrompts(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (sentPrompts.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, sentPrompts.size(), "prompts: " + sentPrompts);
+    }
+
+    private double speculationsServed() {
+        return registry.get("segaudit.translations").tag("source", "speculation").counter().count();
+    }
+
+    @Test
+    @DisplayName("Mensagem igual ao último rascunho reaproveita a tradução especulativa")
+    void committedDraftReusesSpeculation() throws InterruptedException {
+        manager.speculate(SESSION, "suba 3");
+        manager.speculate(SESSION, "suba 3"); // Repetido: não dispara outro pedido.
+        awaitPrompts(1);
+
+        TranslationResult result = manager.translateMessage(SESSION, "suba 3").join();
+
+        assertEquals(List.of("up(3)"), result.getKqmlMessages());
+        assertEquals(TranslationSource.SPECULATION, result.getSource());
+        assertEquals(1, sentPrompts.size());
+        assertEquals(1.0, speculationsServed());
+    }
+
+    @Test
+    @DisplayName("Rascunhos substituídos antes do debounce não chegam ao modelo e texto diferente é traduzido de novo")
+    void newerTextCancelsOlderSpeculation() throws InterruptedException {
+        manager.speculate(SESSION, "suba 1");
+        manager.speculate(SESSION, "suba 12");
+        awaitPrompts(1);
+        assertTrue(sentPrompts.get(0).endsWith("suba 12"), sentPrompts.get(0));
+
+        TranslationResult result = manager.translateMessage(SESSION, "suba 125").join();
+
+        assertEquals(List.of("up(125)"), result.getKqmlMessages());
+        assertEquals(TranslationSource.MODEL, result.getSource());
+        assertEquals(2, sentPrompts.size());
+    }
+
+    @Test
+    @DisplayName("Especulação iniciada antes de o contexto mudar é descartada")
+    void staleContextIsRetranslated() throws InterruptedException {
+        manager.speculate(SESSION, "suba 7");
+        awaitPrompts(1);
+        manager.translateBatch(SESSION, List.of("decole"), 1).join(); // Muda o contexto sem passar pela especulação.
+
+        TranslationResult result = manager.translateMessage(SESSION, "suba 7").join();
+
+        assertEquals(TranslationSource.MODEL, result.getSource());
+        assertEquals(3, sentPrompts.size());
+        assertEquals(0.0, speculationsServed());
+    }
+}
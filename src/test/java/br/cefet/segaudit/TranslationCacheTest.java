@@ -0,0 +1,120 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.AIContextManager.cache.TranslationCache;
+import br.cefet.segaudit.AIContextManager.gemma3.Gemma3Manager;
+import br.cefet.segaudit.model.classes.PlanCatalog;
+import br.cefet.segaudit.model.classes.TranslationResult;
+import br.cefet.segaudit.model.classes.TranslationSource;
+
+public class TranslationCacheTest {
+
+    private static final String PLANS = "plans(\"takeOff,land\")";
+    private static final String MODEL = "gemma3:12b";
+
+    private final TranslationCache cache = new TranslationCache(2, 3600);
+    private final String plans = TranslationCache.fingerprint(PLANS);
+
+    @Test
+    @DisplayName("A chave combina a frase normalizada, a impressão digital dos planos e o modelo")
+    void keyCoversUtterancePlansAndModel() {
+        cache.put("Decole agora!", plans, MODEL, List.of("takeOff"));
+
+        TranslationResult hit = cache.get("  decole   AGORA ", plans, MODEL);
+        assertNotNull(hit);
+        assertEquals(List.of("takeOff"), hit.getKqmlMessages());
+        assertEquals(TranslationSource.CACHE, hit.getSource());
+        assertNotNull(cache.get("décole agora.", plans, MODEL));
+
+        assertNull(cache.get("decole", plans, MODEL));
+        assertNull(cache.get("decole agora", plans, "gemma3:4b"));
+        assertNull(cache.get("decole agora", TranslationCache.fingerprint("plans(\"takeOff\")"), MODEL));
+        assertEquals(TranslationCache.fingerprint(PLANS), plans);
+        assertNotEquals(TranslationCache.fingerprint("plans(\"land,takeOff\")"), plans);
+    }
+
+    @Test
+    @DisplayName("Cheio, o cache descarta a entrada usada há mais tempo")
+    void evictsLeastRecentlyUsed() {
+        cache.put("decole", plans, MODEL, List.of("takeOff"));
+        cache.put("pouse", plans, MODEL, List.of("land"));
+        assertNotNull(cache.get("decole", plans, MODEL));
+
+        cache.put("suba 3", plans, MODEL, List.of("up(3)"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("pouse", plans, MODEL));
+        assertNotNull(cache.get("decole", plans, MODEL));
+        assertNotNull(cache.get("suba 3", plans, MODEL));
+    }
+
+    @Test
+    @DisplayName("Consultar sem servir não conta acerto nem erro e não renova a entrada no LRU")
+    void containsDoesNotCountOrRefresh() {
+        cache.put("decole", plans, MODEL, List.of("takeOff"));
+        cache.put("pouse", plans, MODEL, List.of("land"));
+
+        assertTrue(cache.contains("Decole!", plans, MODEL));
+        assertFalse(cache.contains("suba 3", plans, MODEL));
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+
+        cache.put("suba 3", plans, MODEL, List.of("up(3)"));
+        assertNull(cache.get("decole", plans, MODEL)); // Continuou a mais antiga apesar da consulta.
+    }
+
+    @Test
+    @DisplayName("Entradas expiradas, traduções vazias e cache desativado não são servidos")
+    void skipsExpiredEmptyAndDisabled() {
+        TranslationCache expiring = new TranslationCache(4, 0);
+        expiring.put("decole", plans, MODEL, List.of("takeOff"));
+        assertNull(expiring.get("decole", plans, MODEL));
+        assertEquals(0, expiring.size());
+
+        cache.put("bom dia", plans, MODEL, List.of());
+        assertNull(cache.get("bom dia", plans, MODEL));
+
+        TranslationCache disabled = new TranslationCache(0, 3600);
+        disabled.put("decole", plans, MODEL, List.of("takeOff"));
+        assertNull(disabled.get("decole", plans, MODEL));
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("Quando os planos do agente mudam, a sessão não recebe traduções feitas para os planos antigos")
+    void plansChangeInvalidatesEntries() throws IOException {
+        AtomicInteger translations = new AtomicInteger();
+        try (OllamaStub ollama = new OllamaStub(request -> {
+            // Só as traduções levam contexto; a inicialização da sessão não conta.
+            if (OllamaStub.isTranslation(request)) {
+                translations.incrementAndGet();
+            }
+            return OllamaStub.reply("takeOff", 3);
+        })) {
+            Gemma3Manager manager = ollama.manager().translationCache(new TranslationCache(16, 3600)).build();
+
+            manager.initializeUserSession("cache-session", PlanCatalog.parse(PLANS));
+            assertEquals(TranslationSource.MODEL, manager.translateMessage("cache-session", "decole").join().getSource());
+            assertEquals(TranslationSource.CACHE, manager.translateMessage("cache-session", "decole").join().getSource());
+
+            manager.endSession("cache-session");
+            manager.initializeUserSession("cache-session", PlanCatalog.parse("plans(\"takeOff,land,up(N)\")"));
+            assertEquals(TranslationSource.MODEL, manager.translateMessage("cache-session", "decole").join().getSource());
+            assertEquals(2, translations.get());
+        }
+    }
+}
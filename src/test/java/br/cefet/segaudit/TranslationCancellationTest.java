@@ -0,0 +1,97 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.AIContextManager.gemma3.Gemma3Manager;
+import br.cefet.segaudit.AIContextManager.scheduling.OllamaRequestScheduler;
+import br.cefet.segaudit.model.classes.PlanCatalog;
+import br.cefet.segaudit.model.classes.TranslationResult;
+
+public class TranslationCancellationTest {
+
+    private static final String SESSION = "cancellation-session";
+
+    /** Utterances whose translation the stub has received. */
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    /** Utterances the stub may answer; the others are held until the test releases them. */
+    private final Set<String> released = ConcurrentHashMap.newKeySet();
+    private final OllamaRequestScheduler scheduler = new OllamaRequestScheduler(2, 16);
+    private OllamaStub ollama;
+    private Gemma3Manager manager;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Cada pedido retido ocupa uma thread do stub.
+        ollama = new OllamaStub(request -> {
+            if (OllamaStub.isTranslation(request)) {
+                String utterance = request.path("prompt").asText();
+                received.add(utterance);
+                long deadline = System.currentTimeMillis() + 5_000;
+                while (!released.contains(utterance) && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(5);
+                }
+            }
+            return OllamaStub.reply("takeOff", 3);
+        });
+        manager = ollama.manager().scheduler(scheduler).build();
+        manager.initializeUserSession(SESSION, PlanCatalog.parse("plans(\"takeOff,land,up(N)\")"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ollama.close();
+    }
+
+    private void awaitReceived(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (received.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, received.size(), "received: " + received);
+    }
+
+    @Test
+    @DisplayName("Encerrar a sessão cancela a chamada ao modelo e libera a vaga no scheduler")
+    void endSessionCancelsRunningRequest() throws InterruptedException {
+        CompletableFuture<TranslationResult> translation = manager.translateMessage(SESSION, "decole");
+        awaitReceived(1);
+        assertEquals(1, scheduler.getInFlight());
+
+        manager.endSession(SESSION);
+
+        assertTrue(translation.isCancelled());
+        assertEquals(0, scheduler.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Uma tradução que termina não apaga o registro da tradução seguinte da mesma sessão")
+    void finishedTranslationKeepsNewerOneTracked() throws InterruptedException {
+        CompletableFuture<TranslationResult> first = manager.translateMessage(SESSION, "decole");
+        awaitReceived(1);
+        CompletableFuture<TranslationResult> second = manager.translateMessage(SESSION, "pouse");
+        awaitReceived(2);
+
+        released.add("decole");
+        first.orTimeout(5, TimeUnit.SECONDS).join();
+        manager.endSession(SESSION);
+
+        assertFalse(first.isCancelled());
+        assertTrue(second.isCancelled());
+        assertEquals(0, scheduler.getInFlight());
+    }
+}
@@ -0,0 +1,52 @@
+package br.cefet.segaudit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.standard.StandardWebSocketSession;
+
+import br.cefet.segaudit.model.classes.WebSocketSessionState;
+
+public class WebSocketSessionStateTest {
+
+    private static WebSocketSession socket() {
+        return new StandardWebSocketSession(null, null, null, null);
+    }
+
+    @Test
+    @DisplayName("Mensagens não entregues são guardadas em ordem e as mais antigas saem quando o buffer enche")
+    void buffersNewestMessages() {
+        WebSocketSessionState state = new WebSocketSessionState(socket());
+
+        for (int i = 1; i <= 5; i++) {
+            state.bufferUndelivered("msg-" + i, 3);
+        }
+
+        assertEquals(List.of("msg-3", "msg-4", "msg-5"), state.drainUndelivered());
+        assertEquals(2, state.takeDroppedCount());
+        assertTrue(state.drainUndelivered().isEmpty());
+        assertEquals(0, state.takeDroppedCount());
+    }
+
+    @Test
+    @DisplayName("A sessão mantém o id original ao ser retomada por outro socket")
+    void keepsSessionIdAcrossSockets() {
+        WebSocketSession first = socket();
+        WebSocketSession second = socket();
+        WebSocketSessionState state = new WebSocketSessionState(first);
+
+        state.setSocket(null);
+        assertNull(state.getSocket());
+        state.setSocket(second);
+
+        assertSame(second, state.getSocket());
+        assertEquals(first.getId(), state.getSessionId());
+    }
+}
@@ -0,0 +1,179 @@
+package br.cefet.segaudit.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.metrics.GatewayMetrics;
+import br.cefet.segaudit.model.classes.ContextNetConfig;
+import br.cefet.segaudit.model.classes.KqmlFrame;
+import br.cefet.segaudit.model.factories.CommandDispatcherFactory;
+import br.cefet.segaudit.model.interfaces.IGatewayLink;
+
+/** Lives in the service package to feed agent messages through the inbound entry point of {@link ContextNetClient}. */
+public class CommandDispatcherTest {
+
+    private static final UUID SESSION = UUID.fromString("788b2b22-baa6-4c61-b1bb-01cff1f5f878");
+    private static final UUID AGENT = UUID.fromString("2f1d1c9e-7a43-4d3e-9d7b-3b2a8f6e5c10");
+
+    /** Every command the agent received, with the time it arrived. */
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final List<Long> sentAt = new CopyOnWriteArrayList<>();
+    /** How long the fake gateway blocks in each send. */
+    private volatile long sendDelayMillis;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService sender;
+    private HashedTimingWheel timeouts;
+    private ContextNetClient client;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        sender = Executors.newCachedThreadPool();
+        timeouts = new HashedTimingWheel(scheduler, 10, 64);
+        ContextNetConfig config = new ContextNetConfig();
+        config.gatewayIP = "127.0.0.1";
+        config.gatewayPort = 5500;
+        config.myUUID = SESSION;
+        config.destinationUUID = AGENT;
+        GatewayConnectionManager gateway = new GatewayConnectionManager(null, 1, 1) {
+            @Override
+            public IGatewayLink register(ContextNetClient owner, String gatewayIP, int gatewayPort) {
+                return new IGatewayLink() {
+                    @Override
+                    public void sendMessage(String message) {
+                        try {
+                            Thread.sleep(sendDelayMillis);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        sentAt.add(System.nanoTime());
+                        sent.add(message);
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        };
+        client = new ContextNetClient(config, message -> { }, gateway, timeouts, GatewayMetrics.inMemory());
+        client.connected(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        sender.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    private CommandDispatcher dispatcher(long delayMillis, boolean adaptive) {
+        return new CommandDispatcherFactory(scheduler, sender, GatewayMetrics.inMemory(), delayMillis, adaptive).create("session", client);
+    }
+
+    private void awaitSent(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (sent.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, sent.size(), "sent: " + sent);
+    }
+
+    private static long millisBetween(long from, long to) {
+        return TimeUnit.NANOSECONDS.toMillis(to - from);
+    }
+
+    @Test
+    @DisplayName("Modo fixo espaça os comandos pelo atraso configurado, em ordem")
+    void fixedPacingKeepsDelayAndOrder() throws Exception {
+        CommandDispatcher dispatcher = dispatcher(80, false);
+
+        dispatcher.submitAll(List.of("takeOff", "up(3)", "land")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, sent.size());
+        assertTrue(sent.get(0).endsWith(",achieve," + AGENT + ",takeOff>"), sent.get(0));
+        assertTrue(sent.get(1).endsWith(",up(3)>"));
+        assertTrue(sent.get(2).endsWith(",land>"));
+        assertTrue(millisBetween(sentAt.get(0), sentAt.get(1)) >= 70);
+        assertTrue(millisBetween(sentAt.get(1), sentAt.get(2)) >= 70);
+    }
+
+    @Test
+    @DisplayName("Modo adaptativo só avança com a resposta ao último comando, não com telemetria")
+    void adaptivePacingWaitsForCorrelatedReply() throws Exception {
+        CommandDispatcher dispatcher = dispatcher(5_000, true);
+        CompletableFuture<Void> last = dispatcher.submitAll(List.of("takeOff", "up(3)"));
+        awaitSent(1);
+        String firstId = KqmlFrame.parse(sent.get(0)).getString(KqmlFrame.Field.ID);
+
+        client.onGatewayMessage("<t1," + AGENT + ",tell," + SESSION + ",battery(80)>");
+        client.onGatewayMessage("<t2->mid0," + AGENT + ",tell," + SESSION + ",position(1,2)>");
+        Thread.sleep(100);
+        assertEquals(1, sent.size());
+        assertEquals(1, dispatcher.getQueuedCount());
+
+        client.onGatewayMessage("<a1->" + firstId + "," + AGENT + ",tell," + SESSION + ",done(takeOff)>");
+        last.get(2, TimeUnit.SECONDS);
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    @DisplayName("Sem resposta, o modo adaptativo envia o próximo comando após o atraso")
+    void adaptivePacingFallsBackToDelay() throws Exception {
+        CommandDispatcher dispatcher = dispatcher(80, true);
+
+        dispatcher.submitAll(List.of("takeOff", "land")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, sent.size());
+        assertTrue(millisBetween(sentAt.get(0), sentAt.get(1)) >= 70);
+    }
+
+    @Test
+    @DisplayName("Fechar descarta os comandos na fila e recusa novos")
+    void closeCancelsQueuedCommands() throws Exception {
+        CommandDispatcher dispatcher = dispatcher(5_000, false);
+        CompletableFuture<Void> first = dispatcher.submit("takeOff");
+        CompletableFuture<Void> second = dispatcher.submit("land");
+        first.get(2, TimeUnit.SECONDS);
+
+        dispatcher.close();
+
+        assertTrue(second.isCancelled());
+        assertEquals(0, dispatcher.getQueuedCount());
+        assertTrue(dispatcher.submit("up(1)").isCancelled());
+        Thread.sleep(50);
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    @DisplayName("Um gateway lento não bloqueia a thread compartilhada do scheduler")
+    void slowSendDoesNotBlockScheduler() throws Exception {
+        sendDelayMillis = 500;
+        CommandDispatcher dispatcher = dispatcher(0, false);
+        CompletableFuture<Void> sentFuture = dispatcher.submit("takeOff");
+        Thread.sleep(50); // O envio já está bloqueado no gateway.
+
+        long submitted = System.nanoTime();
+        ScheduledFuture<Long> probe = scheduler.schedule(System::nanoTime, 0, TimeUnit.MILLISECONDS);
+        long ranAfterMillis = millisBetween(submitted, probe.get(5, TimeUnit.SECONDS));
+        assertTrue(ranAfterMillis < 200, "scheduler thread was busy for " + ranAfterMillis + " ms");
+
+        sentFuture.get(5, TimeUnit.SECONDS);
+        assertEquals(1, sent.size());
+    }
+}
@@ -0,0 +1,149 @@
+package br.cefet.segaudit.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.cefet.segaudit.metrics.GatewayMetrics;
+import br.cefet.segaudit.model.classes.ContextNetConfig;
+import br.cefet.segaudit.model.classes.KqmlFrame;
+import br.cefet.segaudit.model.interfaces.IGatewayLink;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/** Lives in the service package to reach the inbound entry point of {@link ContextNetClient}. */
+public class ContextNetClientTest {
+
+    private static final UUID SESSION = UUID.fromString("788b2b22-baa6-4c61-b1bb-01cff1f5f878");
+    private static final UUID AGENT = UUID.fromString("2f1d1c9e-7a43-4d3e-9d7b-3b2a8f6e5c10");
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ScheduledExecutorService scheduler;
+    private HashedTimingWheel timeouts;
+    private ContextNetClient client;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        timeouts = new HashedTimingWheel(scheduler, 10, 64);
+        ContextNetConfig config = new ContextNetConfig();
+        config.gatewayIP = "127.0.0.1";
+        config.gatewayPort = 5500;
+        config.myUUID = SESSION;
+        config.destinationUUID = AGENT;
+        GatewayConnectionManager gateway = new GatewayConnectionManager(null, 1, 1) {
+            @Override
+            public IGatewayLink register(ContextNetClient owner, String gatewayIP, int gatewayPort) {
+                return new IGatewayLink() {
+                    @Override
+                    public void sendMessage(String message) {
+                        sent.add(message);
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        };
+        client = new ContextNetClient(config, received::add, gateway, timeouts, new GatewayMetrics(registry));
+        client.connected(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        scheduler.shutdownNow();
+    }
+
+    private static String idOf(String message) {
+        return KqmlFrame.parse(message).getString(KqmlFrame.Field.ID);
+    }
+
+    private long agentReplies() {
+        return registry.get("segaudit.stage").tag("stage", "agent_reply").tag("outcome", "success").timer().count();
+    }
+
+    @Test
+    @DisplayName("Resposta é casada pelo in-reply-to e as demais mensagens só vão para o handler")
+    void matchesReplyByInReplyTo() throws Exception {
+        CompletableFuture<String> first = client.ask("askOne", "position(X)", Duration.ofSeconds(5));
+        CompletableFuture<String> second = client.ask("askOne", "battery(X)", Duration.ofSeconds(5));
+        String firstId = idOf(sent.get(0));
+        String secondId = idOf(sent.get(1));
+        assertTrue(firstId.startsWith(ContextNetClient.MESSAGE_ID_PREFIX));
+
+        client.onGatewayMessage("<t1," + AGENT + ",tell," + SESSION + ",battery(80)>");
+        client.onGatewayMessage("<a1->mid0," + AGENT + ",tell," + SESSION + ",other>");
+        client.onGatewayMessage("<a2->" + secondId + "," + AGENT + ",tell," + SESSION + ",battery(79)>");
+        assertFalse(first.isDone());
+        assertEquals("battery(79)", second.get());
+
+        client.onGatewayMessage("<a3->" + firstId + "," + AGENT + ",tell," + SESSION + ",position(1,2)>");
+        assertEquals("position(1,2)", first.get());
+        assertEquals(0, client.getPendingRequestCount());
+        assertEquals(4, received.size());
+    }
+
+    @Test
+    @DisplayName("agent_reply só mede a resposta à última mensagem enviada, não a telemetria")
+    void agentReplyIsCorrelatedByInReplyTo() {
+        long first = client.nextMessageId();
+        client.send(first, "achieve", "takeOff");
+        client.onGatewayMessage("<t1," + AGENT + ",tell," + SESSION + ",battery(80)>");
+        client.onGatewayMessage("<a1->" + ContextNetClient.MESSAGE_ID_PREFIX + (first + 1_000) + "," + AGENT + ",tell," + SESSION + ",other>");
+        assertEquals(0, agentReplies());
+
+        long second = client.nextMessageId();
+        client.send(second, "achieve", "land");
+        // A resposta à mensagem anterior chega depois de outra ter sido enviada: só a mais recente é medida.
+        client.onGatewayMessage("<a2->" + ContextNetClient.MESSAGE_ID_PREFIX + first + "," + AGENT + ",tell," + SESSION + ",done(takeOff)>");
+        assertEquals(0, agentReplies());
+
+        client.onGatewayMessage("<a3->" + ContextNetClient.MESSAGE_ID_PREFIX + second + "," + AGENT + ",tell," + SESSION + ",done(land)>");
+        client.onGatewayMessage("<a4->" + ContextNetClient.MESSAGE_ID_PREFIX + second + "," + AGENT + ",tell," + SESSION + ",done(land)>");
+        assertEquals(1, agentReplies());
+    }
+
+    @Test
+    @DisplayName("Mensagens enviadas como texto cru ou já formatadas também são medidas")
+    void agentReplyTimesRawAndPreformattedMessages() {
+        client.sendToContextNet("achieve," + AGENT + ",takeOff");
+        String id = idOf(sent.get(0));
+        client.onGatewayMessage("<a1->" + id + "," + AGENT + ",tell," + SESSION + ",done>");
+        assertEquals(1, agentReplies());
+
+        client.sendToContextNet("<mid777," + SESSION + ",achieve," + AGENT + ",land>");
+        client.onGatewayMessage("<a2->mid777," + AGENT + ",tell," + SESSION + ",done>");
+        assertEquals(2, agentReplies());
+        assertTrue(registry.get("segaudit.stage").tag("stage", "agent_reply").tag("outcome", "success").timer()
+                .totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    @DisplayName("Fechar o cliente cancela as perguntas pendentes")
+    void closeCancelsPendingRequests() {
+        CompletableFuture<String> pending = client.ask("askOne", "plans(N)", Duration.ofSeconds(5));
+        assertEquals(1, client.getPendingRequestCount());
+
+        client.close();
+
+        assertTrue(pending.isCancelled());
+        assertEquals(0, client.getPendingRequestCount());
+    }
+}